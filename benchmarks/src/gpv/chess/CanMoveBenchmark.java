@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.util.Coordinate.makeCoordinate;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import gpv.util.*;
+
+/**
+ * Measures ChessPiece.canMove() for every kind of piece on boards holding
+ * few, some or many other pieces, on both a plain Board and a BitboardBoard.
+ * Each query moves a white piece to a random square, so both allowed and
+ * refused moves are timed. canMoveAll() times the same queries answered a
+ * position at a time with ChessPiece.canMoveAll().
+ *
+ * @version Apr 17, 2020
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CanMoveBenchmark
+{
+	private static final int POSITIONS = 64;
+	private static final int QUERIES = 1 << 12;
+
+	/**
+	 * How many other pieces share the board with the moving piece.
+	 */
+	public enum Density
+	{
+		EMPTY(0), MIDGAME(20), CROWDED(44);
+
+		private final int pieces;
+
+		private Density(int pieces)
+		{
+			this.pieces = pieces;
+		}
+	}
+
+	@Param
+	public PieceName piece;
+
+	@Param
+	public Density density;
+
+	@Param({"plain", "bitboard"})
+	public String board;
+
+	private Board[] boards;
+	private int[] position;
+	private Coordinate[] from;
+	private Coordinate[] to;
+	private ChessPiece[] mover;
+	private int[][] fromTo;
+	private BitSet answers = new BitSet();
+
+	@Setup
+	public void setup()
+	{
+		ChessPieceFactory factory = new ChessPieceFactory();
+		ChessPieceDescriptor[] kinds = ChessPieceDescriptor.values();
+		Random random = new Random(4233);
+
+		boards = new Board[POSITIONS];
+		Board[] plain = new Board[POSITIONS];
+		BitboardBoard[] bitboards = new BitboardBoard[POSITIONS];
+		ChessPiece[] movers = new ChessPiece[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++)
+		{
+			plain[i] = new Board(8, 8);
+			bitboards[i] = new BitboardBoard();
+			movers[i] = factory.makePiece(ChessPieceDescriptor.of(PlayerColor.WHITE, piece));
+			if (random.nextBoolean())
+			{
+				movers[i].setHasMoved();
+			}
+			SliderBenchmark.place(plain[i], bitboards[i], movers[i], random);
+
+			for (int n = 0; n < density.pieces; n++)
+			{
+				ChessPiece other = factory.makePiece(kinds[random.nextInt(kinds.length)]);
+				SliderBenchmark.place(plain[i], bitboards[i], other, random);
+			}
+			boards[i] = board.equals("plain") ? plain[i] : bitboards[i];
+		}
+
+		position = new int[QUERIES];
+		from = new Coordinate[QUERIES];
+		to = new Coordinate[QUERIES];
+		mover = new ChessPiece[QUERIES];
+		for (int q = 0; q < QUERIES; q++)
+		{
+			int p = q % POSITIONS;
+			position[q] = p;
+			mover[q] = movers[p];
+			from[q] = SliderBenchmark.find(plain[p], movers[p]);
+			to[q] = makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8));
+		}
+
+		// the same queries grouped by position
+		fromTo = new int[POSITIONS][2 * QUERIES / POSITIONS];
+		for (int q = 0; q < QUERIES; q++)
+		{
+			Board b = boards[position[q]];
+			fromTo[position[q]][2 * (q / POSITIONS)] = b.squareOf(from[q]);
+			fromTo[position[q]][2 * (q / POSITIONS) + 1] = b.squareOf(to[q]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void canMove(Blackhole bh)
+	{
+		for (int q = 0; q < QUERIES; q++)
+		{
+			bh.consume(mover[q].canMove(from[q], to[q], boards[position[q]]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void canMoveAll(Blackhole bh)
+	{
+		for (int p = 0; p < POSITIONS; p++)
+		{
+			mover[p].canMoveAll(boards[p], fromTo[p], answers);
+			bh.consume(answers);
+		}
+	}
+}
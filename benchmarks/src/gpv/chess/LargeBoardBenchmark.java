@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.util.Coordinate.makeCoordinate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import gpv.util.*;
+
+/**
+ * Measures the plain Board validators on boards of 8x8, 12x12 and 16x16,
+ * each a quarter full of random pieces and a king of each color: canMove()
+ * and canMoveLegally() of a random white piece to a random square, and
+ * AttackMap.isAttacked() of a random square. With the BoardGeometry tables
+ * the time per query shouldn't grow with the size of the board.
+ *
+ * @version Apr 24, 2020
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LargeBoardBenchmark
+{
+	private static final int POSITIONS = 16;
+	private static final int QUERIES = 1 << 12;
+
+	@Param({"8", "12", "16"})
+	public int size;
+
+	private Board[] boards;
+	private int[] position;
+	private Coordinate[] from;
+	private Coordinate[] to;
+	private ChessPiece[] mover;
+
+	@Setup
+	public void setup()
+	{
+		ChessPieceFactory factory = new ChessPieceFactory();
+		ChessPieceDescriptor[] kinds = ChessPieceDescriptor.values();
+		Random random = new Random(4233);
+
+		boards = new Board[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++)
+		{
+			boards[i] = new Board(size, size);
+			boards[i].putPieceAt(factory.makePiece(ChessPieceDescriptor.WHITEKING), randomSquare(random));
+			boards[i].putPieceAt(factory.makePiece(ChessPieceDescriptor.BLACKKING), randomSquare(random));
+			for (int n = size * size / 4; n > 0; n--)
+			{
+				ChessPiece p = factory.makePiece(kinds[random.nextInt(kinds.length)]);
+				if (p.getName() != PieceName.KING)
+				{
+					Coordinate c = randomSquare(random);
+					if (boards[i].getPieceAt(c) == null)
+					{
+						boards[i].putPieceAt(p, c);
+					}
+				}
+			}
+		}
+
+		position = new int[QUERIES];
+		from = new Coordinate[QUERIES];
+		to = new Coordinate[QUERIES];
+		mover = new ChessPiece[QUERIES];
+		for (int q = 0; q < QUERIES; q++)
+		{
+			int p = q % POSITIONS;
+			Coordinate c;
+			do
+			{
+				c = randomSquare(random);
+			} while (!(boards[p].getPieceAt(c) instanceof ChessPiece)
+					|| ((ChessPiece) boards[p].getPieceAt(c)).getColor() != PlayerColor.WHITE);
+
+			position[q] = p;
+			from[q] = c;
+			to[q] = randomSquare(random);
+			mover[q] = (ChessPiece) boards[p].getPieceAt(c);
+		}
+	}
+
+	/**
+	 * @return a random square of the board
+	 */
+	private Coordinate randomSquare(Random random)
+	{
+		return makeCoordinate(1 + random.nextInt(size), 1 + random.nextInt(size));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void canMove(Blackhole bh)
+	{
+		for (int q = 0; q < QUERIES; q++)
+		{
+			bh.consume(mover[q].canMove(from[q], to[q], boards[position[q]]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void canMoveLegally(Blackhole bh)
+	{
+		for (int q = 0; q < QUERIES; q++)
+		{
+			bh.consume(mover[q].canMoveLegally(from[q], to[q], boards[position[q]]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void isAttacked(Blackhole bh)
+	{
+		for (int q = 0; q < QUERIES; q++)
+		{
+			bh.consume(AttackMap.isAttacked(boards[position[q]], to[q], PlayerColor.BLACK, null, null));
+		}
+	}
+}
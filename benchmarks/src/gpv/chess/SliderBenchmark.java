@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.util.Coordinate.makeCoordinate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import gpv.util.*;
+
+/**
+ * Measures the per-query latency of rook, bishop and queen canMove() on a
+ * plain Board, which walks the rays square by square, against a
+ * BitboardBoard, which uses the magic attack tables. Also times the raw
+ * attack computations on their own.
+ *
+ * @version Apr 12, 2020
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SliderBenchmark
+{
+	private static final int POSITIONS = 64;
+	private static final int QUERIES = 1 << 12;
+
+	private static final ChessPieceDescriptor[] SLIDERS = {
+			ChessPieceDescriptor.WHITEROOK, ChessPieceDescriptor.WHITEBISHOP,
+			ChessPieceDescriptor.WHITEQUEEN };
+
+	private Board[] plain;
+	private BitboardBoard[] bitboards;
+
+	// each query is a slider on some square of a random midgame-like position
+	private int[] position;
+	private Coordinate[] from;
+	private Coordinate[] to;
+	private int[] fromSquare;
+	private ChessPiece[] mover;
+
+	@Setup
+	public void setup()
+	{
+		ChessPieceFactory factory = new ChessPieceFactory();
+		Random random = new Random(4233);
+
+		plain = new Board[POSITIONS];
+		bitboards = new BitboardBoard[POSITIONS];
+		ChessPiece[][] movers = new ChessPiece[POSITIONS][];
+		for (int i = 0; i < POSITIONS; i++)
+		{
+			plain[i] = new Board(8, 8);
+			bitboards[i] = new BitboardBoard();
+			movers[i] = fill(plain[i], bitboards[i], factory, random);
+		}
+
+		position = new int[QUERIES];
+		from = new Coordinate[QUERIES];
+		to = new Coordinate[QUERIES];
+		fromSquare = new int[QUERIES];
+		mover = new ChessPiece[QUERIES];
+		for (int q = 0; q < QUERIES; q++)
+		{
+			int p = q % POSITIONS;
+			ChessPiece piece = movers[p][random.nextInt(movers[p].length)];
+			position[q] = p;
+			mover[q] = piece;
+			from[q] = find(plain[p], piece);
+			to[q] = makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8));
+			fromSquare[q] = Bitboards.square(from[q].getRow(), from[q].getColumn());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void canMoveWalking(Blackhole bh)
+	{
+		for (int q = 0; q < QUERIES; q++)
+		{
+			bh.consume(mover[q].canMove(from[q], to[q], plain[position[q]]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void canMoveMagic(Blackhole bh)
+	{
+		for (int q = 0; q < QUERIES; q++)
+		{
+			bh.consume(mover[q].canMove(from[q], to[q], bitboards[position[q]]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void attacksRayScan(Blackhole bh)
+	{
+		for (int q = 0; q < QUERIES; q++)
+		{
+			long occupied = bitboards[position[q]].getOccupied();
+			bh.consume(Bitboards.rookRayAttacks(fromSquare[q], occupied)
+					| Bitboards.bishopRayAttacks(fromSquare[q], occupied));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void attacksMagic(Blackhole bh)
+	{
+		for (int q = 0; q < QUERIES; q++)
+		{
+			long occupied = bitboards[position[q]].getOccupied();
+			bh.consume(Bitboards.rookAttacks(fromSquare[q], occupied)
+					| Bitboards.bishopAttacks(fromSquare[q], occupied));
+		}
+	}
+
+	/**
+	 * Scatter pawns and minor pieces of both colors over the boards, plus one
+	 * slider of each kind.
+	 *
+	 * @return the sliders that were placed
+	 */
+	private static ChessPiece[] fill(Board plain, BitboardBoard bitboard,
+			ChessPieceFactory factory, Random random)
+	{
+		ChessPieceDescriptor[] fillers = {
+				ChessPieceDescriptor.WHITEPAWN, ChessPieceDescriptor.BLACKPAWN,
+				ChessPieceDescriptor.WHITEKNIGHT, ChessPieceDescriptor.BLACKKNIGHT };
+
+		for (int i = 0; i < 16; i++)
+		{
+			place(plain, bitboard, factory.makePiece(fillers[random.nextInt(fillers.length)]), random);
+		}
+
+		ChessPiece[] sliders = new ChessPiece[SLIDERS.length];
+		for (int i = 0; i < SLIDERS.length; i++)
+		{
+			sliders[i] = factory.makePiece(SLIDERS[i]);
+			place(plain, bitboard, sliders[i], random);
+		}
+
+		return sliders;
+	}
+
+	/**
+	 * Put a piece on a random empty square of both boards.
+	 */
+	static void place(Board plain, BitboardBoard bitboard, ChessPiece p, Random random)
+	{
+		Coordinate c;
+		do
+		{
+			c = makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8));
+		}
+		while (plain.getPieceAt(c) != null);
+
+		plain.putPieceAt(p, c);
+		bitboard.putPieceAt(p, c);
+	}
+
+	/**
+	 * @return the square holding the piece
+	 */
+	static Coordinate find(Board b, ChessPiece p)
+	{
+		for (int row = 1; row <= 8; row++)
+		{
+			for (int column = 1; column <= 8; column++)
+			{
+				if (b.getPieceAt(row, column) == p)
+				{
+					return makeCoordinate(row, column);
+				}
+			}
+		}
+		return null;
+	}
+}
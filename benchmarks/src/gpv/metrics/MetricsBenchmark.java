@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.metrics;
+
+import static gpv.util.Coordinate.makeCoordinate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import gpv.chess.*;
+import gpv.perft.PerftPosition;
+import gpv.util.Coordinate;
+
+/**
+ * Measures what ValidationMetrics add to ChessPiece.canMove(): nothing kept,
+ * the default sample of latencies, and every call timed.
+ *
+ * @version Apr 24, 2020
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark
+{
+	private static final int QUERIES = 1 << 12;
+
+	@Param({"off", "sampled", "every"})
+	public String metrics;
+
+	private BitboardBoard board;
+	private ChessPiece[] mover;
+	private Coordinate[] from;
+	private Coordinate[] to;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(4233);
+		board = PerftPosition.KNOWN.get(1).makeBoard();
+
+		List<Coordinate> occupied = new ArrayList<>();
+		for (int row = 1; row <= 8; row++)
+		{
+			for (int column = 1; column <= 8; column++)
+			{
+				if (board.getPieceAt(makeCoordinate(row, column)) != null)
+				{
+					occupied.add(makeCoordinate(row, column));
+				}
+			}
+		}
+
+		mover = new ChessPiece[QUERIES];
+		from = new Coordinate[QUERIES];
+		to = new Coordinate[QUERIES];
+		for (int q = 0; q < QUERIES; q++)
+		{
+			from[q] = occupied.get(random.nextInt(occupied.size()));
+			mover[q] = (ChessPiece) board.getPieceAt(from[q]);
+			to[q] = makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8));
+		}
+
+		if (metrics.equals("sampled"))
+		{
+			ValidationMetrics.enable();
+		}
+		else if (metrics.equals("every"))
+		{
+			ValidationMetrics.enable(1);
+		}
+	}
+
+	@TearDown
+	public void teardown()
+	{
+		ValidationMetrics.disable();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void canMove(Blackhole bh)
+	{
+		for (int q = 0; q < QUERIES; q++)
+		{
+			bh.consume(mover[q].canMove(from[q], to[q], board));
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.util;
+
+import static gpv.chess.ChessPieceDescriptor.*;
+import static gpv.util.Coordinate.makeCoordinate;
+import static gpv.util.SquareInitializer.makeSquareInitializer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import gpv.chess.*;
+
+/**
+ * Measures the Board and Coordinate operations every move check relies on:
+ * resetting a board to the starting position, making coordinates and
+ * looking pieces up.
+ *
+ * @version Apr 17, 2020
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark
+{
+	private static final int SQUARES = 64;
+
+	@Param({"plain", "bitboard"})
+	public String board;
+
+	private Board b;
+	private List<SquareInitializer> start;
+	private Coordinate[] coordinates;
+
+	@Setup
+	public void setup()
+	{
+		ChessPieceFactory factory = new ChessPieceFactory();
+		ChessPieceDescriptor[] white = { WHITEROOK, WHITEKNIGHT, WHITEBISHOP, WHITEQUEEN,
+				WHITEKING, WHITEBISHOP, WHITEKNIGHT, WHITEROOK };
+		ChessPieceDescriptor[] black = { BLACKROOK, BLACKKNIGHT, BLACKBISHOP, BLACKQUEEN,
+				BLACKKING, BLACKBISHOP, BLACKKNIGHT, BLACKROOK };
+
+		start = new ArrayList<>();
+		for (int c = 1; c <= 8; c++)
+		{
+			start.add(makeSquareInitializer(factory.makePiece(white[c - 1]), makeCoordinate(1, c)));
+			start.add(makeSquareInitializer(factory.makePiece(WHITEPAWN), makeCoordinate(2, c)));
+			start.add(makeSquareInitializer(factory.makePiece(BLACKPAWN), makeCoordinate(7, c)));
+			start.add(makeSquareInitializer(factory.makePiece(black[c - 1]), makeCoordinate(8, c)));
+		}
+
+		b = board.equals("plain") ? new Board(8, 8, start) : new BitboardBoard(start);
+
+		coordinates = new Coordinate[SQUARES];
+		for (int i = 0; i < SQUARES; i++)
+		{
+			coordinates[i] = makeCoordinate(i / 8 + 1, i % 8 + 1);
+		}
+	}
+
+	@Benchmark
+	public Board reset()
+	{
+		b.reset(start);
+		return b;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SQUARES)
+	public void makeCoordinates(Blackhole bh)
+	{
+		for (int row = 1; row <= 8; row++)
+		{
+			for (int column = 1; column <= 8; column++)
+			{
+				bh.consume(Coordinate.makeCoordinate(row, column));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SQUARES)
+	public void getPieceAtCoordinate(Blackhole bh)
+	{
+		for (Coordinate c : coordinates)
+		{
+			bh.consume(b.getPieceAt(c));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SQUARES)
+	public void getPieceAtRowColumn(Blackhole bh)
+	{
+		for (int row = 1; row <= 8; row++)
+		{
+			for (int column = 1; column <= 8; column++)
+			{
+				bh.consume(b.getPieceAt(row, column));
+			}
+		}
+	}
+}
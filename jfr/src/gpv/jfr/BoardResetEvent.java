@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A board cleared and set up with another position by Fen.read() or
+ * PositionCodec.decode().
+ *
+ * @version Apr 24, 2020
+ */
+@Name("gpv.BoardReset")
+@Label("Board Reset")
+@Category({ "GPV", "Validation" })
+@Description("A board cleared and set up with another position")
+@Enabled(false)
+@StackTrace(false)
+final class BoardResetEvent extends Event
+{
+	@Label("Position Fingerprint")
+	long fingerprint;
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A ChessPiece.canMove() call that took longer than the threshold.
+ *
+ * @version Apr 24, 2020
+ */
+@Name("gpv.CanMove")
+@Label("Can Move")
+@Category({ "GPV", "Validation" })
+@Description("A canMove() call that took longer than the threshold")
+@Enabled(false)
+@StackTrace(false)
+@Threshold("20 us")
+final class CanMoveEvent extends Event
+{
+	@Label("Piece")
+	String piece;
+
+	@Label("From")
+	String from;
+
+	@Label("To")
+	String to;
+
+	@Label("Valid")
+	boolean valid;
+
+	@Label("Position Fingerprint")
+	long fingerprint;
+}
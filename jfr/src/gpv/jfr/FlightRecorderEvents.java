@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.jfr;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import gpv.chess.*;
+import gpv.metrics.ValidationEvents;
+import gpv.util.*;
+import jdk.jfr.*;
+
+/**
+ * Records the validation hot paths as Java Flight Recorder events:
+ * gpv.CanMove for canMove() calls over a threshold, gpv.BoardReset for
+ * boards set up with another position by BitboardBoard.reset(), Fen.read() or
+ * PositionCodec.decode(), and gpv.MoveGeneration for move generation, each
+ * with the position's fingerprint.
+ * <br/>
+ * install() hooks the events in. They are still off until a recording turns
+ * them on, and the only cost until then is asking their EventType whether
+ * they are; no event is made. The
+ * settings bundled in gpv.jfc turn them on, with a threshold of 20 us for
+ * canMove() and 50 us for move generation, for a recording started with
+ * them:
+ * <pre>
+ * jcmd &lt;pid&gt; JFR.start settings=/path/to/gpv.jfc
+ * </pre>
+ * or from code, new Recording(FlightRecorderEvents.configuration()).
+ *
+ * @version Apr 24, 2020
+ */
+public final class FlightRecorderEvents extends ValidationEvents
+{
+	/**
+	 * The bundled settings, as a resource next to this class.
+	 */
+	public static final String SETTINGS = "gpv.jfc";
+
+	private static final FlightRecorderEvents INSTANCE = new FlightRecorderEvents();
+
+	// asked before an event is made, so that nothing is allocated while they are off
+	private static final EventType CAN_MOVE = EventType.getEventType(CanMoveEvent.class);
+	private static final EventType BOARD_RESET = EventType.getEventType(BoardResetEvent.class);
+	private static final EventType MOVE_GENERATION = EventType.getEventType(MoveGenerationEvent.class);
+
+	/**
+	 * Only the one instance.
+	 */
+	private FlightRecorderEvents()
+	{
+		// not instantiated elsewhere
+	}
+
+	/**
+	 * Start calling the events from the validation hot paths.
+	 */
+	public static void install()
+	{
+		ValidationEvents.install(INSTANCE);
+	}
+
+	/**
+	 * Stop calling the events, if they are what is installed.
+	 */
+	public static void uninstall()
+	{
+		if (ValidationEvents.installed() == INSTANCE)
+		{
+			ValidationEvents.install(null);
+		}
+	}
+
+	/**
+	 * @return the bundled settings, which turn the events on
+	 * @throws IOException if they can't be read
+	 */
+	public static Configuration configuration() throws IOException
+	{
+		try (Reader in = new InputStreamReader(FlightRecorderEvents.class.getResourceAsStream(SETTINGS),
+				StandardCharsets.UTF_8))
+		{
+			return Configuration.create(in);
+		}
+		catch (ParseException e)
+		{
+			throw new IOException("Bad " + SETTINGS, e);
+		}
+	}
+
+	@Override
+	public Object beginCanMove()
+	{
+		if (!CAN_MOVE.isEnabled())
+		{
+			return null;
+		}
+		CanMoveEvent event = new CanMoveEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endCanMove(Object e, ChessPiece piece, Coordinate from, Coordinate to, Board b, boolean valid)
+	{
+		CanMoveEvent event = (CanMoveEvent) e;
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.piece = piece.getName().toString();
+			event.from = name(from);
+			event.to = name(to);
+			event.valid = valid;
+			event.fingerprint = fingerprint(b);
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginBoardReset()
+	{
+		if (!BOARD_RESET.isEnabled())
+		{
+			return null;
+		}
+		BoardResetEvent event = new BoardResetEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endBoardReset(Object e, Board b)
+	{
+		BoardResetEvent event = (BoardResetEvent) e;
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.fingerprint = fingerprint(b);
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginMoveGeneration()
+	{
+		if (!MOVE_GENERATION.isEnabled())
+		{
+			return null;
+		}
+		MoveGenerationEvent event = new MoveGenerationEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endMoveGeneration(Object e, BitboardBoard b, boolean legal, int moves)
+	{
+		MoveGenerationEvent event = (MoveGenerationEvent) e;
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.legal = legal;
+			event.moves = moves;
+			event.fingerprint = fingerprint(b);
+			event.commit();
+		}
+	}
+
+	/**
+	 * @return a square in algebraic form, e.g. "e2", for up to 26 columns
+	 */
+	static String name(Coordinate c)
+	{
+		int column = c.getColumn();
+		return column >= 1 && column <= 26 ? (char) ('a' + column - 1) + Integer.toString(c.getRow())
+				: "(" + c.getRow() + ", " + column + ")";
+	}
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The moves of a position generated by MoveGenerator.
+ *
+ * @version Apr 24, 2020
+ */
+@Name("gpv.MoveGeneration")
+@Label("Move Generation")
+@Category({ "GPV", "Validation" })
+@Description("The legal or pseudo-legal moves of a position generated")
+@Enabled(false)
+@StackTrace(false)
+final class MoveGenerationEvent extends Event
+{
+	@Label("Legal")
+	boolean legal;
+
+	@Label("Moves")
+	int moves;
+
+	@Label("Position Fingerprint")
+	long fingerprint;
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.jfr;
+
+import static gpv.util.Coordinate.makeCoordinate;
+import static gpv.util.SquareInitializer.makeSquareInitializer;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import gpv.chess.*;
+import gpv.metrics.ValidationEvents;
+import gpv.util.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.*;
+
+/**
+ * Tests for the Java Flight Recorder events.
+ * @version Apr 24, 2020
+ */
+class FlightRecorderEventsTests
+{
+	@TempDir
+	Path directory;
+
+	@BeforeEach
+	public void setupTest()
+	{
+		FlightRecorderEvents.install();
+	}
+
+	@AfterEach
+	public void teardownTest()
+	{
+		FlightRecorderEvents.uninstall();
+	}
+
+	/**
+	 * Set up a position, generate its moves and ask a few of them.
+	 *
+	 * @return the board
+	 */
+	private static BitboardBoard work()
+	{
+		BitboardBoard board = new BitboardBoard();
+		new Fen().read(Fen.START, board);
+		MoveGenerator.generateLegal(board, PlayerColor.WHITE, new int[MoveGenerator.MAX_MOVES]);
+		ChessPiece pawn = board.getPieceAt(Bitboards.square(2, 5));
+		pawn.canMove(makeCoordinate(2, 5), makeCoordinate(4, 5), board);
+		pawn.canMove(makeCoordinate(2, 5), makeCoordinate(5, 5), board);
+		return board;
+	}
+
+	/**
+	 * @return the gpv events recorded while working, by name
+	 */
+	private Map<String, List<RecordedEvent>> record(Recording recording) throws IOException
+	{
+		return record(recording, FlightRecorderEventsTests::work);
+	}
+
+	/**
+	 * @return the gpv events recorded while doing the work given, by name
+	 */
+	private Map<String, List<RecordedEvent>> record(Recording recording, Runnable work) throws IOException
+	{
+		recording.start();
+		work.run();
+		recording.stop();
+
+		Path file = directory.resolve("recording.jfr");
+		recording.dump(file);
+		recording.close();
+
+		Map<String, List<RecordedEvent>> events = new HashMap<>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(file))
+		{
+			String name = event.getEventType().getName();
+			if (name.startsWith("gpv."))
+			{
+				events.computeIfAbsent(name, k -> new ArrayList<>()).add(event);
+			}
+		}
+		return events;
+	}
+
+	@Test
+	void bundledSettingsTurnTheEventsOn() throws IOException
+	{
+		Recording recording = new Recording(FlightRecorderEvents.configuration());
+		recording.enable("gpv.CanMove").withThreshold(Duration.ZERO);
+		recording.enable("gpv.MoveGeneration").withThreshold(Duration.ZERO);
+		Map<String, List<RecordedEvent>> events = record(recording);
+		long start = work().getKey();
+
+		List<RecordedEvent> resets = events.get("gpv.BoardReset");
+		assertEquals(1, resets.size());
+		assertEquals(start, resets.get(0).getLong("fingerprint"));
+
+		List<RecordedEvent> generated = events.get("gpv.MoveGeneration");
+		assertEquals(1, generated.size());
+		assertTrue(generated.get(0).getBoolean("legal"));
+		assertEquals(20, generated.get(0).getInt("moves"));
+
+		List<RecordedEvent> asked = events.get("gpv.CanMove");
+		assertEquals(2, asked.size());
+		assertEquals("PAWN", asked.get(0).getString("piece"));
+		assertEquals("e2", asked.get(0).getString("from"));
+		assertEquals("e4", asked.get(0).getString("to"));
+		assertTrue(asked.get(0).getBoolean("valid"));
+		assertFalse(asked.get(1).getBoolean("valid"));
+		assertEquals(start, asked.get(1).getLong("fingerprint"));
+	}
+
+	@Test
+	void boardReset() throws IOException
+	{
+		BitboardBoard board = new BitboardBoard();
+		ChessPieceFactory factory = new ChessPieceFactory();
+		List<SquareInitializer> initializers = Arrays.asList(
+				makeSquareInitializer(factory.makePiece(ChessPieceDescriptor.WHITEKING), makeCoordinate(1, 5)),
+				makeSquareInitializer(factory.makePiece(ChessPieceDescriptor.BLACKKING), makeCoordinate(8, 5)));
+		Map<String, List<RecordedEvent>> events = record(new Recording(FlightRecorderEvents.configuration()),
+				() -> board.reset(initializers));
+
+		List<RecordedEvent> resets = events.get("gpv.BoardReset");
+		assertEquals(1, resets.size());
+		assertEquals(ValidationEvents.fingerprint(board), resets.get(0).getLong("fingerprint"));
+	}
+
+	@Test
+	void offByDefault() throws IOException
+	{
+		assertTrue(record(new Recording()).isEmpty());
+	}
+
+	@Test
+	void uninstalled() throws IOException
+	{
+		FlightRecorderEvents.uninstall();
+		assertNull(ValidationEvents.installed());
+		assertTrue(record(new Recording(FlightRecorderEvents.configuration())).isEmpty());
+	}
+
+	@Test
+	void squareNames()
+	{
+		assertEquals("a1", FlightRecorderEvents.name(makeCoordinate(1, 1)));
+		assertEquals("j12", FlightRecorderEvents.name(makeCoordinate(12, 10)));
+		assertEquals("(1, -1)", FlightRecorderEvents.name(makeCoordinate(1, -1)));
+	}
+}
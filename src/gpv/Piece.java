@@ -12,6 +12,7 @@
 
 package gpv;
 
+import java.util.BitSet;
 import gpv.util.*;
 
 /**
@@ -29,4 +30,36 @@ public interface Piece<D extends PieceDescriptor>
 	D getDescriptor();
 	
 	boolean canMove(Coordinate from, Coordinate to, Board b);
+	
+	/**
+	 * Judge many moves against one position. Each move is answered as canMove()
+	 * of the piece standing on its source square would answer it, so one call
+	 * can cover the moves of every piece on the board. Implementations can work
+	 * out what the moves have in common once instead of once per move.
+	 * 
+	 * @param b the board, which isn't changed
+	 * @param fromTo the moves as pairs of square numbers (see Board.squareOf()):
+	 *            move i goes from fromTo[2 * i] to fromTo[2 * i + 1]
+	 * @param out bit i is set if move i is valid and cleared if not
+	 */
+	default void canMoveAll(Board b, int[] fromTo, BitSet out)
+	{
+		int squares = b.nRows * b.nColumns;
+		
+		for (int i = 0; i < fromTo.length / 2; i++)
+		{
+			int from = fromTo[2 * i];
+			int to = fromTo[2 * i + 1];
+			boolean valid = false;
+			
+			if (from >= 0 && from < squares && to >= 0 && to < squares)
+			{
+				Coordinate f = b.coordinateOf(from);
+				Piece<?> p = b.getPieceAt(f);
+				valid = p != null && p.canMove(f, b.coordinateOf(to), b);
+			}
+			
+			out.set(i, valid);
+		}
+	}
 }
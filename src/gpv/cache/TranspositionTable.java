@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size hash table from 64-bit keys to a 64-bit data word and a 32-bit
+ * info word, safe to share between threads without locks.
+ * <br/>
+ * Every entry is three longs of one AtomicLongArray: a check word, the data
+ * and a meta word holding the info, a depth and an age. The check word is the
+ * key XORed with the other two. A reader that sees a half written entry,
+ * because another thread is storing into it at the same time, gets a check
+ * word that doesn't match the key and treats the entry as a miss. So an entry
+ * is either read whole or not at all.
+ * <br/>
+ * Entries come in buckets of two. A store goes into the entry already holding
+ * the key if there is one, else an empty entry, else it replaces the entry
+ * left over from an older age, or failing that the one with the lower depth.
+ * The depth is whatever the caller uses to say how costly the result was to
+ * get; nextAge() marks everything stored so far as older.
+ *
+ * @version Apr 19, 2020
+ */
+public final class TranspositionTable
+{
+	private static final int LONGS_PER_ENTRY = 3;
+	private static final int WAYS = 2;
+
+	/**
+	 * The most entries a table can have: the largest power of two whose
+	 * entries fit in one array.
+	 */
+	public static final int MAX_ENTRIES = 1 << 29;
+
+	// layout of the meta word
+	private static final long INFO_MASK = 0xFFFF_FFFFL;
+	private static final int DEPTH_SHIFT = 32;
+	private static final int AGE_SHIFT = 40;
+	private static final long USED = 1L << 48;
+	public static final int MAX_DEPTH = 0xFF;
+	private static final int AGE_MASK = 0xFF;
+
+	private final AtomicLongArray slots;
+	private final int bucketMask;
+	private volatile int age;
+
+	/**
+	 * @param entries the number of entries wanted; rounded up to a power of two
+	 * @throws IllegalArgumentException if that is more than MAX_ENTRIES
+	 */
+	public TranspositionTable(int entries)
+	{
+		int buckets = size(entries) / WAYS;
+		bucketMask = buckets - 1;
+		slots = new AtomicLongArray(buckets * WAYS * LONGS_PER_ENTRY);
+	}
+
+	/**
+	 * @param entries the number of entries wanted
+	 * @return the number a table has for it, a power of two of at least WAYS
+	 * @throws IllegalArgumentException if that is more than MAX_ENTRIES
+	 */
+	static int size(int entries)
+	{
+		if (entries > MAX_ENTRIES)
+		{
+			throw new IllegalArgumentException("At most " + MAX_ENTRIES + " entries: " + entries);
+		}
+		return Integer.highestOneBit(Math.max(entries, WAYS) - 1) << 1;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int capacity()
+	{
+		return (bucketMask + 1) * WAYS;
+	}
+
+	/**
+	 * Make every entry stored so far older than the ones stored from now on,
+	 * so that they are replaced first.
+	 */
+	public void nextAge()
+	{
+		age = (age + 1) & AGE_MASK;
+	}
+
+	/**
+	 * Empty the table. Not atomic with respect to concurrent stores.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < slots.length(); i++)
+		{
+			slots.set(i, 0L);
+		}
+	}
+
+	/**
+	 * Look a key up.
+	 *
+	 * @param key the key
+	 * @param entry where to put the data (entry[0]) and the info (entry[1])
+	 * @return true if the key was found
+	 */
+	public boolean probe(long key, long[] entry)
+	{
+		int base = bucket(key);
+
+		for (int way = 0; way < WAYS; way++, base += LONGS_PER_ENTRY)
+		{
+			long check = slots.get(base);
+			long data = slots.get(base + 1);
+			long meta = slots.get(base + 2);
+
+			if (meta != 0 && (check ^ data ^ meta) == key)
+			{
+				entry[0] = data;
+				entry[1] = meta & INFO_MASK;
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Store a result, possibly replacing another one.
+	 *
+	 * @param key the key
+	 * @param data the data
+	 * @param info the info
+	 * @param depth how costly the result was, 0 to MAX_DEPTH; larger is kept longer
+	 */
+	public void store(long key, long data, int info, int depth)
+	{
+		int currentAge = age;
+		int base = bucket(key);
+		int victim = -1;
+		int victimScore = Integer.MAX_VALUE;
+
+		for (int way = 0, slot = base; way < WAYS; way++, slot += LONGS_PER_ENTRY)
+		{
+			long meta = slots.get(slot + 2);
+
+			if (meta == 0 || (slots.get(slot) ^ slots.get(slot + 1) ^ meta) == key)
+			{
+				victim = slot;
+				break;
+			}
+
+			// stale entries go first, then shallow ones
+			int entryAge = (int) (meta >>> AGE_SHIFT) & AGE_MASK;
+			int score = (entryAge == currentAge ? MAX_DEPTH + 1 : 0)
+					+ ((int) (meta >>> DEPTH_SHIFT) & MAX_DEPTH);
+			if (score < victimScore)
+			{
+				victim = slot;
+				victimScore = score;
+			}
+		}
+
+		long meta = USED | ((long) currentAge << AGE_SHIFT)
+				| ((long) Math.min(Math.max(depth, 0), MAX_DEPTH) << DEPTH_SHIFT)
+				| (info & INFO_MASK);
+
+		slots.set(victim + 1, data);
+		slots.set(victim + 2, meta);
+		slots.set(victim, key ^ data ^ meta);
+	}
+
+	/**
+	 * @return the index of the first long of the key's bucket
+	 */
+	private int bucket(long key)
+	{
+		return ((int) (key ^ (key >>> 32)) & bucketMask) * WAYS * LONGS_PER_ENTRY;
+	}
+}
@@ -0,0 +1,468 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.Bitboards.*;
+import java.util.Arrays;
+import gpv.Piece;
+import gpv.util.*;
+
+/**
+ * The squares each color attacks on a BitboardBoard. A square is attacked by
+ * a color if one of its pieces could capture a piece there, so squares held
+ * by a color's own pieces count as attacked (defended) too.
+ * <br/>
+ * The map keeps the attack set of every piece and is told by the board about
+ * every piece put down or taken away. Only the piece on that square and the
+ * rooks, bishops and queens whose lines run through it need new attack sets,
+ * so an update costs a few table lookups. The attacks of a whole color are
+ * the union of its pieces' sets, formed again only when asked for after a
+ * change.
+ * <br/>
+ * The map also finds, once per position and color, the pieces pinned to
+ * their king and the check on it. getLegalMask() turns that into the squares
+ * a piece may move to without leaving its king attacked, so a legal move is a
+ * move canMove() accepts whose destination is in the mask.
+ * <br/>
+ * isAttacked() answers the same question on a plain Board of any size, for
+ * the square walking validators in ChessPiece.
+ *
+ * @version Apr 24, 2020
+ */
+public final class AttackMap
+{
+	private final BitboardBoard board;
+
+	// indexed by square, the attacks of the piece on it
+	private final long[] attacksFrom = new long[SQUARES];
+
+	// indexed by PlayerColor ordinal, valid while upToDate
+	private final long[] byColor = new long[PlayerColor.values().length];
+	private boolean upToDate = true;
+
+	// indexed by PlayerColor ordinal, valid while pinsUpToDate[ordinal]
+	private final long[] pinned = new long[PlayerColor.values().length];
+	private final long[] checkMask = new long[PlayerColor.values().length];
+	private final boolean[] pinsUpToDate = new boolean[PlayerColor.values().length];
+
+	// indexed by square, the squares a pinned piece on it can stay within
+	private final long[] pinRay = new long[SQUARES];
+
+	/**
+	 * @param board the board this is the map of
+	 */
+	AttackMap(BitboardBoard board)
+	{
+		this.board = board;
+	}
+
+	/**
+	 * @param sq the square
+	 * @param color the attacking color
+	 * @return true if a piece of that color attacks the square
+	 */
+	public boolean isSquareAttacked(int sq, PlayerColor color)
+	{
+		return (getAttacks(color) & (1L << sq)) != 0;
+	}
+
+	/**
+	 * @param c the coordinate, on the board
+	 * @param color the attacking color
+	 * @return true if a piece of that color attacks the square
+	 */
+	public boolean isSquareAttacked(Coordinate c, PlayerColor color)
+	{
+		return isSquareAttacked(square(c.getRow(), c.getColumn()), color);
+	}
+
+	/**
+	 * @param color a color
+	 * @return true if a king of that color is attacked by the other color
+	 */
+	public boolean isInCheck(PlayerColor color)
+	{
+		return (board.getPieces(color, PieceName.KING) & getAttacks(color.opponent())) != 0;
+	}
+
+	/**
+	 * @param color the attacking color
+	 * @return every square a piece of that color attacks
+	 */
+	public long getAttacks(PlayerColor color)
+	{
+		if (!upToDate)
+		{
+			for (PlayerColor c : PlayerColor.values())
+			{
+				long attacks = 0L;
+				long pieces = board.getPieces(c);
+				while (pieces != 0)
+				{
+					attacks |= attacksFrom[Long.numberOfTrailingZeros(pieces)];
+					pieces &= pieces - 1;
+				}
+				byColor[c.ordinal()] = attacks;
+			}
+			upToDate = true;
+		}
+
+		return byColor[color.ordinal()];
+	}
+
+	/**
+	 * @param sq an occupied square
+	 * @return the squares the piece on it attacks
+	 */
+	public long getAttacksFrom(int sq)
+	{
+		return attacksFrom[sq];
+	}
+
+	/**
+	 * @param color a color
+	 * @return the pieces of that color pinned to their king
+	 */
+	public long getPinned(PlayerColor color)
+	{
+		findPins(color);
+		return pinned[color.ordinal()];
+	}
+
+	/**
+	 * The squares the piece on sq can move to without leaving its king attacked,
+	 * as far as pins and check go: when it is pinned, the line between the king
+	 * and the pinning piece, including that piece; when its king is in check,
+	 * the checking piece and the squares between it and the king, or nothing
+	 * if two pieces give check. A king is not limited, since canMove() already
+	 * keeps it off attacked squares. Neither is a side without a king. En
+	 * passant captures, which take a piece off another square, aren't covered.
+	 * A side with more than one king is judged by the one on the lowest square,
+	 * as MoveGenerator.isLegal() does.
+	 *
+	 * @param sq an occupied square
+	 * @return the squares the piece can move to
+	 */
+	public long getLegalMask(int sq)
+	{
+		ChessPiece p = board.getPieceAt(sq);
+		if (p.getName() == PieceName.KING)
+		{
+			return ~0L;
+		}
+
+		int color = p.getColor().ordinal();
+		findPins(p.getColor());
+		return (pinned[color] & (1L << sq)) != 0 ? checkMask[color] & pinRay[sq] : checkMask[color];
+	}
+
+	/**
+	 * Work out the pinned pieces and the check mask of a color, unless they are
+	 * known for the position.
+	 */
+	private void findPins(PlayerColor color)
+	{
+		int c = color.ordinal();
+		if (pinsUpToDate[c])
+		{
+			return;
+		}
+
+		pinned[c] = 0L;
+		checkMask[c] = ~0L;
+		pinsUpToDate[c] = true;
+
+		long kings = board.getPieces(color, PieceName.KING);
+		if (kings == 0)
+		{
+			return;
+		}
+
+		int king = Long.numberOfTrailingZeros(kings);
+		PlayerColor enemy = color.opponent();
+		long occupied = board.getOccupied();
+		long own = board.getPieces(color);
+		long queens = board.getPieces(enemy, PieceName.QUEEN);
+		long checkers = (KNIGHT_ATTACKS[king] & board.getPieces(enemy, PieceName.KNIGHT))
+				| (PAWN_ATTACKS[c][king] & board.getPieces(enemy, PieceName.PAWN))
+				| (KING_ATTACKS[king] & board.getPieces(enemy, PieceName.KING));
+
+		// every enemy slider lined up with the king either checks it, pins the
+		// one piece of ours in between, or is blocked
+		long snipers = (ROOK_RAYS[king] & (board.getPieces(enemy, PieceName.ROOK) | queens))
+				| (BISHOP_RAYS[king] & (board.getPieces(enemy, PieceName.BISHOP) | queens));
+		while (snipers != 0)
+		{
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long blockers = between(king, sniper) & occupied;
+
+			if (blockers == 0)
+			{
+				checkers |= 1L << sniper;
+			}
+			else if ((blockers & (blockers - 1)) == 0 && (blockers & own) != 0)
+			{
+				pinned[c] |= blockers;
+				pinRay[Long.numberOfTrailingZeros(blockers)] = between(king, sniper) | (1L << sniper);
+			}
+		}
+
+		if (checkers != 0)
+		{
+			int checker = Long.numberOfTrailingZeros(checkers);
+			checkMask[c] = (checkers & (checkers - 1)) != 0 ? 0L
+					: between(king, checker) | (1L << checker);
+		}
+	}
+
+	/**
+	 * Whether a king moving from one square to another would be attacked there.
+	 * Besides the squares the other color attacks now, that includes squares
+	 * further along the line of a rook, bishop or queen checking the king,
+	 * which the king itself shadows until it moves.
+	 *
+	 * @param from the king's square
+	 * @param to the square it moves to
+	 * @param enemy the other color
+	 * @return true if the king would be attacked on to
+	 */
+	boolean isAttackedAfterKingMove(int from, int to, PlayerColor enemy)
+	{
+		if (isSquareAttacked(to, enemy))
+		{
+			return true;
+		}
+
+		long occupied = board.getOccupied();
+		long queens = board.getPieces(enemy, PieceName.QUEEN);
+		long checkers = (rookAttacks(from, occupied) & (board.getPieces(enemy, PieceName.ROOK) | queens))
+				| (bishopAttacks(from, occupied) & (board.getPieces(enemy, PieceName.BISHOP) | queens));
+
+		while (checkers != 0)
+		{
+			int checker = Long.numberOfTrailingZeros(checkers);
+			checkers &= checkers - 1;
+			if (to != checker && (line(checker, from) & (1L << to)) != 0)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Called by the board after a piece has been put on a square.
+	 */
+	void pieceAdded(ChessPiece p, int sq)
+	{
+		long occupied = board.getOccupied();
+		attacksFrom[sq] = attacks(p.getName(), p.getColor(), sq, occupied);
+		updateSlidersThrough(sq, occupied);
+		changed();
+	}
+
+	/**
+	 * Called by the board after a piece has been taken off a square.
+	 */
+	void pieceRemoved(int sq)
+	{
+		attacksFrom[sq] = 0L;
+		updateSlidersThrough(sq, board.getOccupied());
+		changed();
+	}
+
+	/**
+	 * Called by the board when it is cleared.
+	 */
+	void clear()
+	{
+		Arrays.fill(attacksFrom, 0L);
+		changed();
+	}
+
+	/**
+	 * Forget everything worked out for the whole position.
+	 */
+	private void changed()
+	{
+		upToDate = false;
+		Arrays.fill(pinsUpToDate, false);
+	}
+
+	/**
+	 * Recompute the attacks of every rook, bishop and queen that reaches sq.
+	 */
+	private void updateSlidersThrough(int sq, long occupied)
+	{
+		long queens = board.getPieces(ChessPieceDescriptor.WHITEQUEEN)
+				| board.getPieces(ChessPieceDescriptor.BLACKQUEEN);
+		long rooks = board.getPieces(ChessPieceDescriptor.WHITEROOK)
+				| board.getPieces(ChessPieceDescriptor.BLACKROOK) | queens;
+		long bishops = board.getPieces(ChessPieceDescriptor.WHITEBISHOP)
+				| board.getPieces(ChessPieceDescriptor.BLACKBISHOP) | queens;
+		long sliders = (rookAttacks(sq, occupied) & rooks) | (bishopAttacks(sq, occupied) & bishops);
+
+		while (sliders != 0)
+		{
+			int s = Long.numberOfTrailingZeros(sliders);
+			sliders &= sliders - 1;
+			ChessPiece p = board.getPieceAt(s);
+			attacksFrom[s] = attacks(p.getName(), p.getColor(), s, occupied);
+		}
+	}
+
+	/**
+	 * @return the squares a piece of the given kind on sq attacks
+	 */
+	static long attacks(PieceName name, PlayerColor color, int sq, long occupied)
+	{
+		switch (name)
+		{
+			case PAWN:
+				return PAWN_ATTACKS[color.ordinal()][sq];
+			case KNIGHT:
+				return KNIGHT_ATTACKS[sq];
+			case KING:
+				return KING_ATTACKS[sq];
+			case BISHOP:
+				return bishopAttacks(sq, occupied);
+			case ROOK:
+				return rookAttacks(sq, occupied);
+			default:
+				return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+		}
+	}
+
+	/**
+	 * Determine whether a color attacks a square of a plain Board of any size.
+	 * Rather than looking at every piece, this looks out from the square: at
+	 * the two squares a pawn would attack it from, the squares a knight would,
+	 * and along the eight lines to the first piece on each, using the
+	 * BoardGeometry of the board's size.
+	 *
+	 * @param b the board
+	 * @param target the square, on the board
+	 * @param by the attacking color
+	 * @param vacated a square to treat as empty, such as the one a piece is
+	 *            leaving, or null; whatever is on it neither attacks nor blocks
+	 * @param occupied a square to treat as holding a piece of the other color,
+	 *            such as the one a piece is moving to, or null; it blocks, and
+	 *            whatever is on it doesn't attack
+	 * @return true if a piece of that color attacks target
+	 */
+	static boolean isAttacked(Board b, Coordinate target, PlayerColor by, Coordinate vacated,
+			Coordinate occupied)
+	{
+		BoardGeometry g = BoardGeometry.of(b);
+		int row = target.getRow();
+		int column = target.getColumn();
+		if (!g.inside(row, column))
+		{
+			return false;
+		}
+
+		// pawns attack from the row behind them
+		int pawnRow = row - (by == PlayerColor.WHITE ? 1 : -1);
+		if (isPiece(b, g, pawnRow, column - 1, by, PieceName.PAWN, vacated, occupied)
+				|| isPiece(b, g, pawnRow, column + 1, by, PieceName.PAWN, vacated, occupied))
+		{
+			return true;
+		}
+
+		int sq = g.square(row, column);
+		for (int knight : g.knightTargets(sq))
+		{
+			if (isPiece(b, g, knight / g.columns + 1, knight % g.columns + 1, by, PieceName.KNIGHT,
+					vacated, occupied))
+			{
+				return true;
+			}
+		}
+
+		for (int dir = 0; dir < BoardGeometry.DIRECTIONS; dir++)
+		{
+			int r = row;
+			int c = column;
+			for (int distance = 1; distance <= g.rayLength(sq, dir); distance++)
+			{
+				r += BoardGeometry.ROW_STEP[dir];
+				c += BoardGeometry.COLUMN_STEP[dir];
+				Piece<?> p = b.getPieceAt(r, c);
+				if (isSquare(occupied, r, c))
+				{
+					break;
+				}
+				if (p == null || isSquare(vacated, r, c))
+				{
+					continue;
+				}
+				if (p instanceof ChessPiece && ((ChessPiece) p).getColor() == by
+						&& reaches(((ChessPiece) p).getName(), dir, distance))
+				{
+					return true;
+				}
+				break;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return true if the square is on the board, is neither vacated nor
+	 *         occupied, and holds that piece
+	 */
+	private static boolean isPiece(Board b, BoardGeometry g, int row, int column,
+			PlayerColor color, PieceName name, Coordinate vacated, Coordinate occupied)
+	{
+		if (!g.inside(row, column) || isSquare(vacated, row, column) || isSquare(occupied, row, column))
+		{
+			return false;
+		}
+
+		Piece<?> p = b.getPieceAt(row, column);
+		return p instanceof ChessPiece && ((ChessPiece) p).getColor() == color
+				&& ((ChessPiece) p).getName() == name;
+	}
+
+	/**
+	 * @return true if c is the square at row and column; false if c is null
+	 */
+	private static boolean isSquare(Coordinate c, int row, int column)
+	{
+		return c != null && c.getRow() == row && c.getColumn() == column;
+	}
+
+	/**
+	 * @return true if a piece of the given kind attacks along a line in
+	 *         direction dir, the given distance away, with nothing in between
+	 */
+	private static boolean reaches(PieceName name, int dir, int distance)
+	{
+		switch (name)
+		{
+			case KING:
+				return distance == 1;
+			case QUEEN:
+				return true;
+			case ROOK:
+				return BoardGeometry.isStraight(dir);
+			case BISHOP:
+				return !BoardGeometry.isStraight(dir);
+			default:
+				return false;
+		}
+	}
+}
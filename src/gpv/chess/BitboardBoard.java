@@ -0,0 +1,546 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.Bitboards.*;
+import static gpv.util.Coordinate.makeCoordinate;
+import java.util.Arrays;
+import java.util.List;
+import gpv.Piece;
+import gpv.metrics.ValidationEvents;
+import gpv.util.*;
+
+/**
+ * An 8x8 chess board that keeps an occupancy mask for every kind of chess
+ * piece alongside the squares, so that ChessPiece can answer canMove() with
+ * mask arithmetic instead of walking squares. Every board mutation goes
+ * through putPieceAt() or clear(), which keep the masks in step with the
+ * squares.
+ * <br/>
+ * The board also remembers the en passant square, the square a pawn skipped
+ * over with a double push on the previous move, and the side to move, since
+ * those can't be worked out from the pieces alone.
+ * <br/>
+ * makeMove() plays a packed Move in place and unmakeMove() takes it back. The
+ * undo stack is a few preallocated arrays: an int per move packing the move,
+ * the previous en passant square and the hasMoved flag the moving piece had,
+ * plus slots for the captured piece and the pawn a promotion replaced. So
+ * searching in place allocates nothing, apart from the new piece on a
+ * promotion.
+ * <br/>
+ * getKey() returns a 64-bit Zobrist key of the position. The piece, side to
+ * move and en passant parts are updated as the board changes, so the key
+ * costs nothing to read. Castling rights come from the hasMoved flags of the
+ * kings and rooks, which can change without the board knowing. They are
+ * looked up on the six home squares when the key is asked for.
+ * <br/>
+ * The board also keeps an AttackMap of the squares each color attacks, told
+ * about every piece the masks gain or lose.
+ *
+ * @version Apr 24, 2020
+ */
+public class BitboardBoard extends Board
+{
+	// indexed by ChessPieceDescriptor ordinal
+	private final long[] pieces = new long[ChessPieceDescriptor.values().length];
+
+	// indexed by PlayerColor ordinal
+	private final long[] colors = new long[PlayerColor.values().length];
+
+	private long occupied;
+
+	/**
+	 * Used for square numbers when there is no such square.
+	 */
+	public static final int NO_SQUARE = -1;
+
+	private int enPassantSquare = NO_SQUARE;
+	private PlayerColor sideToMove = PlayerColor.WHITE;
+
+	// Zobrist key of everything except the castling rights
+	private long key;
+
+	private MoveCache moveCache;
+
+	private final AttackMap attackMap = new AttackMap(this);
+
+	// the undo stack, see makeMove()
+	private static final int INITIAL_UNDO_DEPTH = 64;
+	private static final int UNDO_EN_PASSANT_SHIFT = 16;
+	private static final int UNDO_HAD_MOVED = 1 << 23;
+	private int[] undo = new int[INITIAL_UNDO_DEPTH];
+	private ChessPiece[] captured = new ChessPiece[INITIAL_UNDO_DEPTH];
+	private ChessPiece[] promoted = new ChessPiece[INITIAL_UNDO_DEPTH];
+	private int undoCount;
+
+	/**
+	 * Constructor for an empty 8x8 board.
+	 */
+	public BitboardBoard()
+	{
+		super(SIZE, SIZE);
+	}
+
+	/**
+	 * Constructor that also initializes the board.
+	 * @param initializers
+	 */
+	public BitboardBoard(List<SquareInitializer> initializers)
+	{
+		this();
+		reset(initializers);
+	}
+
+	/**
+	 * Clear the board and set it up again, recording a board reset when
+	 * ValidationEvents are installed, as Fen.read() and PositionCodec.decode()
+	 * do. A plain Board doesn't know about the events.
+	 * @see gpv.util.Board#reset(java.util.List)
+	 */
+	@Override
+	public void reset(List<SquareInitializer> initializers)
+	{
+		ValidationEvents events = ValidationEvents.installed();
+		Object event = events == null ? null : events.beginBoardReset();
+		super.reset(initializers);
+		if (event != null)
+		{
+			events.endBoardReset(event, this);
+		}
+	}
+
+	/*
+	 * @see gpv.util.Board#putPieceAt(gpv.Piece, gpv.util.Coordinate)
+	 */
+	@Override
+	public Piece putPieceAt(Piece p, Coordinate c)
+	{
+		if (p != null && !(p instanceof ChessPiece))
+		{
+			throw new IllegalArgumentException("A BitboardBoard only holds ChessPieces");
+		}
+
+		Piece previous = super.putPieceAt(p, c);
+
+		if (inside(c.getRow(), c.getColumn()))
+		{
+			int sq = square(c.getRow(), c.getColumn());
+
+			if (previous != null)
+			{
+				removeFromMasks((ChessPiece) previous, sq);
+			}
+
+			if (p != null)
+			{
+				addToMasks((ChessPiece) p, sq);
+			}
+		}
+
+		return previous;
+	}
+
+	/*
+	 * @see gpv.util.Board#clear()
+	 */
+	@Override
+	public void clear()
+	{
+		super.clear();
+		Arrays.fill(pieces, 0L);
+		Arrays.fill(colors, 0L);
+		occupied = 0L;
+		enPassantSquare = NO_SQUARE;
+		sideToMove = PlayerColor.WHITE;
+		key = 0L;
+		attackMap.clear();
+		Arrays.fill(captured, 0, undoCount, null);
+		Arrays.fill(promoted, 0, undoCount, null);
+		undoCount = 0;
+	}
+
+	/**
+	 * The board is always 8x8.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void setnRows(int nRows)
+	{
+		throw new UnsupportedOperationException("A BitboardBoard is always 8x8");
+	}
+
+	/**
+	 * Make a board with copies of every piece, so that moving pieces on the
+	 * copy (and setting their hasMoved flags) leaves this board alone. The
+	 * copy starts with no moves to take back.
+	 *
+	 * @return the copy
+	 */
+	public BitboardBoard copy()
+	{
+		BitboardBoard b = new BitboardBoard();
+		long rest = occupied;
+
+		while (rest != 0)
+		{
+			int sq = Long.numberOfTrailingZeros(rest);
+			rest &= rest - 1;
+			b.putPieceAt(getPieceAt(sq).copy(), makeCoordinate(row(sq), column(sq)));
+		}
+
+		b.setEnPassantSquare(enPassantSquare);
+		b.setSideToMove(sideToMove);
+		b.moveCache = moveCache;
+		return b;
+	}
+
+	/**
+	 * @param p the piece
+	 * @param sq the square it was on
+	 */
+	private void removeFromMasks(ChessPiece p, int sq)
+	{
+		long mask = ~(1L << sq);
+		pieces[p.getDescriptor().ordinal()] &= mask;
+		colors[p.getColor().ordinal()] &= mask;
+		occupied &= mask;
+		key ^= Zobrist.piece(p.getDescriptor(), sq);
+		attackMap.pieceRemoved(sq);
+	}
+
+	/**
+	 * @param p the piece
+	 * @param sq the square it is now on
+	 */
+	private void addToMasks(ChessPiece p, int sq)
+	{
+		long mask = 1L << sq;
+		pieces[p.getDescriptor().ordinal()] |= mask;
+		colors[p.getColor().ordinal()] |= mask;
+		occupied |= mask;
+		key ^= Zobrist.piece(p.getDescriptor(), sq);
+		attackMap.pieceAdded(p, sq);
+	}
+
+	/**
+	 * @param d the kind of piece
+	 * @return the squares holding that kind of piece
+	 */
+	public long getPieces(ChessPieceDescriptor d)
+	{
+		return pieces[d.ordinal()];
+	}
+
+	/**
+	 * @param color the color
+	 * @return the squares holding pieces of that color
+	 */
+	public long getPieces(PlayerColor color)
+	{
+		return colors[color.ordinal()];
+	}
+
+	/**
+	 * @param color the color
+	 * @param name the kind of piece
+	 * @return the squares holding that piece
+	 */
+	public long getPieces(PlayerColor color, PieceName name)
+	{
+		return pieces[ChessPieceDescriptor.of(color, name).ordinal()];
+	}
+
+	/**
+	 * @return every occupied square
+	 */
+	public long getOccupied()
+	{
+		return occupied;
+	}
+
+	/**
+	 * @param sq the square number
+	 * @return the piece on the square or null if none
+	 */
+	public ChessPiece getPieceAt(int sq)
+	{
+		return (ChessPiece) getPieceAt(row(sq), column(sq));
+	}
+
+	/**
+	 * @return the square a pawn can capture onto en passant, or NO_SQUARE
+	 */
+	public int getEnPassantSquare()
+	{
+		return enPassantSquare;
+	}
+
+	/**
+	 * @param sq the square a pawn just skipped over with a double push, or NO_SQUARE
+	 */
+	public void setEnPassantSquare(int sq)
+	{
+		key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.enPassant(sq);
+		enPassantSquare = sq;
+	}
+
+	/**
+	 * @return the side to move
+	 */
+	public PlayerColor getSideToMove()
+	{
+		return sideToMove;
+	}
+
+	/**
+	 * @param side the side to move
+	 */
+	public void setSideToMove(PlayerColor side)
+	{
+		if (side != sideToMove)
+		{
+			key ^= Zobrist.BLACK_TO_MOVE;
+			sideToMove = side;
+		}
+	}
+
+	/**
+	 * A castling right is there while the king and the rook on its home square
+	 * both still have hasMoved false.
+	 *
+	 * @return the castling rights as a combination of the Zobrist right bits
+	 */
+	int getCastlingRights()
+	{
+		int rights = 0;
+
+		if (unmoved(PlayerColor.WHITE, PieceName.KING, square(1, 5)))
+		{
+			rights |= unmoved(PlayerColor.WHITE, PieceName.ROOK, square(1, SIZE)) ? Zobrist.WHITE_KING_SIDE : 0;
+			rights |= unmoved(PlayerColor.WHITE, PieceName.ROOK, square(1, 1)) ? Zobrist.WHITE_QUEEN_SIDE : 0;
+		}
+
+		if (unmoved(PlayerColor.BLACK, PieceName.KING, square(SIZE, 5)))
+		{
+			rights |= unmoved(PlayerColor.BLACK, PieceName.ROOK, square(SIZE, SIZE)) ? Zobrist.BLACK_KING_SIDE : 0;
+			rights |= unmoved(PlayerColor.BLACK, PieceName.ROOK, square(SIZE, 1)) ? Zobrist.BLACK_QUEEN_SIDE : 0;
+		}
+
+		return rights;
+	}
+
+	/**
+	 * @return true if the square holds that piece and it hasn't moved
+	 */
+	private boolean unmoved(PlayerColor color, PieceName name, int sq)
+	{
+		return (getPieces(color, name) & (1L << sq)) != 0 && !getPieceAt(sq).hasMoved();
+	}
+
+	/**
+	 * Play a move in place. The moving piece is marked as moved, castling also
+	 * moves the rook, en passant removes the pawn that was passed, a promotion
+	 * replaces the pawn with a new piece, the en passant square is set after a
+	 * double push and cleared otherwise, and the other side is to move.
+	 *
+	 * @param move a pseudo-legal packed Move for the side to move
+	 */
+	public void makeMove(int move)
+	{
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int flag = Move.flag(move);
+		ChessPiece piece = getPieceAt(from);
+
+		if (undoCount == undo.length)
+		{
+			growUndo();
+		}
+
+		int record = (move & 0xFFFF) | ((enPassantSquare & 0x7F) << UNDO_EN_PASSANT_SHIFT)
+				| (piece.hasMoved() ? UNDO_HAD_MOVED : 0);
+		ChessPiece taken = null;
+
+		putPieceAt(null, coordinate(from));
+
+		if (flag == Move.EN_PASSANT)
+		{
+			taken = (ChessPiece) putPieceAt(null, coordinate(enPassantVictim(piece, to)));
+		}
+		else if (flag == Move.KING_CASTLE || flag == Move.QUEEN_CASTLE)
+		{
+			int rookFrom = castlingRookFrom(from, flag);
+			ChessPiece rook = (ChessPiece) putPieceAt(null, coordinate(rookFrom));
+			rook.setHasMoved();
+			putPieceAt(rook, coordinate(castlingRookTo(to, flag)));
+		}
+
+		if (Move.isPromotion(move))
+		{
+			promoted[undoCount] = piece;
+			piece = new ChessPiece(ChessPieceDescriptor.of(piece.getColor(), Move.promotion(move)));
+		}
+
+		piece.setHasMoved();
+		Piece previous = putPieceAt(piece, coordinate(to));
+		if (taken == null)
+		{
+			taken = (ChessPiece) previous;
+		}
+
+		undo[undoCount] = record;
+		captured[undoCount++] = taken;
+		setEnPassantSquare(flag == Move.DOUBLE_PAWN_PUSH ? (from + to) >>> 1 : NO_SQUARE);
+		setSideToMove(sideToMove.opponent());
+	}
+
+	/**
+	 * Take back the last move played with makeMove(), restoring the captured
+	 * piece, the hasMoved flags, the castling rook, the en passant square, the
+	 * side to move and so the key.
+	 *
+	 * @throws IllegalStateException if there is no move to take back
+	 */
+	public void unmakeMove()
+	{
+		if (undoCount == 0)
+		{
+			throw new IllegalStateException("No move to take back");
+		}
+
+		int record = undo[--undoCount];
+		ChessPiece taken = captured[undoCount];
+		ChessPiece pawn = promoted[undoCount];
+		captured[undoCount] = null;
+		promoted[undoCount] = null;
+
+		int from = Move.from(record);
+		int to = Move.to(record);
+		int flag = Move.flag(record);
+		int previousEnPassant = (record >>> UNDO_EN_PASSANT_SHIFT) & 0x7F;
+		ChessPiece piece = (ChessPiece) putPieceAt(null, coordinate(to));
+
+		if (pawn != null)
+		{
+			piece = pawn;
+		}
+		if ((record & UNDO_HAD_MOVED) == 0)
+		{
+			piece.clearHasMoved();
+		}
+		putPieceAt(piece, coordinate(from));
+
+		if (flag == Move.EN_PASSANT)
+		{
+			putPieceAt(taken, coordinate(enPassantVictim(piece, to)));
+		}
+		else if (taken != null)
+		{
+			putPieceAt(taken, coordinate(to));
+		}
+		else if (flag == Move.KING_CASTLE || flag == Move.QUEEN_CASTLE)
+		{
+			// castling needs an unmoved rook, so it goes back unmoved
+			ChessPiece rook = (ChessPiece) putPieceAt(null, coordinate(castlingRookTo(to, flag)));
+			rook.clearHasMoved();
+			putPieceAt(rook, coordinate(castlingRookFrom(from, flag)));
+		}
+
+		setEnPassantSquare(previousEnPassant == 0x7F ? NO_SQUARE : previousEnPassant);
+		setSideToMove(piece.getColor());
+	}
+
+	/**
+	 * @return the number of moves makeMove() has played that can be taken back
+	 */
+	public int getUndoDepth()
+	{
+		return undoCount;
+	}
+
+	/**
+	 * Double the undo stack.
+	 */
+	private void growUndo()
+	{
+		undo = Arrays.copyOf(undo, undo.length * 2);
+		captured = Arrays.copyOf(captured, captured.length * 2);
+		promoted = Arrays.copyOf(promoted, promoted.length * 2);
+	}
+
+	/**
+	 * @return the square of the pawn an en passant capture onto to takes
+	 */
+	private static int enPassantVictim(ChessPiece pawn, int to)
+	{
+		return to - (pawn.getColor() == PlayerColor.WHITE ? SIZE : -SIZE);
+	}
+
+	/**
+	 * @return the rook's square before castling
+	 */
+	private static int castlingRookFrom(int kingFrom, int flag)
+	{
+		return square(row(kingFrom), flag == Move.KING_CASTLE ? SIZE : 1);
+	}
+
+	/**
+	 * @return the rook's square after castling, next to the king on the inside
+	 */
+	private static int castlingRookTo(int kingTo, int flag)
+	{
+		return flag == Move.KING_CASTLE ? kingTo - 1 : kingTo + 1;
+	}
+
+	/**
+	 * @return the coordinate of a square
+	 */
+	private static Coordinate coordinate(int sq)
+	{
+		return makeCoordinate(row(sq), column(sq));
+	}
+
+	/**
+	 * @return the cache canMove() consults, or null if none
+	 */
+	public MoveCache getMoveCache()
+	{
+		return moveCache;
+	}
+
+	/**
+	 * @param moveCache a cache for canMove() to consult, or null for none; copies
+	 *            of this board share it
+	 */
+	public void setMoveCache(MoveCache moveCache)
+	{
+		this.moveCache = moveCache;
+	}
+
+	/**
+	 * @return the squares each color attacks, kept up to date as the board changes
+	 */
+	public AttackMap getAttackMap()
+	{
+		return attackMap;
+	}
+
+	/**
+	 * @return the Zobrist key of the position
+	 */
+	public long getKey()
+	{
+		return key ^ Zobrist.castling(getCastlingRights());
+	}
+}
@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.Bitboards.*;
+import java.util.BitSet;
+
+/**
+ * The movement rules of ChessPiece answered with mask arithmetic against a
+ * BitboardBoard. The answers are the same as the square walking validators in
+ * ChessPiece; this is only a faster way of getting them on an 8x8 board.
+ *
+ * @version Apr 10, 2020
+ */
+final class BitboardValidator
+{
+	// each thread's targets by source square for canMoveAll(); only the squares
+	// a batch has worked out are read, so they are never cleared
+	private static final ThreadLocal<long[]> TARGETS = ThreadLocal.withInitial(() -> new long[SQUARES]);
+
+	/**
+	 * Static helpers only.
+	 */
+	private BitboardValidator()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * Determine if the piece on from can move to to. The caller has already
+	 * verified that both squares are on the board, that they are different and
+	 * that from is occupied.
+	 *
+	 * @param piece
+	 *            the piece the move was asked of, whose hasMoved flag is used
+	 * @param from
+	 *            the source square number
+	 * @param to
+	 *            the destination square number
+	 * @param b
+	 *            the board
+	 * @return true if the move is valid
+	 */
+	static boolean canMove(ChessPiece piece, int from, int to, BitboardBoard b)
+	{
+		MoveCache cache = b.getMoveCache();
+
+		if (cache != null)
+		{
+			return (cache.getTargets(piece, from, b) & (1L << to)) != 0;
+		}
+
+		return check(piece, from, to, b);
+	}
+
+	/**
+	 * Answer a batch of moves, see Piece.canMoveAll(). The targets of each
+	 * source square are worked out once, from the MoveCache if the board has
+	 * one, and shared by every move from that square. Nothing is allocated.
+	 *
+	 * @param b
+	 *            the board
+	 * @param fromTo
+	 *            pairs of square numbers
+	 * @param out
+	 *            one bit per move
+	 */
+	static void canMoveAll(BitboardBoard b, int[] fromTo, BitSet out)
+	{
+		MoveCache cache = b.getMoveCache();
+		long[] targets = TARGETS.get();
+		long known = 0L;
+
+		for (int i = 0; i < fromTo.length / 2; i++)
+		{
+			int from = fromTo[2 * i];
+			int to = fromTo[2 * i + 1];
+
+			if (from < 0 || from >= SQUARES || to < 0 || to >= SQUARES 
+					|| (b.getOccupied() & (1L << from)) == 0)
+			{
+				out.clear(i);
+				continue;
+			}
+
+			if ((known & (1L << from)) == 0)
+			{
+				ChessPiece piece = b.getPieceAt(from);
+				targets[from] = cache != null ? cache.getTargets(piece, from, b) : targets(piece, from, b);
+				known |= 1L << from;
+			}
+
+			out.set(i, (targets[from] & (1L << to)) != 0);
+		}
+	}
+
+	/**
+	 * Determine if a move canMove() accepts also leaves the mover's king safe.
+	 * That is one test against the legal mask of the attack map, except for an
+	 * en passant capture, which is played out on the masks instead.
+	 *
+	 * @param from
+	 *            the occupied source square
+	 * @param to
+	 *            a destination canMove() accepts
+	 * @param b
+	 *            the board
+	 * @return true if the move doesn't leave the mover's king attacked
+	 */
+	static boolean isLegal(int from, int to, BitboardBoard b)
+	{
+		ChessPiece moving = b.getPieceAt(from);
+
+		if (moving.getName() == PieceName.PAWN && to == b.getEnPassantSquare() 
+				&& column(to) != column(from))
+		{
+			return MoveGenerator.isLegal(b, moving.getColor(), Move.make(from, to, Move.EN_PASSANT));
+		}
+
+		return (b.getAttackMap().getLegalMask(from) & (1L << to)) != 0;
+	}
+
+	/**
+	 * Every square the piece on from can move to.
+	 *
+	 * @param piece
+	 *            the piece the move was asked of, whose hasMoved flag is used
+	 * @param from
+	 *            the occupied source square
+	 * @param b
+	 *            the board
+	 * @return the squares canMove() accepts
+	 */
+	static long targets(ChessPiece piece, int from, BitboardBoard b)
+	{
+		ChessPieceDescriptor moving = b.getPieceAt(from).getDescriptor();
+		long candidates;
+
+		// a superset of the answer for each kind of piece, narrowed down by check()
+		switch (moving.getName()) {
+			case KING:
+				candidates = KING_ATTACKS[from] | RAYS[EAST][from] | RAYS[WEST][from];
+				break;
+			case KNIGHT:
+				candidates = KNIGHT_ATTACKS[from];
+				break;
+			case PAWN:
+				candidates = PAWN_ATTACKS[moving.getColor().ordinal()][from]
+						| RAYS[moving.getColor() == PlayerColor.WHITE ? NORTH : SOUTH][from];
+				break;
+			case ROOK:
+				candidates = rookAttacks(from, b.getOccupied());
+				break;
+			case BISHOP:
+				candidates = bishopAttacks(from, b.getOccupied());
+				break;
+			default:
+				candidates = rookAttacks(from, b.getOccupied()) | bishopAttacks(from, b.getOccupied());
+				break;
+		}
+
+		long targets = 0L;
+		while (candidates != 0)
+		{
+			int to = Long.numberOfTrailingZeros(candidates);
+			candidates &= candidates - 1;
+			if (check(piece, from, to, b))
+			{
+				targets |= 1L << to;
+			}
+		}
+
+		return targets;
+	}
+
+	/**
+	 * The uncached rules behind canMove().
+	 */
+	private static boolean check(ChessPiece piece, int from, int to, BitboardBoard b)
+	{
+		ChessPieceDescriptor moving = b.getPieceAt(from).getDescriptor();
+		PlayerColor color = moving.getColor();
+		long occupied = b.getOccupied();
+		long notOwn = ~b.getPieces(color);
+		long target = 1L << to;
+
+		switch (moving.getName()) {
+			case KING:
+				return canKingMove(piece, from, to, b, notOwn);
+
+			case QUEEN:
+				return line(from, to) != 0 && canSlide(from, to, occupied, notOwn);
+
+			case BISHOP:
+				return (BISHOP_RAYS[from] & target) != 0 && canSlide(from, to, occupied, notOwn);
+
+			case KNIGHT:
+				return (KNIGHT_ATTACKS[from] & notOwn & target) != 0;
+
+			case ROOK:
+				return (ROOK_RAYS[from] & target) != 0 && canSlide(from, to, occupied, notOwn);
+
+			case PAWN:
+				return canPawnMove(piece, from, to, b, color);
+
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * A slider that is already known to be aligned with its destination can move
+	 * there if nothing is in between and the destination isn't held by its own color.
+	 */
+	private static boolean canSlide(int from, int to, long occupied, long notOwn)
+	{
+		return (between(from, to) & occupied) == 0 && (notOwn & (1L << to)) != 0;
+	}
+
+	/**
+	 * The king moves one square in any direction onto a square the other color
+	 * doesn't attack, or castles by moving two squares along its row towards an
+	 * unmoved rook with nothing in between.
+	 */
+	private static boolean canKingMove(ChessPiece piece, int from, int to,
+			BitboardBoard b, long notOwn)
+	{
+		int rowDistance = Math.abs(row(to) - row(from));
+		int columnDistance = Math.abs(column(to) - column(from));
+
+		if (rowDistance == 0 && columnDistance == 2)
+		{
+			return !piece.hasMoved() && canCastle(from, to, b);
+		}
+
+		return (KING_ATTACKS[from] & notOwn & (1L << to)) != 0
+				&& !b.getAttackMap().isAttackedAfterKingMove(from, to,
+						b.getPieceAt(from).getColor().opponent());
+	}
+
+	/**
+	 * Same rules as ChessPiece.checkValidCastling().
+	 */
+	private static boolean canCastle(int from, int to, BitboardBoard b)
+	{
+		PlayerColor color = b.getPieceAt(from).getColor();
+		int rookSquare = to > from ? square(row(from), SIZE) : square(row(from), 1);
+		ChessPieceDescriptor rook = color == PlayerColor.WHITE
+				? ChessPieceDescriptor.WHITEROOK : ChessPieceDescriptor.BLACKROOK;
+
+		if ((b.getPieces(rook) & (1L << rookSquare)) == 0
+				|| b.getPieceAt(rookSquare).hasMoved())
+		{
+			return false;
+		}
+
+		// the squares strictly between the king and the rook must be empty, and
+		// the king can't land on the rook
+		if (((between(from, rookSquare) | (1L << to)) & b.getOccupied()) != 0)
+		{
+			return false;
+		}
+
+		// and the king can't castle out of, through or into check
+		AttackMap attacks = b.getAttackMap();
+		PlayerColor enemy = color.opponent();
+		return !attacks.isSquareAttacked(from, enemy)
+				&& !attacks.isSquareAttacked((from + to) >>> 1, enemy)
+				&& !attacks.isSquareAttacked(to, enemy);
+	}
+
+	/**
+	 * Same rules as the pawn validator in ChessPiece: one square forward onto an
+	 * empty square, two squares forward on the first move, or one square
+	 * diagonally forward onto an enemy piece. Because the board knows the en
+	 * passant square, a diagonal move onto it is also allowed.
+	 */
+	private static boolean canPawnMove(ChessPiece piece, int from, int to,
+			BitboardBoard b, PlayerColor color)
+	{
+		int rowDelta = row(to) - row(from);
+		int columnDistance = Math.abs(column(to) - column(from));
+		long target = 1L << to;
+		long occupied = b.getOccupied();
+		int forward = color == PlayerColor.WHITE ? 1 : -1;
+
+		if (rowDelta == forward)
+		{
+			if (columnDistance == 0)
+			{
+				return (occupied & target) == 0;
+			}
+
+			long enemy = occupied & ~b.getPieces(color);
+			return columnDistance == 1 
+					&& ((enemy & target) != 0 || to == b.getEnPassantSquare());
+		}
+
+		if (rowDelta == 2 * forward && columnDistance == 0 && !piece.hasMoved())
+		{
+			long between = 1L << (from + forward * SIZE);
+			return ((between | target) & occupied) == 0;
+		}
+
+		return false;
+	}
+}
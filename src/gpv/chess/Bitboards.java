@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+/**
+ * Square numbering and precomputed attack masks for an 8x8 board. Square 0 is
+ * (1, 1) and square 63 is (8, 8); bit n of a mask stands for square n.
+ *
+ * @version Apr 10, 2020
+ */
+public final class Bitboards
+{
+	public static final int SIZE = 8;
+	public static final int SQUARES = SIZE * SIZE;
+
+	// ray directions, the first four go towards higher square numbers
+	static final int NORTH = 0, EAST = 1, NORTHEAST = 2, NORTHWEST = 3;
+	static final int SOUTH = 4, WEST = 5, SOUTHWEST = 6, SOUTHEAST = 7;
+	private static final int[] ROW_STEP = { 1, 0, 1, 1, -1, 0, -1, -1 };
+	private static final int[] COLUMN_STEP = { 0, 1, 1, -1, 0, -1, -1, 1 };
+
+	static final long[][] RAYS = new long[8][SQUARES];
+	static final long[] KNIGHT_ATTACKS = new long[SQUARES];
+	static final long[] KING_ATTACKS = new long[SQUARES];
+
+	// indexed by PlayerColor ordinal, then square
+	static final long[][] PAWN_ATTACKS = new long[2][SQUARES];
+
+	// attacks of a rook or bishop on an otherwise empty board
+	static final long[] ROOK_RAYS = new long[SQUARES];
+	static final long[] BISHOP_RAYS = new long[SQUARES];
+
+	// indexed by from * SQUARES + to, see between() and line()
+	private static final long[] BETWEEN = new long[SQUARES * SQUARES];
+	private static final long[] LINE = new long[SQUARES * SQUARES];
+
+	static
+	{
+		int[][] knightSteps = { {1, 2}, {2, 1}, {2, -1}, {1, -2},
+				{-1, -2}, {-2, -1}, {-2, 1}, {-1, 2} };
+
+		for (int sq = 0; sq < SQUARES; sq++)
+		{
+			int row = row(sq);
+			int column = column(sq);
+
+			for (int dir = 0; dir < 8; dir++)
+			{
+				int r = row + ROW_STEP[dir];
+				int c = column + COLUMN_STEP[dir];
+
+				if (inside(r, c))
+				{
+					KING_ATTACKS[sq] |= bit(r, c);
+				}
+
+				while (inside(r, c))
+				{
+					RAYS[dir][sq] |= bit(r, c);
+					r += ROW_STEP[dir];
+					c += COLUMN_STEP[dir];
+				}
+			}
+
+			ROOK_RAYS[sq] = RAYS[NORTH][sq] | RAYS[EAST][sq] | RAYS[SOUTH][sq] | RAYS[WEST][sq];
+			BISHOP_RAYS[sq] = RAYS[NORTHEAST][sq] | RAYS[NORTHWEST][sq]
+					| RAYS[SOUTHEAST][sq] | RAYS[SOUTHWEST][sq];
+
+			for (int[] step : knightSteps)
+			{
+				if (inside(row + step[0], column + step[1]))
+				{
+					KNIGHT_ATTACKS[sq] |= bit(row + step[0], column + step[1]);
+				}
+			}
+
+			for (int dc = -1; dc <= 1; dc += 2)
+			{
+				if (inside(row + 1, column + dc))
+				{
+					PAWN_ATTACKS[PlayerColor.WHITE.ordinal()][sq] |= bit(row + 1, column + dc);
+				}
+				if (inside(row - 1, column + dc))
+				{
+					PAWN_ATTACKS[PlayerColor.BLACK.ordinal()][sq] |= bit(row - 1, column + dc);
+				}
+			}
+		}
+
+		// second pass, since it needs every ray in place
+		for (int from = 0; from < SQUARES; from++)
+		{
+			for (int dir = 0; dir < 8; dir++)
+			{
+				// the opposite direction is four away in the numbering above
+				long line = RAYS[dir][from] | RAYS[dir ^ 4][from] | (1L << from);
+				long ray = RAYS[dir][from];
+
+				while (ray != 0)
+				{
+					int to = Long.numberOfTrailingZeros(ray);
+					BETWEEN[from * SQUARES + to] = RAYS[dir][from] & RAYS[dir ^ 4][to];
+					LINE[from * SQUARES + to] = line;
+					ray &= ray - 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Static helpers only.
+	 */
+	private Bitboards()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * @param row 1 based
+	 * @param column 1 based
+	 * @return the square number
+	 */
+	public static int square(int row, int column)
+	{
+		return (row - 1) * SIZE + (column - 1);
+	}
+
+	/**
+	 * @param sq the square number
+	 * @return the 1 based row
+	 */
+	public static int row(int sq)
+	{
+		return (sq >>> 3) + 1;
+	}
+
+	/**
+	 * @param sq the square number
+	 * @return the 1 based column
+	 */
+	public static int column(int sq)
+	{
+		return (sq & 7) + 1;
+	}
+
+	/**
+	 * @param row 1 based
+	 * @param column 1 based
+	 * @return whether (row, column) is on an 8x8 board
+	 */
+	public static boolean inside(int row, int column)
+	{
+		return row >= 1 && row <= SIZE && column >= 1 && column <= SIZE;
+	}
+
+	/**
+	 * @param row 1 based
+	 * @param column 1 based
+	 * @return the single bit mask for the square
+	 */
+	private static long bit(int row, int column)
+	{
+		return 1L << square(row, column);
+	}
+
+	/**
+	 * @param from a square
+	 * @param to another square
+	 * @return the squares strictly between from and to if they share a row, column
+	 *         or diagonal, otherwise 0
+	 */
+	public static long between(int from, int to)
+	{
+		return BETWEEN[from * SQUARES + to];
+	}
+
+	/**
+	 * @param from a square
+	 * @param to another square
+	 * @return every square of the row, column or diagonal through from and to,
+	 *         or 0 if they aren't aligned (or are the same square)
+	 */
+	public static long line(int from, int to)
+	{
+		return LINE[from * SQUARES + to];
+	}
+
+	/**
+	 * Attacks along one ray, stopping at (and including) the first occupied square.
+	 *
+	 * @param dir the ray direction
+	 * @param sq the square the ray starts from
+	 * @param occupied every occupied square
+	 * @return the squares reachable along the ray
+	 */
+	static long rayAttacks(int dir, int sq, long occupied)
+	{
+		long ray = RAYS[dir][sq];
+		long blockers = ray & occupied;
+
+		if (blockers == 0)
+		{
+			return ray;
+		}
+
+		// the first four directions count up, so the nearest blocker is the lowest bit
+		int first = dir < SOUTH ? Long.numberOfTrailingZeros(blockers)
+				: 63 - Long.numberOfLeadingZeros(blockers);
+
+		return ray ^ RAYS[dir][first];
+	}
+
+	/**
+	 * @param sq the rook's square
+	 * @param occupied every occupied square
+	 * @return the squares a rook on sq attacks
+	 */
+	public static long rookAttacks(int sq, long occupied)
+	{
+		return Magics.rookAttacks(sq, occupied);
+	}
+
+	/**
+	 * @param sq the bishop's square
+	 * @param occupied every occupied square
+	 * @return the squares a bishop on sq attacks
+	 */
+	public static long bishopAttacks(int sq, long occupied)
+	{
+		return Magics.bishopAttacks(sq, occupied);
+	}
+
+	/**
+	 * Rook attacks found by scanning each ray for its first blocker. This is
+	 * what the magic tables are built from.
+	 *
+	 * @param sq the rook's square
+	 * @param occupied every occupied square
+	 * @return the squares a rook on sq attacks
+	 */
+	static long rookRayAttacks(int sq, long occupied)
+	{
+		return rayAttacks(NORTH, sq, occupied) | rayAttacks(EAST, sq, occupied)
+				| rayAttacks(SOUTH, sq, occupied) | rayAttacks(WEST, sq, occupied);
+	}
+
+	/**
+	 * Bishop attacks found by scanning each ray for its first blocker. This is
+	 * what the magic tables are built from.
+	 *
+	 * @param sq the bishop's square
+	 * @param occupied every occupied square
+	 * @return the squares a bishop on sq attacks
+	 */
+	static long bishopRayAttacks(int sq, long occupied)
+	{
+		return rayAttacks(NORTHEAST, sq, occupied) | rayAttacks(NORTHWEST, sq, occupied)
+				| rayAttacks(SOUTHEAST, sq, occupied) | rayAttacks(SOUTHWEST, sq, occupied);
+	}
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import java.util.Arrays;
+import java.util.concurrent.*;
+import gpv.util.Board;
+
+/**
+ * Precomputed lookup tables for a plain Board of any size, the counterpart of
+ * Bitboards for boards that don't fit in a long: how far each square is from
+ * the edge in each direction, and the squares a knight reaches from it. The
+ * validators in ChessPiece and AttackMap.isAttacked() take their geometry
+ * from here.
+ * Squares are numbered as in Board.squareOf(), (row - 1) * columns +
+ * (column - 1), and the directions are those of Bitboards.
+ * <br/>
+ * The tables only depend on the dimensions, so they are made once per size
+ * and shared by every board of that size.
+ *
+ * @version Apr 24, 2020
+ */
+final class BoardGeometry
+{
+	// as in Bitboards, the first four go towards higher square numbers
+	static final int DIRECTIONS = 8;
+	static final int[] ROW_STEP = { 1, 0, 1, 1, -1, 0, -1, -1 };
+	static final int[] COLUMN_STEP = { 0, 1, 1, -1, 0, -1, -1, 1 };
+
+	private static final int[][] KNIGHT_STEPS = { {1, 2}, {2, 1}, {2, -1}, {1, -2},
+			{-1, -2}, {-2, -1}, {-2, 1}, {-1, 2} };
+
+	// the direction of a step, indexed by (row step + 1) * 3 + column step + 1, or -1
+	private static final int[] DIRECTION_OF = new int[9];
+
+	static
+	{
+		Arrays.fill(DIRECTION_OF, -1);
+		for (int dir = 0; dir < DIRECTIONS; dir++)
+		{
+			DIRECTION_OF[(ROW_STEP[dir] + 1) * 3 + COLUMN_STEP[dir] + 1] = dir;
+		}
+	}
+
+	private static final ConcurrentMap<Long, BoardGeometry> SIZES = new ConcurrentHashMap<>();
+
+	// the size asked for last, which is nearly always the size asked for next
+	private static volatile BoardGeometry last = new BoardGeometry(Bitboards.SIZE, Bitboards.SIZE);
+
+	final int rows;
+	final int columns;
+
+	// indexed by square * DIRECTIONS + direction
+	private final int[] rayLength;
+
+	// indexed by square
+	private final int[][] knightTargets;
+
+	private BoardGeometry(int rows, int columns)
+	{
+		this.rows = rows;
+		this.columns = columns;
+
+		int squares = Math.max(rows, 0) * Math.max(columns, 0);
+		rayLength = new int[squares * DIRECTIONS];
+		knightTargets = new int[squares][];
+
+		int[] targets = new int[KNIGHT_STEPS.length];
+		for (int sq = 0; sq < squares; sq++)
+		{
+			int row = sq / columns + 1;
+			int column = sq % columns + 1;
+
+			for (int dir = 0; dir < DIRECTIONS; dir++)
+			{
+				int length = 0;
+				while (inside(row + (length + 1) * ROW_STEP[dir], column + (length + 1) * COLUMN_STEP[dir]))
+				{
+					length++;
+				}
+				rayLength[sq * DIRECTIONS + dir] = length;
+			}
+
+			int n = 0;
+			for (int[] step : KNIGHT_STEPS)
+			{
+				if (inside(row + step[0], column + step[1]))
+				{
+					targets[n++] = square(row + step[0], column + step[1]);
+				}
+			}
+			knightTargets[sq] = Arrays.copyOf(targets, n);
+		}
+	}
+
+	/**
+	 * @param b a board
+	 * @return the tables for its dimensions
+	 */
+	static BoardGeometry of(Board b)
+	{
+		return of(b.nRows, b.getnColumns());
+	}
+
+	/**
+	 * @param rows the number of rows
+	 * @param columns the number of columns
+	 * @return the tables for a board of that size
+	 */
+	static BoardGeometry of(int rows, int columns)
+	{
+		BoardGeometry g = last;
+		if (g.rows != rows || g.columns != columns)
+		{
+			g = SIZES.computeIfAbsent(((long) rows << 32) | (columns & 0xFFFFFFFFL),
+					k -> new BoardGeometry(rows, columns));
+			last = g;
+		}
+		return g;
+	}
+
+	/**
+	 * @return true if the square is on a board of this size
+	 */
+	boolean inside(int row, int column)
+	{
+		return row >= 1 && row <= rows && column >= 1 && column <= columns;
+	}
+
+	/**
+	 * @return the number of the square, which has to be on the board
+	 */
+	int square(int row, int column)
+	{
+		return (row - 1) * columns + (column - 1);
+	}
+
+	/**
+	 * @param sq a square
+	 * @param dir a direction
+	 * @return the number of squares from sq to the edge of the board in that direction
+	 */
+	int rayLength(int sq, int dir)
+	{
+		return rayLength[sq * DIRECTIONS + dir];
+	}
+
+	/**
+	 * @param sq a square
+	 * @return the squares a knight on it reaches, not to be changed
+	 */
+	int[] knightTargets(int sq)
+	{
+		return knightTargets[sq];
+	}
+
+	/**
+	 * @param from a square
+	 * @param to another square
+	 * @return true if a knight on from reaches to
+	 */
+	boolean isKnightMove(int from, int to)
+	{
+		for (int target : knightTargets[from])
+		{
+			if (target == to)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param rowDelta the rows from one square to another
+	 * @param columnDelta the columns from one square to another
+	 * @return the direction from the one to the other, or -1 if they aren't
+	 *         two squares of one row, column or diagonal
+	 */
+	static int direction(int rowDelta, int columnDelta)
+	{
+		if ((rowDelta != 0 && columnDelta != 0 && Math.abs(rowDelta) != Math.abs(columnDelta))
+				|| (rowDelta == 0 && columnDelta == 0))
+		{
+			return -1;
+		}
+		return DIRECTION_OF[(Integer.signum(rowDelta) + 1) * 3 + Integer.signum(columnDelta) + 1];
+	}
+
+	/**
+	 * @param dir a direction
+	 * @return true for a rook's direction, false for a bishop's
+	 */
+	static boolean isStraight(int dir)
+	{
+		return ROW_STEP[dir] == 0 || COLUMN_STEP[dir] == 0;
+	}
+}
@@ -8,14 +8,18 @@
 
 package gpv.chess;
 
-import java.util.function.BiPredicate;
+import java.util.BitSet;
 import gpv.Piece;
+import gpv.metrics.*;
 import gpv.util.*;
 
 /**
  * The chess piece is a piece with some special properties that are used for determining
  * whether a piece can move. It implements the Piece interface and adds properties and
  * methods that are necessary for the chess-specific behavior.
+ * <br/>
+ * The movement rules are stateless validators shared by every instance, one per
+ * PieceName, so a piece only carries its descriptor and its hasMoved flag.
  * 
  * @version Feb 21, 2020
  */
@@ -35,6 +39,16 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 		hasMoved = false;
 	}
 
+	/**
+	 * @return a new piece of the same kind, with the same hasMoved flag
+	 */
+	public ChessPiece copy()
+	{
+		ChessPiece p = new ChessPiece(descriptor);
+		p.hasMoved = hasMoved;
+		return p;
+	}
+
 	/*
 	 * @see gpv.Piece#getDescriptor()
 	 */
@@ -73,7 +87,7 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 	 * @return whether the piece can move in its desired direction
 	 * 			true -> a valid move; false -> not a valid move
 	 */
-	private boolean checkForPieceAtDestination(Coordinate to, Board b, PlayerColor movingColor)
+	private static boolean checkForPieceAtDestination(Coordinate to, Board b, PlayerColor movingColor)
 	{
 		if (b.getPieceAt(to) != null) 
 		{
@@ -104,31 +118,73 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 	 * @return whether the piece can move in its desired direction
 	 * 			true -> a valid move; false -> not a valid move
 	 */
-	private boolean checkAllThreeDirections(Coordinate from, Coordinate to, Board b)
+	private static boolean checkAllThreeDirections(Coordinate from, Coordinate to, Board b)
 	{ 
-		int rowDistance = from.getRowDistance(to);
-		int columnDistance = from.getColumnDistance(to);
-		
-		// piece is making a vertical move so check for that
-		if (from.getColumn() == to.getColumn())
+		// piece has to make a vertical, horizontal or diagonal move
+		if (direction(from, to) < 0)
 		{
-			return canMoveVertically(from, to, b);
+			return false;
 		}
 		
-		// piece is making a horizontal move so check for that
-		else if (from.getRow() == to.getRow())
+		PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
+		
+		// the destination can't hold a piece of the same color and nothing can be in the way
+		return checkForPieceAtDestination(to, b, movingPieceColor) && isPathClear(from, to, b);
+	}
+	
+	/**
+	 * @param from
+	 *            the source coordinate
+	 * @param to
+	 *            the destination coordinate
+	 * @return the BoardGeometry direction from one to the other, or -1 if they aren't on
+	 *         the same row, column or diagonal
+	 */
+	private static int direction(Coordinate from, Coordinate to)
+	{
+		return BoardGeometry.direction(to.getRow() - from.getRow(), to.getColumn() - from.getColumn());
+	}
+	
+	/**
+	 * This method is called to check that every square strictly between the source and
+	 * destination coordinates is empty (no jumping over). The coordinates have to be on
+	 * the same row, column or diagonal, and the source on the board; the BoardGeometry
+	 * of the board's size tells how far the line runs before it leaves the board.
+	 * 
+	 * @param from
+	 *            the source coordinate that the piece is moving from
+	 * @param to
+	 *            the destination coordinate that the piece is moving to
+	 * @param b
+	 *            signfies the board that the piece is moving on
+	 * @return whether the path is clear
+	 * 			true -> no pieces in the way; false -> a piece is in the way
+	 */
+	private static boolean isPathClear(Coordinate from, Coordinate to, Board b)
+	{
+		BoardGeometry g = BoardGeometry.of(b);
+		int dir = direction(from, to);
+		int distance = Math.max(from.getRowDistance(to), from.getColumnDistance(to));
+		if (dir < 0 || distance > g.rayLength(g.square(from.getRow(), from.getColumn()), dir))
 		{
-			return canMoveHorizontally(from, to, b);
+			return false;
 		}
 		
-		// piece is making a diagonal move so check for that
-		else if (rowDistance == columnDistance)
+		int nextRow = from.getRow();
+		int nextColumn = from.getColumn();
+		for (int step = 1; step < distance; step++)
 		{
-			return canMoveDiagonally(from, to, b);
+			nextRow += BoardGeometry.ROW_STEP[dir];
+			nextColumn += BoardGeometry.COLUMN_STEP[dir];
+			
+			// found a piece in the way
+			if (b.getPieceAt(nextRow, nextColumn) != null)
+			{
+				return false;
+			}
 		}
 		
-		// piece is making an invalid move for whichever piece that is calling this function
-		return false;
+		return true;
 	}
 	
 	/**
@@ -144,53 +200,25 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 	 * @return whether the pawn can move one space forward
 	 * 			true -> a valid move; false -> not a valid move
 	 */
-	private boolean checkPawnMove_OneSpace(Coordinate from, Coordinate to, Board b)
+	private static boolean checkPawnMove_OneSpace(Coordinate from, Coordinate to, Board b)
 	{
 		PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
 		
 		// verifying that the pawn is moving one space forward
-		if (from.getRowDistance(to) == 1)
+		if (from.getRow() + pawnDirection(movingPieceColor) == to.getRow())
 		{
 			// making a vertical move
 			if (from.getColumnDistance(to) == 0) 
 			{
-				
-				// verifying that there are no pieces at the 
-				// destination
-				if (b.getPieceAt(to) == null)
-				{
-					return true;
-				}
-				
-				// if there is, not a pawn move
-				else
-				{
-					return false;
-				}
+				// verifying that there are no pieces at the destination
+				return b.getPieceAt(to) == null;
 			}
 			
 			// pawn is attempting to capture an enemy
 			else if (from.getColumnDistance(to) == 1)
 			{
-				// checking movement for a black pawn
-				if (movingPieceColor.equals(PlayerColor.BLACK))
-				{
-					if (from.getRow() - 1 == to.getRow())
-					{
-						// verifying that the captured piece is not the same color
-						return checkForPieceAtDestination(to, b, movingPieceColor);
-					}
-				}
-				
-				// checking movement for a white pawn
-				else
-				{
-					if (from.getRow() + 1 == to.getRow())
-					{
-						// verifying that the captured piece is not the same color
-						return checkForPieceAtDestination(to, b, movingPieceColor);
-					}
-				}
+				// there has to be a piece to capture and it can't be the same color
+				return b.getPieceAt(to) != null && checkForPieceAtDestination(to, b, movingPieceColor);
 			}
 		}
 		
@@ -211,27 +239,39 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 	 * @return whether the pawn can move two spaces forward
 	 * 			true -> a valid move; false -> not a valid move
 	 */ 
-	private boolean checkPawnTwoSpacesForward(Coordinate from, Coordinate to, Board b)
+	private static boolean checkPawnTwoSpacesForward(Coordinate from, Coordinate to, Board b)
 	{
-		if ( (from.getRowDistance(to) == 2) && (from.getColumnDistance(to) == 0) )
+		PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
+		int forward = pawnDirection(movingPieceColor);
+		
+		if ( (from.getRow() + 2 * forward == to.getRow()) && (from.getColumnDistance(to) == 0) )
 		{
 			// just make sure no pieces in the way
-			Coordinate oneSpaceForward = Coordinate.makeCoordinate(from.getRow() + 1, from.getColumn());
-			
-			if (b.getPieceAt(oneSpaceForward) == null && 
+			if (b.getPieceAt(from.getRow() + forward, from.getColumn()) == null && 
 					b.getPieceAt(to) == null)
 			{
 				return true;
 			}
 		}
 		
-		// conditions were not met to make a one space move
+		// conditions were not met to make a two space move
 		return false;
 	}
 	
+	/**
+	 * @param color
+	 *            the pawn's color
+	 * @return the row step of a pawn moving forward: 1 for white, -1 for black
+	 */
+	private static int pawnDirection(PlayerColor color)
+	{
+		return color.equals(PlayerColor.WHITE) ? 1 : -1;
+	}
+	
 	/**
 	 * This method is called when the king is trying to attempt a castling move. Calling
-	 * this method will verify if the king's movement is a valid castling move.
+	 * this method will verify if the king's movement is a valid castling move. The rook
+	 * has to be in the corner of the king's row, whatever the size of the board.
 	 * @param from
 	 *            the source coordinate that the piece is moving from
 	 * @param to
@@ -241,27 +281,22 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 	 * @return whether the king can make a valid castling move
 	 * 			true -> a valid castling move; false -> not a valid castling move
 	 */ 
-	private boolean checkValidCastling(Coordinate from, Coordinate to, Board b)
+	private static boolean checkValidCastling(Coordinate from, Coordinate to, Board b)
 	{
 		PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
 		
-		Coordinate rookCoordinate = null; Coordinate.makeCoordinate(from.getRow(), 8);
-		
-		// this flag determines if king is making a right castling move
-		// true -> making right castling move; false -> making left castling move
-		boolean rightCastlingFlag = true;
+		Coordinate rookCoordinate = null;
 		
 		// getting the coordinate where the rook should be for a right castling move
 		if (from.getColumn() + 2 == to.getColumn())
 		{
-			rookCoordinate = Coordinate.makeCoordinate(from.getRow(), 8);
+			rookCoordinate = Coordinate.makeCoordinate(from.getRow(), b.getnColumns());
 		}
 		
 		// getting the coordinate where the rook should be for a left castling move
 		else if (from.getColumn() - 2 == to.getColumn())
 		{
 			rookCoordinate = Coordinate.makeCoordinate(from.getRow(), 1);
-			rightCastlingFlag = false; // detected that king is making left castling move
 		}
 		
 		// need to verify that there is a piece at the rook coordinate
@@ -275,61 +310,18 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 			{
 				ChessPiece rook = (ChessPiece) b.getPieceAt(rookCoordinate);
 				
-				// need to verify if the rook has moved or not
-				if (!rook.hasMoved())
+				// the rook can't have moved, there can't be pieces between the king and the rook 
+				// and the king can't land on the rook
+				if (!rook.hasMoved() && isPathClear(from, rookCoordinate, b) 
+						&& b.getPieceAt(to) == null)
 				{
-					int startColumnIndex = from.getColumn();
-					
-					// used to increment the startColumnIndex appropriately
-					// is set to 1 by default (meant for right castling)
-					int incrementor = 1;
-					
-					BiPredicate<Integer, Integer> stillSpacesLeft;
-					
-					if (rightCastlingFlag)
-					{
-						// king will be moving to the right
-						startColumnIndex = startColumnIndex + 1;
-						
-						// checks for spaces to the right of king
-						stillSpacesLeft = (startIndex, endIndex) -> 
-						{
-							return startIndex < endIndex;
-						};
-					}
-					
-					// detected that the king is making a left castling move
-					else
-					{
-						startColumnIndex = startColumnIndex - 1;
-						
-						incrementor = -1;
-						
-						// checks for spaces to the left of king
-						stillSpacesLeft = (startIndex, endIndex) -> 
-						{
-							return startIndex > endIndex;
-						};
-					}
-					 
-					// loop until get to rook coordinate and check if no pieces in the way
-					while (stillSpacesLeft.test(startColumnIndex, rookCoordinate.getColumn()))
-					{
-						Coordinate nextCoordinate = Coordinate.makeCoordinate(from.getRow(), startColumnIndex);
-						
-						// check if the next coordinate to check is occupied by a piece or not
-						if (b.getPieceAt(nextCoordinate) != null)
-						{
-							// found a piece in between the king and rook
-							return false;
-						}
-						
-						// incrementing the startColumnIndex appropriately
-						startColumnIndex = startColumnIndex + incrementor; 
-					}
-					
-					// no pieces were in between the king and the rook so valid castling move
-					return true;
+					// the king can't castle out of, through or into check
+					PlayerColor enemyColor = movingPieceColor.opponent();
+					Coordinate passed = Coordinate.makeCoordinate(from.getRow(), 
+							(from.getColumn() + to.getColumn()) / 2);
+					return !AttackMap.isAttacked(b, from, enemyColor, null, null) 
+							&& !AttackMap.isAttacked(b, passed, enemyColor, null, null)
+							&& !AttackMap.isAttacked(b, to, enemyColor, null, null);
 				}
 			}
 		}
@@ -339,14 +331,14 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 	}
 
 	// the check test for a king's movement
-	private ChessPieceValidator king = (from, to, b) -> 
+	private static final ChessPieceValidator KING = (piece, from, to, b) -> 
 	{
 		// checking if trying to make a castling move
 		if (from.getRowDistance(to) == 0 &&
 				from.getColumnDistance(to) == 2)
 		{ 
 			// check for conditions of castling
-			if (!hasMoved())
+			if (!piece.hasMoved())
 			{
 				// valid castling conditions
 				return checkValidCastling(from, to, b);
@@ -365,48 +357,46 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 			return false;
 		}
 		
-		// making a standard one move
+		// making a standard one move, but not onto a square the other color attacks
 		else  
 		{ 
-			return checkAllThreeDirections(from, to, b);
+			PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
+			return checkAllThreeDirections(from, to, b) 
+					&& !AttackMap.isAttacked(b, to, movingPieceColor.opponent(), from, null);
 		}
 		
 	};
  
 	// the check tests for a queen's movements
-	private ChessPieceValidator queen = (from, to, b) -> 
+	private static final ChessPieceValidator QUEEN = (piece, from, to, b) -> 
 	{
 		return checkAllThreeDirections(from, to, b);
 	};
 
 	// the check tests for a bishop's movements
-	private ChessPieceValidator bishop = (from, to, b) ->
+	private static final ChessPieceValidator BISHOP = (piece, from, to, b) ->
 	{
-		return canMoveDiagonally(from, to, b);
+		// bishop can only move diagonally
+		int dir = direction(from, to);
+		if (dir >= 0 && !BoardGeometry.isStraight(dir))
+		{
+			return checkAllThreeDirections(from, to, b);
+		}
+		
+		return false;
 	};
 	
 	// the check tests for a knight's movements
-	private ChessPieceValidator knight = (from, to, b) ->
+	private static final ChessPieceValidator KNIGHT = (piece, from, to, b) ->
 	{
 		PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
+		BoardGeometry g = BoardGeometry.of(b);
 		
-		// move is a L vertically
-		if (from.getRowDistance(to) == 2)
-		{
-			if (from.getColumnDistance(to) == 1)
-			{ 
-				// check if piece occupies the space and what color piece
-				return checkForPieceAtDestination(to, b, movingPieceColor);
-			}
-		}
-		// move is a L horizontally
-		else if (from.getColumnDistance(to) == 2)
-		{
-			if (from.getRowDistance(to) == 1)
-			{
-				// no piece at destination spot
-				return checkForPieceAtDestination(to, b, movingPieceColor);
-			}
+		// move is an L, from the knight targets of the board's size
+		if (g.isKnightMove(g.square(from.getRow(), from.getColumn()), g.square(to.getRow(), to.getColumn())))
+		{ 
+			// check if piece occupies the space and what color piece
+			return checkForPieceAtDestination(to, b, movingPieceColor);
 		}
 		
 		// not a valid knight move
@@ -414,422 +404,134 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 	};
 
 	// the check tests for a rook's movements
-	private ChessPieceValidator rook = (from, to, b) -> 
+	private static final ChessPieceValidator ROOK = (piece, from, to, b) -> 
 	{
-		// rook is attempting to move vertically so check vertical move
-		if (from.getColumn() == to.getColumn())
+		// rook can only move vertically or horizontally
+		int dir = direction(from, to);
+		if (dir >= 0 && BoardGeometry.isStraight(dir))
 		{
-			return canMoveVertically(from, to, b);
-		}
-		 
-		// rook is attempting to move horizontally so check horizontal move
-		else if (from.getRow() == to.getRow())
-		{
-			return canMoveHorizontally(from, to, b);
+			return checkAllThreeDirections(from, to, b);
 		}
 
 		return false;
 	};  
 
 	// the check tests for a pawn's movements
-	private ChessPieceValidator pawn = (from, to, b) ->
+	private static final ChessPieceValidator PAWN = (piece, from, to, b) ->
 	{
-		PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
-		
-		// checking if it has moved before
-		if (!hasMoved())
+		// is able to move 2 spaces forward on first move
+		if (from.getRowDistance(to) == 2)
 		{
-			// is able to move 2 spaces forward on first move
-			if (from.getRowDistance(to) == 2)
-			{
-				// handling the movement checking for a white pawn
-				if (movingPieceColor.equals(PlayerColor.WHITE))
-				{
-					if (from.getRow() + 2 == to.getRow())
-					{
-						return checkPawnTwoSpacesForward(from, to, b);
-					}
-				}
-				
-				// handling the movement checking for a black pawn
-				else
-				{
-					if (from.getRow() - 2 == to.getRow())
-					{
-						return checkPawnTwoSpacesForward(from, to, b);
-					}
-				}
-			}
-			
-			// the pawn chooses to move only one space forward
-			else if (from.getRowDistance(to) == 1)
-			{
-				return checkPawnMove_OneSpace(from, to, b);
-			}
+			return !piece.hasMoved() && checkPawnTwoSpacesForward(from, to, b);
 		}
 		
-		// the pawn can only move one space forward
-		else
-		{
-			return checkPawnMove_OneSpace(from, to, b);
-		}
-		 
-		return false; 
+		// otherwise the pawn can only move one space forward
+		return checkPawnMove_OneSpace(from, to, b);
 	};
 	
+	// the validators indexed by PieceName ordinal
+	private static final ChessPieceValidator[] VALIDATORS = 
+			new ChessPieceValidator[PieceName.values().length];
+	
+	static
+	{
+		VALIDATORS[PieceName.KING.ordinal()] = KING;
+		VALIDATORS[PieceName.QUEEN.ordinal()] = QUEEN;
+		VALIDATORS[PieceName.BISHOP.ordinal()] = BISHOP;
+		VALIDATORS[PieceName.KNIGHT.ordinal()] = KNIGHT;
+		VALIDATORS[PieceName.ROOK.ordinal()] = ROOK;
+		VALIDATORS[PieceName.PAWN.ordinal()] = PAWN;
+	}
+	
 	/*
 	 * @see gpv.Piece#canMove(gpv.util.Coordinate, gpv.util.Coordinate, gpv.util.Board)
 	 */
 	@Override
 	public boolean canMove(Coordinate from, Coordinate to, Board b)
 	{
-
-		// checking if where I want to move is a valid position within the board
-		if ( (!b.insideBoard(to)) || (!b.insideBoard(from)) || (from.equals(to)) 
-			|| (b.getPieceAt(from) == null)) 
+		Instruments instruments = Instruments.current();
+		if (instruments == null)
 		{
-			return false;
+			return validate(from, to, b);
 		}
-		  
-		PieceName movingPieceType = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getName();
-
-		boolean result = false;
 		
-		// handling the checking for a particular piece
-		switch (movingPieceType) {
-			case KING:
-				result = king.check(from, to, b);
-				break;
-
-			case QUEEN:
-				result = queen.check(from, to, b);
-				break;
-
-			case BISHOP:
-				result = bishop.check(from, to, b);
-				break;
-
-			case KNIGHT:
-				result = knight.check(from, to, b);
-				break;
-
-			case ROOK:
-				result = rook.check(from, to, b);
-				break;
-
-			case PAWN:
-				result = pawn.check(from, to, b);
-				break;
-
-			default:
-				// if allowed, I would have thrown an exception here
-				// but for this assignment it just yields a false statement
-				result = false; 
-				break;
-		}
-
-		return result;
+		return instrumented(instruments.getMetrics(), instruments.getEvents(), from, to, b);
 	}
 	
 	/**
-	 * This method is called when the piece wants to move upwards in a vertical direction.
-	 * It determines if the piece can move vertically up to the desired coordinate while
-	 * following the rules of chess
-	 * 
-	 * @param from
-	 *            the source coordinate that the piece is moving from
-	 * @param to
-	 *            the destination coordinate that the piece is moving to
-	 * @param b
-	 *            signfies the board that the piece is moving on
-	 * @return whether the piece can move vertically upwards to the desired coordinate
-	 *         true -> it is a valid move for moving vertically upwards, false -> it is
-	 *         not a valid move
+	 * canMove() with metrics, events or both.
 	 */
-	private boolean canMoveVertically_Up(Coordinate from, Coordinate to, Board b)
+	private boolean instrumented(ValidationMetrics metrics, ValidationEvents events, 
+			Coordinate from, Coordinate to, Board b)
 	{
-		// check for pieces that may be in the way
-		for (int nextRow = from.getRow() + 1; nextRow <= to.getRow(); nextRow++) 
-		{
-			// check if there is a piece in the way (no jumping over)
-			Coordinate nextCoordinate = Coordinate.makeCoordinate(nextRow, to.getColumn());
-			
-			if (nextRow == to.getRow()) 
-			{
-				return true;
-			}
-			
-			else if (b.getPieceAt(nextCoordinate) != null)
-			{
-				break;
-			}
-		}
+		long start = metrics == null ? ValidationMetrics.NOT_TIMED : metrics.start();
+		Object event = events == null ? null : events.beginCanMove();
+		boolean valid = validate(from, to, b);
 		
-		// condition for the move is not a valid one by the caller piece
-		return false;
-	}
-	
-	/**
-	 * see canMoveVertically_Up function. Same functionality, but checks for if moving vertically down
-	 */
-	private boolean canMoveVertically_Down(Coordinate from, Coordinate to, Board b)
-	{		
-		// check if any pieces are in the way when moving
-		for (int nextRow = from.getRow() - 1; nextRow >= to.getRow(); nextRow--) 
+		if (event != null)
 		{
-			Coordinate nextCoordinate = Coordinate.makeCoordinate(nextRow, to.getColumn());
-			
-			// check if there is a piece in the way (no jumping over)
-			if (nextRow == to.getRow()) 
-			{
-				return true;
-			}
-			
-			// found a piece in the way so invalid move
-			else if (b.getPieceAt(nextCoordinate) != null)
-			{
-				break;
-			}
+			events.endCanMove(event, this, from, to, b, valid);
 		}
-		
-		// condition for the move is not a valid one by the caller piece
-		return false;
-	}
-
-	/**
-	 * This method is called when trying to verify if the particular piece can move
-	 * vertically while following the rules of chess
-	 * 
-	 * @param from
-	 *            the source coordinate that the piece is moving from
-	 * @param to
-	 *            the destination coordinate that the piece is moving to
-	 * @param b
-	 *            signfies the board that the piece is moving on
-	 * @return whether the piece can move vertically to the desired coordinate: 
-	 * 			true -> it is a valid move, false -> it is not a valid move
-	 */
-	private boolean canMoveVertically(Coordinate from, Coordinate to, Board b)
-	{
-		PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
-		
-		// first check the piece at the destination to see if the move
-		// will be valid upon reaching the destination
-		if (checkForPieceAtDestination(to, b, movingPieceColor))
+		if (metrics != null)
 		{
-			// verify that it is moving vertically
-			if (from.getColumn() == to.getColumn()) 
-			{
-				// check to see if it can move vertically upwards
-				if (from.getRow() < to.getRow()) 
-				{
-					return canMoveVertically_Up(from, to, b);
-				}
-
-				// check to see if it can move vertically downwards
-				else 
-				{
-					return canMoveVertically_Down(from, to, b);
-				}
-			}
+			metrics.record(getName(), valid, start);
 		}
-		
-		// condition for the move is not a valid one by the caller piece
-		return false;
+		return valid;
 	}
 	
-	
 	/**
-	 * This method is called when the piece wants to move right in a horizontal direction.
-	 * It determines if the piece can move horizontally right to the desired coordinate while
-	 * following the rules of chess
-	 * 
-	 * @param from
-	 *            the source coordinate that the piece is moving from
-	 * @param to
-	 *            the destination coordinate that the piece is moving to
-	 * @param b
-	 *            signfies the board that the piece is moving on
-	 * @return whether the piece can move horizontally right to the desired coordinate
-	 *         	true -> it is a valid move for moving horizontally right, false -> it is not a valid move
+	 * canMove() without the metrics.
 	 */
-	private boolean canMoveHorizontally_Right(Coordinate from, Coordinate to, Board b)
+	private boolean validate(Coordinate from, Coordinate to, Board b)
 	{
-		// check if there are any pieces in the way when moving
-		for (int nextColumn = from.getColumn() + 1; nextColumn <= to.getColumn(); nextColumn++) 
+		// checking if where I want to move is a valid position within the board
+		if ( (!b.insideBoard(to)) || (!b.insideBoard(from)) || (from.equals(to)) 
+			|| (b.getPieceAt(from) == null)) 
 		{
-			Coordinate nextCoordinate = Coordinate.makeCoordinate(to.getRow(), nextColumn);
-
-			// check if there is a piece in the way (no jumping over)
-			if (nextColumn == to.getColumn()) 
-			{
-				return true;
-			}
-			
-			else if (b.getPieceAt(nextCoordinate) != null)
-			{
-				break;
-			}
-		} 
+			return false;
+		}
 		
-		// if there is an invalid move along the way, will come here
-		return false;
-	}
-	
-	/**
-	 * see canMoveHorizontally_Right function. Same functionality, except this one checks for
-	 * if moving horizontally left is a valid chess move
-	 */
-	private boolean canMoveHorizontally_Left(Coordinate from, Coordinate to, Board b)
-	{	
-		// checking to make sure no pieces are in the way when moving horizontally
-		for (int nextColumn = from.getColumn() - 1; nextColumn >= to.getColumn(); nextColumn--) 
+		// an 8x8 bitboard can answer with mask arithmetic instead of walking squares
+		if (b instanceof BitboardBoard)
 		{
-			Coordinate nextCoordinate = Coordinate.makeCoordinate(to.getRow(), nextColumn);
-
-			// check if there is a piece in the way (no jumping over)
-			if (nextColumn == to.getColumn()) 
-			{
-				return true;
-			}
-			
-			else if (b.getPieceAt(nextCoordinate) != null)
-			{
-				break;
-			}
+			return BitboardValidator.canMove(this, 
+					Bitboards.square(from.getRow(), from.getColumn()), 
+					Bitboards.square(to.getRow(), to.getColumn()), (BitboardBoard) b);
 		}
-		
-		// if there is an invalid move along the way, will come here
-		return false;
+		  
+		PieceName movingPieceType = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getName();
+
+		// handling the checking for a particular piece
+		return VALIDATORS[movingPieceType.ordinal()].check(this, from, to, b);
 	}
 	
-	/**
-	 * This method is called when trying to verify if the particular piece can move
-	 * horizontally while following the rules of chess
-	 * 
-	 * @param from
-	 *            the source coordinate that the piece is moving from
-	 * @param to
-	 *            the destination coordinate that the piece is moving to
-	 * @param b
-	 *            signfies the board that the piece is moving on
-	 * @return whether the piece can move horizontally to the desired coordinate: 
-	 * 			true -> it is a valid move, false -> it is not a valid move
+	/*
+	 * On a BitboardBoard the squares each piece can move to are worked out once
+	 * per source square, then every move is a bit test.
+	 * @see gpv.Piece#canMoveAll(gpv.util.Board, int[], java.util.BitSet)
 	 */
-	private boolean canMoveHorizontally(Coordinate from, Coordinate to, Board b)
+	@Override
+	public void canMoveAll(Board b, int[] fromTo, BitSet out)
 	{
-		PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
-		
-		// first check the piece at the destination to see if the move
-		// will be valid upon reaching the destination
-		if (checkForPieceAtDestination(to, b, movingPieceColor))
+		if (b instanceof BitboardBoard)
 		{
-			// verifying that it is moving horizontally
-			if (from.getRow() == to.getRow()) 
-			{
-				// piece is attempting to move right horizontally
-				if (from.getColumn() < to.getColumn()) 
-				{
-					return canMoveHorizontally_Right(from, to, b);
-				}
-				
-				// piece is attempting to move left horizontally
-				else 
-				{
-					return canMoveHorizontally_Left(from, to, b);
-				}
-			}
+			BitboardValidator.canMoveAll((BitboardBoard) b, fromTo, out);
 		}
-		
-		// is not moving horizontally
-		return false;
-	}
-
-	/**
-	 * This method is called when the piece wants to move up right in a diagonally direction.
-	 * It is called by the canMoveDiagonally_Up function.
-	 * It determines if the piece can move diagonally up right to the desired coordinate while
-	 * following the rules of chess
-	 * 
-	 * @param from
-	 *            the source coordinate that the piece is moving from
-	 * @param to
-	 *            the destination coordinate that the piece is moving to
-	 * @param b
-	 *            signfies the board that the piece is moving on
-	 * @return whether the piece can move diagonally up right to the desired coordinate
-	 *         true -> it is a valid move for moving diagonally up right, false -> it is
-	 *         not a valid move
-	 */
-	private boolean canMoveDiagonally_UpRight(Coordinate from, Coordinate to, Board b)
-	{
-		int nextRow = from.getRow() + 1;
-		int nextColumn = from.getColumn() + 1;
-
-		// I believe for diagonals in a square, you move vertically and horizontally the
-		// same amount of times
-		while (nextRow <= to.getRow() && nextColumn <= to.getColumn()) 
+		else
 		{
-			Coordinate nextCoordinate = Coordinate.makeCoordinate(nextRow, nextColumn);
-
-			// check if there is a piece in the way (no jumping over)
-			if (nextRow == to.getRow() && nextColumn == to.getColumn()) 
-			{
-				return true;
-			}
-			
-			else if (b.getPieceAt(nextCoordinate) != null)
-			{
-				break;
-			}
-			
-			nextRow++;
-			nextColumn++;
+			Piece.super.canMoveAll(b, fromTo, out);
 		}
-		
-		// if an invalid move was dected, comes to here
-		return false;
 	}
 	
 	/**
-	 * see canMoveDiagonally_UpRight function. Same functionality, except this one checks for
-	 * if moving diagonally up left is a valid chess move and is called by the
-	 * canMoveDiagonally_Up function
-	 */
-	private boolean canMoveDigonally_UpLeft(Coordinate from, Coordinate to, Board b)
-	{
-		int nextRow = from.getRow() + 1;
-		int nextColumn = from.getColumn() - 1;
-
-		// I believe for diagonals in a square, you move vertically and horizontally the
-		// same amount of times
-		while (nextRow <= to.getRow() && nextColumn >= to.getColumn()) 
-		{
-			Coordinate nextCoordinate = Coordinate.makeCoordinate(nextRow, nextColumn);
-
-			// check if there is a piece in the way (no jumping over)
-			if (nextRow == to.getRow() && nextColumn == to.getColumn()) 
-			{
-				return true;
-			}
-			
-			else if (b.getPieceAt(nextCoordinate) != null)
-			{
-				break;
-			}
-			nextRow++;
-			nextColumn--;
-		}
-		
-		// if an invalid move was dected, comes to here
-		return false;
-	}
-
-	/**
-	 * This method is called to verify if the piece can move diagonally up. If the piece
-	 * is able to move diagonally up in either the right or left directions, then the
-	 * piece is able to move diagonally up to the destination coordinate sucessfully -
-	 * is a valid move
+	 * Determine if a move is legal: canMove() accepts it and it doesn't leave
+	 * the mover's king attacked. On a BitboardBoard that costs one more mask
+	 * test, using the pins the board's AttackMap finds once per position. On
+	 * a plain board the board is only read: the king is looked for, and
+	 * AttackMap.isAttacked() told that from is empty and to is taken. A side
+	 * without a king can make any move canMove() accepts, and a side with
+	 * more than one is judged by the one that moves, or else by the first by
+	 * row and then column.
 	 * 
 	 * @param from
 	 *            the source coordinate that the piece is moving from
@@ -837,156 +539,55 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 	 *            the destination coordinate that the piece is moving to
 	 * @param b
 	 *            signfies the board that the piece is moving on
-	 * @return whether the piece is able to move diagonally up: 
-	 * 			true -> piece can move diagonally up, false -> piece cannot move diagonally up
+	 * @return whether the move is legal
 	 */
-	private boolean canMoveDiagonally_Up(Coordinate from, Coordinate to, Board b)
+	public boolean canMoveLegally(Coordinate from, Coordinate to, Board b)
 	{
-		// moving diagonally up right
-		if (from.getColumn() < to.getColumn()) 
+		if (!canMove(from, to, b))
 		{
-			return canMoveDiagonally_UpRight(from, to, b);
+			return false;
 		}
 		
-		// moving diagonally up left
-		else 
+		if (b instanceof BitboardBoard)
 		{
-			return canMoveDigonally_UpLeft(from, to, b);
+			return BitboardValidator.isLegal(
+					Bitboards.square(from.getRow(), from.getColumn()), 
+					Bitboards.square(to.getRow(), to.getColumn()), (BitboardBoard) b);
 		}
 		
+		ChessPiece moving = (ChessPiece) b.getPieceAt(from);
+		PlayerColor movingColor = moving.getColor();
+		Coordinate king = moving.getName() == PieceName.KING ? to : findKing(b, movingColor);
+		return king == null 
+				|| !AttackMap.isAttacked(b, king, movingColor.opponent(), from, to);
 	}
 	
 	/**
-	 * see canMoveDiagonally_UpRight function. Same functionality, except this one checks for
-	 * if moving diagonally down right is a valid chess move and is called by the
-	 * canMoveDiagonally_Down function
-	 */
-	private boolean canMoveDiagonally_DownRight(Coordinate from, Coordinate to, Board b)
-	{
-		int nextRow = from.getRow() - 1;
-		int nextColumn = from.getColumn() + 1;
-
-		// I believe for diagonals in a square, you move vertically and horizontally the
-		// same amount of times
-		while (nextRow >= to.getRow() && nextColumn <= to.getColumn()) 
-		{
-			Coordinate nextCoordinate = Coordinate.makeCoordinate(nextRow, nextColumn);
-
-			// check if there is a piece in the way (no jumping over)
-			if (nextRow == to.getRow() && nextColumn == to.getColumn()) 
-			{
-				return true;
-			}
-			
-			else if (b.getPieceAt(nextCoordinate) != null)
-			{
-				break;
-			}
-			nextRow--;
-			nextColumn++;
-		}
-		
-		// if an invalid move was dected, comes to here
-		return false;
-	}
- 
-	/**
-	 * see canMoveDiagonally_UpRight function. Same functionality, except this one checks for
-	 * if moving diagonally down left is a valid chess move and is called by the
-	 * canMoveDiagonally_Down function
-	 */
-	private boolean canMoveDiagonally_DownLeft(Coordinate from, Coordinate to, Board b)
-	{
-		int nextRow = from.getRow() - 1;
-		int nextColumn = from.getColumn() - 1;
- 
-		// I believe for diagonals in a square, you move vertically and horizontally the
-		// same amount of times
-		while (nextRow >= to.getRow() && nextColumn >= to.getColumn()) 
-		{
-			Coordinate nextCoordinate = Coordinate.makeCoordinate(nextRow, nextColumn);
-
-			// check if there is a piece in the way (no jumping over)
-			if (nextRow == to.getRow() && nextColumn == to.getColumn()) 
-			{
-				return true;
-			}
-			
-			else if (b.getPieceAt(nextCoordinate) != null)
-			{
-				break;
-			}
-			nextRow--;
-			nextColumn--;
-		}
-		
-		// if an invalid move was dected, comes to here
-		return false;
-	}
-
-	/**
-	 * See the description in the canMoveDiagonaly_Up function. It has the same functionality
-	 * but it checks to see if the piece can move diagonally down 
-	 */
-	private boolean canMoveDiagonally_Down(Coordinate from, Coordinate to, Board b)
-	{
-		if (from.getColumn() < to.getColumn()) 
-		{
-			return canMoveDiagonally_DownRight(from, to, b);
-		}
-		
-		else 
-		{
-			return canMoveDiagonally_DownLeft(from, to, b);
-		}
-
-	}
-
-	/**
-	 * This method is called to verify if the piece can move diagonally. If the piece is
-	 * able to move diagonally in either the upwards direction or the downwards direction,
-	 * then the piece is able to move diagonally to the destination coordinate
-	 * successfully - it is a valid move.
-	 * 
-	 * @param from
-	 *            the source coordinate that the piece is moving from
-	 * @param to
-	 *            the destination coordinate that the piece is moving to
 	 * @param b
-	 *            signfies the board that the piece is moving on
-	 * @return whether the piece is able to move diagionally: 
-	 * 			true -> piece can move diagonally, false -> piece cannot move diagonally
+	 *            the board
+	 * @param color
+	 *            the king's color
+	 * @return the coordinate of the first king of that color by row and then
+	 *         column, or null if there is none
 	 */
-	private boolean canMoveDiagonally(Coordinate from, Coordinate to, Board b)
+	private static Coordinate findKing(Board b, PlayerColor color)
 	{
-		PlayerColor movingPieceColor = ((ChessPieceDescriptor) b.getPieceAt(from).getDescriptor()).getColor();
-		
-		// first check the piece at the destination to see if the move
-		// will be valid upon reaching the destination
-		if (checkForPieceAtDestination(to, b, movingPieceColor))
+		for (int row = 1; row <= b.nRows; row++)
 		{
-			if (from.getColumnDistance(to) == from.getRowDistance(to))
+			for (int column = 1; column <= b.nColumns; column++)
 			{
-				if (from.getRow() < to.getRow()) 
+				Piece p = b.getPieceAt(row, column);
+				if (p != null && ((ChessPiece) p).getName() == PieceName.KING 
+						&& ((ChessPiece) p).getColor() == color)
 				{
-					return canMoveDiagonally_Up(from, to, b);
+					return Coordinate.makeCoordinate(row, column);
 				}
-				
-				else
-				{
-					return canMoveDiagonally_Down(from, to, b);
-				} 
-			}
-			
-			else 
-			{
-				return false; 
 			}
 		}
 		
-		return false;
+		return null;
 	}
-
+	
 	/**
 	 * @return the hasMoved
 	 */
@@ -1005,4 +606,12 @@ public class ChessPiece implements Piece<ChessPieceDescriptor>
 	{
 		hasMoved = true;
 	}
+
+	/**
+	 * Only for taking a move back, see BitboardBoard.unmakeMove().
+	 */
+	void clearHasMoved()
+	{
+		hasMoved = false;
+	}
 }
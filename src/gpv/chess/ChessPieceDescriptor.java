@@ -40,6 +40,18 @@ public enum ChessPieceDescriptor implements PieceDescriptor
 	private PlayerColor color;
 	private PieceName name;
 	
+	// indexed by PlayerColor ordinal, then PieceName ordinal
+	private static final ChessPieceDescriptor[][] BY_COLOR_AND_NAME = 
+			new ChessPieceDescriptor[PlayerColor.values().length][PieceName.values().length];
+	
+	static
+	{
+		for (ChessPieceDescriptor d : values())
+		{
+			BY_COLOR_AND_NAME[d.color.ordinal()][d.name.ordinal()] = d;
+		}
+	}
+	
 	/**
 	 * Private constructor to set the color and name in the instance.
 	 * @param color
@@ -66,4 +78,14 @@ public enum ChessPieceDescriptor implements PieceDescriptor
 	{
 		return name;
 	}
+	
+	/**
+	 * @param color
+	 * @param name
+	 * @return the descriptor for the piece with that color and name
+	 */
+	public static ChessPieceDescriptor of(PlayerColor color, PieceName name)
+	{
+		return BY_COLOR_AND_NAME[color.ordinal()][name.ordinal()];
+	}
 }
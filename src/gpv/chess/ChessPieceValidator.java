@@ -15,11 +15,20 @@ package gpv.chess;
 import gpv.util.*;
 
 /**
- * Description
+ * The movement rule for one kind of chess piece. Validators are stateless and
+ * shared, so anything about the moving piece itself (such as whether it has
+ * moved) is passed in.
  * @version Apr 3, 2020
  */
 @FunctionalInterface
 public interface ChessPieceValidator
 {
-	boolean check(Coordinate from, Coordinate to, Board b);
+	/**
+	 * @param piece the piece that is moving
+	 * @param from the square it is moving from
+	 * @param to the square it is moving to
+	 * @param b the board
+	 * @return true if the move is valid
+	 */
+	boolean check(ChessPiece piece, Coordinate from, Coordinate to, Board b);
 }
@@ -0,0 +1,512 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.util.Coordinate.makeCoordinate;
+import java.nio.ByteBuffer;
+import gpv.metrics.ValidationEvents;
+import gpv.util.*;
+
+/**
+ * Reads positions written in Forsyth-Edwards Notation onto a Board and writes
+ * boards back out as FEN.
+ * <br/>
+ * Pieces have no castling rights of their own, only hasMoved flags, so the
+ * castling field is translated: a king on its home row keeps hasMoved false
+ * when its side may castle, and so does a rook in a corner of that row when
+ * castling towards it is allowed (K or k for the last column, Q or q for the
+ * first). A pawn keeps hasMoved false only on its starting row. Every other
+ * piece is marked as moved. A BitboardBoard also takes the side to move and
+ * the en passant square; a plain Board has nowhere to keep them. The move
+ * counters are ignored when reading and written as "0 1". Ranks with more
+ * than 9 columns can use numbers of several digits, so boards of other sizes
+ * than 8x8 work as long as the placement fits them exactly.
+ * <br/>
+ * read() works straight off a CharSequence or the bytes of a ByteBuffer and
+ * fills a board the caller already has, taking its pieces from a pool kept by
+ * the Fen. Once the pool has grown to the largest position seen, reading
+ * allocates nothing. The flip side is that a read reuses the pieces of the
+ * previous read, so a board is only good until its Fen reads the next
+ * position; give each board its own Fen, or copy() the board to keep it.
+ * A Fen is not thread safe.
+ *
+ * @version Apr 22, 2020
+ */
+public final class Fen
+{
+	public static final String START =
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private static final String LETTERS = "pnbrqk";
+	private static final PieceName[] NAMES = { PieceName.PAWN, PieceName.KNIGHT,
+			PieceName.BISHOP, PieceName.ROOK, PieceName.QUEEN, PieceName.KING };
+
+	// castling right bits
+	private static final int WHITE_KING_SIDE = 1;
+	private static final int WHITE_QUEEN_SIDE = 2;
+	private static final int BLACK_KING_SIDE = 4;
+	private static final int BLACK_QUEEN_SIDE = 8;
+
+	private static final int FIELDS = 6;
+
+	private final PiecePool pool = new PiecePool();
+
+	// start and end of each field of the FEN being read
+	private final int[] starts = new int[FIELDS];
+	private final int[] ends = new int[FIELDS];
+
+	private final ByteChars bytes = new ByteChars();
+
+	/**
+	 * Set up a board with a position. The board is cleared first.
+	 *
+	 * @param fen the position; only the placement field is required
+	 * @param b the board, which must have as many rows and columns as the placement
+	 * @return the side to move
+	 * @throws IllegalArgumentException if the FEN is malformed or doesn't fit the board
+	 */
+	public PlayerColor read(CharSequence fen, Board b)
+	{
+		ValidationEvents events = ValidationEvents.installed();
+		Object event = events == null ? null : events.beginBoardReset();
+		PlayerColor side = setUp(fen, b);
+		if (event != null)
+		{
+			events.endBoardReset(event, b);
+		}
+		return side;
+	}
+
+	/**
+	 * read() without the events.
+	 */
+	private PlayerColor setUp(CharSequence fen, Board b)
+	{
+		int fields = split(fen);
+		if (fields == 0)
+		{
+			throw bad(fen);
+		}
+
+		int castling = fields > 2 ? castling(fen, starts[2], ends[2]) : 0;
+		PlayerColor side = fields > 1 ? side(fen, starts[1], ends[1]) : PlayerColor.WHITE;
+
+		b.clear();
+		pool.reset();
+		place(fen, starts[0], ends[0], castling, b);
+
+		if (b instanceof BitboardBoard)
+		{
+			BitboardBoard bitboards = (BitboardBoard) b;
+			bitboards.setSideToMove(side);
+			if (fields > 3)
+			{
+				bitboards.setEnPassantSquare(enPassant(fen, starts[3], ends[3], b));
+			}
+		}
+
+		return side;
+	}
+
+	/**
+	 * Set up a board with a position written in ASCII in the remaining bytes of
+	 * a buffer, from its position to its limit. The buffer's position is not
+	 * changed.
+	 *
+	 * @param fen the buffer, heap or direct
+	 * @param b the board
+	 * @return the side to move
+	 * @throws IllegalArgumentException if the FEN is malformed or doesn't fit the board
+	 */
+	public PlayerColor read(ByteBuffer fen, Board b)
+	{
+		bytes.wrap(fen, fen.position(), fen.remaining());
+		try
+		{
+			return read(bytes, b);
+		}
+		finally
+		{
+			bytes.wrap(null, 0, 0);
+		}
+	}
+
+	/**
+	 * @param b a board holding ChessPieces
+	 * @return the position in FEN
+	 */
+	public static String toFen(Board b)
+	{
+		StringBuilder sb = new StringBuilder(90);
+		write(b, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Append a board in FEN. Castling rights come from the hasMoved flags of
+	 * the kings and corner rooks, as read() sets them.
+	 *
+	 * @param b a board holding ChessPieces
+	 * @param out where to append it
+	 */
+	public static void write(Board b, StringBuilder out)
+	{
+		for (int row = b.nRows; row >= 1; row--)
+		{
+			int empty = 0;
+			for (int column = 1; column <= b.nColumns; column++)
+			{
+				ChessPiece p = (ChessPiece) b.getPieceAt(row, column);
+				if (p == null)
+				{
+					empty++;
+					continue;
+				}
+				if (empty > 0)
+				{
+					out.append(empty);
+					empty = 0;
+				}
+				out.append(letter(p.getDescriptor()));
+			}
+			if (empty > 0)
+			{
+				out.append(empty);
+			}
+			if (row > 1)
+			{
+				out.append('/');
+			}
+		}
+
+		BitboardBoard bitboards = b instanceof BitboardBoard ? (BitboardBoard) b : null;
+		out.append(bitboards != null && bitboards.getSideToMove() == PlayerColor.BLACK ? " b " : " w ");
+
+		int length = out.length();
+		appendCastling(b, PlayerColor.WHITE, 'K', 'Q', out);
+		appendCastling(b, PlayerColor.BLACK, 'k', 'q', out);
+		if (out.length() == length)
+		{
+			out.append('-');
+		}
+
+		int enPassant = bitboards == null ? BitboardBoard.NO_SQUARE : bitboards.getEnPassantSquare();
+		out.append(' ').append(enPassant == BitboardBoard.NO_SQUARE ? "-" : Move.squareName(enPassant));
+		out.append(" 0 1");
+	}
+
+	/**
+	 * Append the castling letters of a color: a letter for each unmoved corner
+	 * rook on the home row of an unmoved king.
+	 */
+	private static void appendCastling(Board b, PlayerColor color, char kingSide, char queenSide,
+			StringBuilder out)
+	{
+		int home = color == PlayerColor.WHITE ? 1 : b.nRows;
+		boolean unmovedKing = false;
+
+		for (int column = 1; column <= b.nColumns; column++)
+		{
+			unmovedKing |= isUnmoved(b, ChessPieceDescriptor.of(color, PieceName.KING), home, column);
+		}
+
+		if (unmovedKing)
+		{
+			ChessPieceDescriptor rook = ChessPieceDescriptor.of(color, PieceName.ROOK);
+			if (isUnmoved(b, rook, home, b.nColumns))
+			{
+				out.append(kingSide);
+			}
+			if (isUnmoved(b, rook, home, 1))
+			{
+				out.append(queenSide);
+			}
+		}
+	}
+
+	/**
+	 * @return true if that kind of piece is on the square and hasn't moved
+	 */
+	private static boolean isUnmoved(Board b, ChessPieceDescriptor d, int row, int column)
+	{
+		ChessPiece p = (ChessPiece) b.getPieceAt(row, column);
+		return p != null && p.getDescriptor() == d && !p.hasMoved();
+	}
+
+	/**
+	 * @param d a kind of piece
+	 * @return its FEN letter, upper case for white
+	 */
+	public static char letter(ChessPieceDescriptor d)
+	{
+		char c = LETTERS.charAt(nameIndex(d.getName()));
+		return d.getColor() == PlayerColor.WHITE ? Character.toUpperCase(c) : c;
+	}
+
+	/**
+	 * @param c a FEN piece letter
+	 * @return the descriptor, or null if c isn't a piece letter
+	 */
+	public static ChessPieceDescriptor descriptor(char c)
+	{
+		int index = LETTERS.indexOf(Character.toLowerCase(c));
+		return index < 0 ? null : ChessPieceDescriptor.of(
+				Character.isUpperCase(c) ? PlayerColor.WHITE : PlayerColor.BLACK, NAMES[index]);
+	}
+
+	/**
+	 * Find the fields, separated by white space.
+	 *
+	 * @return the number of fields found, at most FIELDS
+	 */
+	private int split(CharSequence fen)
+	{
+		int fields = 0;
+		int i = 0;
+		int length = fen.length();
+
+		while (fields < FIELDS)
+		{
+			while (i < length && fen.charAt(i) <= ' ')
+			{
+				i++;
+			}
+			if (i == length)
+			{
+				break;
+			}
+			starts[fields] = i;
+			while (i < length && fen.charAt(i) > ' ')
+			{
+				i++;
+			}
+			ends[fields++] = i;
+		}
+
+		return fields;
+	}
+
+	/**
+	 * Put the pieces of the placement field on the board.
+	 */
+	private void place(CharSequence fen, int start, int end, int castling, Board b)
+	{
+		int row = b.nRows;
+		int column = 1;
+
+		for (int i = start; i < end; i++)
+		{
+			char c = fen.charAt(i);
+
+			if (c == '/')
+			{
+				if (column != b.nColumns + 1 || row == 1)
+				{
+					throw bad(fen);
+				}
+				row--;
+				column = 1;
+			}
+			else if (c >= '1' && c <= '9')
+			{
+				int run = c - '0';
+				while (i + 1 < end && fen.charAt(i + 1) >= '0' && fen.charAt(i + 1) <= '9')
+				{
+					run = run * 10 + fen.charAt(++i) - '0';
+				}
+				column += run;
+			}
+			else
+			{
+				ChessPieceDescriptor d = descriptor(c);
+				if (d == null || column > b.nColumns)
+				{
+					throw bad(fen);
+				}
+
+				ChessPiece p = pool.take(d);
+				if (!unmoved(d, row, column, castling, b))
+				{
+					p.setHasMoved();
+				}
+				b.putPieceAt(p, makeCoordinate(row, column++));
+			}
+		}
+
+		if (row != 1 || column != b.nColumns + 1)
+		{
+			throw bad(fen);
+		}
+	}
+
+	/**
+	 * @return true if the piece should keep hasMoved false
+	 */
+	private static boolean unmoved(ChessPieceDescriptor d, int row, int column, int castling, Board b)
+	{
+		boolean white = d.getColor() == PlayerColor.WHITE;
+		int home = white ? 1 : b.nRows;
+		boolean kingSide = (castling & (white ? WHITE_KING_SIDE : BLACK_KING_SIDE)) != 0;
+		boolean queenSide = (castling & (white ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE)) != 0;
+
+		switch (d.getName())
+		{
+			case PAWN:
+				return row == (white ? 2 : b.nRows - 1);
+			case KING:
+				return row == home && (kingSide || queenSide);
+			case ROOK:
+				return row == home && (column == b.nColumns && kingSide || column == 1 && queenSide);
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @return the castling rights of the field
+	 */
+	private static int castling(CharSequence fen, int start, int end)
+	{
+		int rights = 0;
+
+		for (int i = start; i < end; i++)
+		{
+			switch (fen.charAt(i))
+			{
+				case 'K':
+					rights |= WHITE_KING_SIDE;
+					break;
+				case 'Q':
+					rights |= WHITE_QUEEN_SIDE;
+					break;
+				case 'k':
+					rights |= BLACK_KING_SIDE;
+					break;
+				case 'q':
+					rights |= BLACK_QUEEN_SIDE;
+					break;
+				case '-':
+					break;
+				default:
+					throw bad(fen);
+			}
+		}
+
+		return rights;
+	}
+
+	/**
+	 * @return the side to move of the field
+	 */
+	private static PlayerColor side(CharSequence fen, int start, int end)
+	{
+		if (end - start == 1 && fen.charAt(start) == 'w')
+		{
+			return PlayerColor.WHITE;
+		}
+		if (end - start == 1 && fen.charAt(start) == 'b')
+		{
+			return PlayerColor.BLACK;
+		}
+		throw bad(fen);
+	}
+
+	/**
+	 * @return the en passant square of the field, or NO_SQUARE
+	 */
+	private static int enPassant(CharSequence fen, int start, int end, Board b)
+	{
+		if (end - start == 1 && fen.charAt(start) == '-')
+		{
+			return BitboardBoard.NO_SQUARE;
+		}
+
+		int column = fen.charAt(start) - 'a' + 1;
+		int row = end - start == 2 ? fen.charAt(start + 1) - '0' : 0;
+		if (row < 1 || row > b.nRows || column < 1 || column > b.nColumns)
+		{
+			throw bad(fen);
+		}
+
+		return Bitboards.square(row, column);
+	}
+
+	/**
+	 * @return the place of a name in LETTERS and NAMES
+	 */
+	private static int nameIndex(PieceName name)
+	{
+		for (int i = 0; i < NAMES.length; i++)
+		{
+			if (NAMES[i] == name)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the exception for a malformed FEN
+	 */
+	private static IllegalArgumentException bad(CharSequence fen)
+	{
+		return new IllegalArgumentException("Bad FEN: " + fen);
+	}
+
+	/**
+	 * The bytes of a ByteBuffer seen as ASCII characters, without copying.
+	 */
+	private static final class ByteChars implements CharSequence
+	{
+		private ByteBuffer buffer;
+		private int offset;
+		private int length;
+
+		void wrap(ByteBuffer buffer, int offset, int length)
+		{
+			this.buffer = buffer;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length()
+		{
+			return length;
+		}
+
+		@Override
+		public char charAt(int index)
+		{
+			return (char) (buffer.get(offset + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end)
+		{
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder(length);
+			for (int i = 0; i < length; i++)
+			{
+				sb.append(charAt(i));
+			}
+			return sb.toString();
+		}
+	}
+}
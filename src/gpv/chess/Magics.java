@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.Bitboards.*;
+
+/**
+ * Magic multiplication attack tables for rooks and bishops. For every square
+ * the occupancy of the squares that can block the slider is multiplied by a
+ * magic number, and the top bits of the product index a table of precomputed
+ * attack sets. Looking up a slider's attacks is then one AND, one multiply,
+ * one shift and one array load.
+ * <br/>
+ * The magic numbers below were found with main(), which runs the same
+ * randomized search used to find them. Only the attack tables are built when
+ * the class is initialized, and each magic is verified while doing so.
+ *
+ * @version Apr 24, 2020
+ */
+final class Magics
+{
+	private static final long[] ROOK_MASK = new long[SQUARES];
+	private static final long[] ROOK_MAGIC = {
+		0x0380005488A04000L, 0x0040400010002000L, 0x2080082000100680L, 0x0100200408100100L,
+		0x9480028004000800L, 0x0200040801020090L, 0x0400080201300084L, 0x008000800DC02300L,
+		0x1040801020400084L, 0x090A804000842000L, 0x0A0D001220010044L, 0x0909001001004860L,
+		0x0002000422000810L, 0x8000800200040081L, 0x5040808002000100L, 0x008A000508844A0CL,
+		0xA000218000804010L, 0x0010004018402000L, 0x2410002020040800L, 0x0003A2000A0010C0L,
+		0x0208008008040080L, 0x0004808002000400L, 0x00F4040008021001L, 0x0808020024004081L,
+		0x8400800080204000L, 0x4002448A00230200L, 0x0801200280100081L, 0x0086080580100080L,
+		0x2008020040400400L, 0x408A000200081004L, 0x1022008040400100L, 0x0239004200008401L,
+		0x0080400C89800020L, 0xC300401002402000L, 0x0010080400202000L, 0x1001012009001001L,
+		0x0008800800800400L, 0x0884000480800200L, 0x0024011084000802L, 0x2048009502000844L,
+		0x6080228040018000L, 0xC200201004484001L, 0x1010008220028010L, 0x4008001000848008L,
+		0x5000040008008080L, 0x1024000200808004L, 0x8205080251240010L, 0x2028009041020004L,
+		0x0000800021005500L, 0x0301089020400100L, 0x0408401100200100L, 0x0204100302082100L,
+		0x0321008020401002L, 0x0142000411088200L, 0x0040280150020400L, 0x0021810044008200L,
+		0x0200102481004202L, 0xC000400010810021L, 0x0001010A90A00041L, 0x400A201000EC0901L,
+		0x0000950800650011L, 0x0062000410080102L, 0x4100010250008804L, 0x0400040840810822L
+	};
+	private static final int[] ROOK_SHIFT = new int[SQUARES];
+	private static final int[] ROOK_OFFSET = new int[SQUARES];
+	private static final long[] ROOK_TABLE;
+
+	private static final long[] BISHOP_MASK = new long[SQUARES];
+	private static final long[] BISHOP_MAGIC = {
+		0x20A0428202002A00L, 0x00A0080900548400L, 0x24900C0440485004L, 0x2008204048111801L,
+		0x2001104004023000L, 0x1012880442000140L, 0xC001240202400006L, 0x2002020218820841L,
+		0x0042A00210010108L, 0xD140223081050302L, 0x800084090E020800L, 0x0007020A02004000L,
+		0x0180045040050000L, 0x2010190403404080L, 0x0000012811102842L, 0x0220C23202022020L,
+		0x0008042109510802L, 0x021044201A40C100L, 0x0004041820E0A200L, 0x8101081804110004L,
+		0x2084810400A00200L, 0x2841000330080400L, 0x0042028402210480L, 0x0029080C24010481L,
+		0x0004200004089000L, 0x1002420060880200L, 0x5008041002040810L, 0x0421040040440080L,
+		0x0149001011004008L, 0x0448020280404200L, 0x0140808009041049L, 0x0222002044410849L,
+		0x8004C24000200414L, 0x0002482010020200L, 0x0404005441080200L, 0x400A004040040100L,
+		0x4040008020020021L, 0x0060080040002401L, 0x0402021848240404L, 0x8110820600548080L,
+		0x08C11808040040F0L, 0x0004880848003300L, 0x4241008041021020L, 0x0820812011000814L,
+		0x0210100602001090L, 0x060A189018800100L, 0x0684106082023500L, 0x04C1024202000040L,
+		0x00005208200810C2L, 0x0000404410080100L, 0x2002208C00881102L, 0x0080088184140040L,
+		0x8300422012441900L, 0x0200042024044102L, 0x81080210AC010104L, 0x0089012808890000L,
+		0x48A6002E08040401L, 0x0000811288011814L, 0x08308101288C1040L, 0x0000080008208800L,
+		0x2050800041104101L, 0x0288234090024081L, 0x0800C41010410119L, 0x0828811004190022L
+	};
+	private static final int[] BISHOP_SHIFT = new int[SQUARES];
+	private static final int[] BISHOP_OFFSET = new int[SQUARES];
+	private static final long[] BISHOP_TABLE;
+
+	// the outer ring of the board, which never blocks a slider
+	private static final long FIRST_ROW = 0xFFL;
+	private static final long LAST_ROW = 0xFFL << 56;
+	private static final long FIRST_COLUMN = 0x0101010101010101L;
+	private static final long LAST_COLUMN = FIRST_COLUMN << 7;
+
+	// state of the xorshift generator used by the search in main()
+	private static long seed = 0x4233_2020_0D0C_0BADL;
+
+	static
+	{
+		int rookSize = 0;
+		int bishopSize = 0;
+
+		for (int sq = 0; sq < SQUARES; sq++)
+		{
+			long rowEdges = (FIRST_ROW | LAST_ROW) & ~rowMask(sq);
+			long columnEdges = (FIRST_COLUMN | LAST_COLUMN) & ~columnMask(sq);
+
+			ROOK_MASK[sq] = Bitboards.rookRayAttacks(sq, 0L) & ~(rowEdges | columnEdges);
+			BISHOP_MASK[sq] = Bitboards.bishopRayAttacks(sq, 0L)
+					& ~(FIRST_ROW | LAST_ROW | FIRST_COLUMN | LAST_COLUMN);
+
+			ROOK_SHIFT[sq] = 64 - Long.bitCount(ROOK_MASK[sq]);
+			BISHOP_SHIFT[sq] = 64 - Long.bitCount(BISHOP_MASK[sq]);
+
+			ROOK_OFFSET[sq] = rookSize;
+			BISHOP_OFFSET[sq] = bishopSize;
+			rookSize += 1 << Long.bitCount(ROOK_MASK[sq]);
+			bishopSize += 1 << Long.bitCount(BISHOP_MASK[sq]);
+		}
+
+		ROOK_TABLE = new long[rookSize];
+		BISHOP_TABLE = new long[bishopSize];
+
+		for (int sq = 0; sq < SQUARES; sq++)
+		{
+			if (!tryMagic(sq, true, ROOK_MAGIC[sq], ROOK_TABLE)
+					|| !tryMagic(sq, false, BISHOP_MAGIC[sq], BISHOP_TABLE))
+			{
+				throw new IllegalStateException("Bad magic number for square " + sq);
+			}
+		}
+	}
+
+	/**
+	 * Static helpers only.
+	 */
+	private Magics()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * @param sq the rook's square
+	 * @param occupied every occupied square
+	 * @return the squares a rook on sq attacks
+	 */
+	static long rookAttacks(int sq, long occupied)
+	{
+		return ROOK_TABLE[ROOK_OFFSET[sq]
+				+ (int) (((occupied & ROOK_MASK[sq]) * ROOK_MAGIC[sq]) >>> ROOK_SHIFT[sq])];
+	}
+
+	/**
+	 * @param sq the bishop's square
+	 * @param occupied every occupied square
+	 * @return the squares a bishop on sq attacks
+	 */
+	static long bishopAttacks(int sq, long occupied)
+	{
+		return BISHOP_TABLE[BISHOP_OFFSET[sq]
+				+ (int) (((occupied & BISHOP_MASK[sq]) * BISHOP_MAGIC[sq]) >>> BISHOP_SHIFT[sq])];
+	}
+
+	/**
+	 * Fill in one square's part of an attack table using the given magic.
+	 *
+	 * @param sq the square
+	 * @param rook true for rook attacks, false for bishop attacks
+	 * @param magic the magic number to try
+	 * @param table the table to fill in, laid out like ROOK_TABLE or BISHOP_TABLE
+	 * @return false if two occupancies with different attacks share an entry
+	 */
+	private static boolean tryMagic(int sq, boolean rook, long magic, long[] table)
+	{
+		long mask = rook ? ROOK_MASK[sq] : BISHOP_MASK[sq];
+		int shift = rook ? ROOK_SHIFT[sq] : BISHOP_SHIFT[sq];
+		int offset = rook ? ROOK_OFFSET[sq] : BISHOP_OFFSET[sq];
+		int size = 1 << Long.bitCount(mask);
+		boolean[] used = new boolean[size];
+
+		// walk every subset of the mask
+		long subset = 0;
+		for (int i = 0; i < size; i++)
+		{
+			long attacks = rook ? Bitboards.rookRayAttacks(sq, subset)
+					: Bitboards.bishopRayAttacks(sq, subset);
+			int index = (int) ((subset * magic) >>> shift);
+
+			if (!used[index])
+			{
+				used[index] = true;
+				table[offset + index] = attacks;
+			}
+			else if (table[offset + index] != attacks)
+			{
+				return false;
+			}
+
+			subset = (subset - mask) & mask;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Search for new magic numbers and print them in the form used above. The
+	 * candidates are tried in tables of the search's own, so the ones the
+	 * attack lookups use are never touched.
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args)
+	{
+		for (int kind = 0; kind < 2; kind++)
+		{
+			boolean rook = kind == 0;
+			System.out.println(rook ? "ROOK_MAGIC" : "BISHOP_MAGIC");
+			long[] scratch = new long[rook ? ROOK_TABLE.length : BISHOP_TABLE.length];
+
+			for (int sq = 0; sq < SQUARES; sq++)
+			{
+				long mask = rook ? ROOK_MASK[sq] : BISHOP_MASK[sq];
+				long magic;
+
+				// sparse candidates that spread the mask into the top bits work best
+				do
+				{
+					magic = nextRandom() & nextRandom() & nextRandom();
+				}
+				while (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6
+						|| !tryMagic(sq, rook, magic, scratch));
+
+				System.out.printf("0x%016XL,%s", magic, sq % 4 == 3 ? "\n" : " ");
+			}
+		}
+	}
+
+	/**
+	 * @return the next value of the xorshift64* generator
+	 */
+	private static long nextRandom()
+	{
+		seed ^= seed >>> 12;
+		seed ^= seed << 25;
+		seed ^= seed >>> 27;
+		return seed * 0x2545F4914F6CDD1DL;
+	}
+
+	/**
+	 * @param sq a square
+	 * @return every square in the same row
+	 */
+	private static long rowMask(int sq)
+	{
+		return FIRST_ROW << (sq & ~7);
+	}
+
+	/**
+	 * @param sq a square
+	 * @return every square in the same column
+	 */
+	private static long columnMask(int sq)
+	{
+		return FIRST_COLUMN << (sq & 7);
+	}
+}
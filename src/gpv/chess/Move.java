@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+/**
+ * Moves on an 8x8 board packed into an int so that they can be kept in
+ * primitive buffers. Bits 0-5 hold the from square, bits 6-11 the to square
+ * (both numbered as in Bitboards) and bits 12-15 a flag that tells what kind
+ * of move it is.
+ *
+ * @version Apr 14, 2020
+ */
+public final class Move
+{
+	public static final int QUIET = 0;
+	public static final int DOUBLE_PAWN_PUSH = 1;
+	public static final int KING_CASTLE = 2;		// towards column 8
+	public static final int QUEEN_CASTLE = 3;		// towards column 1
+	public static final int CAPTURE = 4;
+	public static final int EN_PASSANT = 5;
+
+	// promotions have bit 3 of the flag set, and also bit 2 if they capture
+	public static final int KNIGHT_PROMOTION = 8;
+	public static final int BISHOP_PROMOTION = 9;
+	public static final int ROOK_PROMOTION = 10;
+	public static final int QUEEN_PROMOTION = 11;
+	public static final int KNIGHT_PROMOTION_CAPTURE = 12;
+	public static final int BISHOP_PROMOTION_CAPTURE = 13;
+	public static final int ROOK_PROMOTION_CAPTURE = 14;
+	public static final int QUEEN_PROMOTION_CAPTURE = 15;
+
+	private static final PieceName[] PROMOTIONS = {
+			PieceName.KNIGHT, PieceName.BISHOP, PieceName.ROOK, PieceName.QUEEN };
+
+	/**
+	 * Static helpers only.
+	 */
+	private Move()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * @param from the from square
+	 * @param to the to square
+	 * @param flag one of the flag constants
+	 * @return the packed move
+	 */
+	public static int make(int from, int to, int flag)
+	{
+		return from | (to << 6) | (flag << 12);
+	}
+
+	/**
+	 * @param move a packed move
+	 * @return the from square
+	 */
+	public static int from(int move)
+	{
+		return move & 0x3F;
+	}
+
+	/**
+	 * @param move a packed move
+	 * @return the to square
+	 */
+	public static int to(int move)
+	{
+		return (move >>> 6) & 0x3F;
+	}
+
+	/**
+	 * @param move a packed move
+	 * @return the flag
+	 */
+	public static int flag(int move)
+	{
+		return (move >>> 12) & 0xF;
+	}
+
+	/**
+	 * @param move a packed move
+	 * @return true if the move takes a piece, including en passant
+	 */
+	public static boolean isCapture(int move)
+	{
+		return (flag(move) & CAPTURE) != 0;
+	}
+
+	/**
+	 * @param move a packed move
+	 * @return true if the move promotes a pawn
+	 */
+	public static boolean isPromotion(int move)
+	{
+		return (flag(move) & 8) != 0;
+	}
+
+	/**
+	 * @param move a packed move
+	 * @return true if the move is a castling move
+	 */
+	public static boolean isCastle(int move)
+	{
+		return flag(move) == KING_CASTLE || flag(move) == QUEEN_CASTLE;
+	}
+
+	/**
+	 * @param move a packed move that is a promotion
+	 * @return the kind of piece the pawn becomes
+	 */
+	public static PieceName promotion(int move)
+	{
+		return PROMOTIONS[flag(move) & 3];
+	}
+
+	/**
+	 * @param sq a square number
+	 * @return the square in algebraic form, e.g. "e2" for (2, 5)
+	 */
+	public static String squareName(int sq)
+	{
+		return "" + (char) ('a' + (sq & 7)) + (char) ('1' + (sq >>> 3));
+	}
+
+	/**
+	 * @param move a packed move
+	 * @return the move in coordinate notation, e.g. "e2e4" or "a7a8q"
+	 */
+	public static String toString(int move)
+	{
+		String s = squareName(from(move)) + squareName(to(move));
+
+		if (isPromotion(move))
+		{
+			s += "nbrq".charAt(flag(move) & 3);
+		}
+
+		return s;
+	}
+}
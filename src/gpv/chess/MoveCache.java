@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.Bitboards.*;
+import gpv.cache.TranspositionTable;
+
+/**
+ * Remembers, for a piece on a square of a position, every square it can move
+ * to along with whether its side is in check and whether the piece is pinned.
+ * Once a BitboardBoard has a MoveCache, canMove() answers from it, working
+ * out and storing the whole answer for the piece the first time it is asked.
+ * That pays off when the same positions are validated again and again, as
+ * when clients replay games.
+ * <br/>
+ * Entries are keyed by the board's Zobrist key combined with the square and
+ * the hasMoved flags the answer depends on that the key doesn't cover: the
+ * moving piece's own flag, and the flags of the rooks in the corners of a
+ * king's row. The table is lock-free, so one MoveCache can be shared by
+ * boards on different threads.
+ *
+ * @version Apr 19, 2020
+ */
+public final class MoveCache
+{
+	// bits of the status
+	public static final int IN_CHECK = 1;
+	public static final int PINNED = 2;
+
+	private final TranspositionTable table;
+
+	// each thread's entry to probe into, so that a cached answer allocates nothing
+	private final ThreadLocal<long[]> entries = ThreadLocal.withInitial(() -> new long[2]);
+
+	/**
+	 * @param entries the number of entries; see TranspositionTable
+	 */
+	public MoveCache(int entries)
+	{
+		this(new TranspositionTable(entries));
+	}
+
+	/**
+	 * @param table the table to keep the entries in
+	 */
+	public MoveCache(TranspositionTable table)
+	{
+		this.table = table;
+	}
+
+	/**
+	 * @return the table
+	 */
+	public TranspositionTable getTable()
+	{
+		return table;
+	}
+
+	/**
+	 * @param piece the piece the move is asked of
+	 * @param from the occupied square it moves from
+	 * @param b the board
+	 * @return every square canMove() accepts for the piece on from
+	 */
+	public long getTargets(ChessPiece piece, int from, BitboardBoard b)
+	{
+		long[] entry = entries.get();
+		lookup(piece, from, b, entry);
+		return entry[0];
+	}
+
+	/**
+	 * @param piece the piece the move is asked of
+	 * @param from the occupied square it moves from
+	 * @param b the board
+	 * @return IN_CHECK and PINNED bits for the piece on from
+	 */
+	public int getStatus(ChessPiece piece, int from, BitboardBoard b)
+	{
+		long[] entry = entries.get();
+		lookup(piece, from, b, entry);
+		return (int) entry[1];
+	}
+
+	/**
+	 * Fill in the entry from the table, working it out and storing it first
+	 * if it isn't there.
+	 */
+	private void lookup(ChessPiece piece, int from, BitboardBoard b, long[] entry)
+	{
+		long key = b.getKey() ^ Zobrist.query(from, flags(piece, from, b));
+
+		if (!table.probe(key, entry))
+		{
+			ChessPiece moving = b.getPieceAt(from);
+			entry[0] = BitboardValidator.targets(piece, from, b);
+			entry[1] = (MoveGenerator.isInCheck(b, moving.getColor()) ? IN_CHECK : 0)
+					| (MoveGenerator.isPinned(b, from) ? PINNED : 0);
+			table.store(key, entry[0], (int) entry[1], 0);
+		}
+	}
+
+	/**
+	 * @return the hasMoved flags the answer for from depends on
+	 */
+	private static int flags(ChessPiece piece, int from, BitboardBoard b)
+	{
+		int flags = piece.hasMoved() ? 1 : 0;
+
+		if (b.getPieceAt(from).getName() == PieceName.KING)
+		{
+			flags |= moved(b, square(row(from), SIZE)) ? 2 : 0;
+			flags |= moved(b, square(row(from), 1)) ? 4 : 0;
+		}
+
+		return flags;
+	}
+
+	/**
+	 * @return true if the square holds a piece that has moved
+	 */
+	private static boolean moved(BitboardBoard b, int sq)
+	{
+		ChessPiece p = b.getPieceAt(sq);
+		return p != null && p.hasMoved();
+	}
+}
@@ -0,0 +1,436 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.Bitboards.*;
+import static gpv.chess.PieceName.*;
+import gpv.metrics.ValidationEvents;
+
+/**
+ * Lists every move one side can make on a BitboardBoard, written as packed
+ * Moves into a caller supplied int[] so that nothing is allocated.
+ * <br/>
+ * Pseudo-legal moves follow the same rules as ChessPiece.canMove(): every
+ * generated move is one canMove() accepts. Pawn double pushes and castling
+ * look at the hasMoved flags of the pieces, as canMove() does. On top of that
+ * the generator produces the four promotions for a pawn reaching the last row
+ * and en passant captures onto the board's en passant square.
+ * <br/>
+ * Legal moves are the pseudo-legal moves that don't leave the mover's king
+ * attacked. Castling is also not allowed out of or through check. The test is
+ * done on the occupancy masks as they would be after the move, so the board
+ * is never changed. A side without a king has no legality constraint.
+ *
+ * @version Apr 14, 2020
+ */
+public final class MoveGenerator
+{
+	/**
+	 * A buffer of this size can hold the moves of any position.
+	 */
+	public static final int MAX_MOVES = 256;
+
+	/**
+	 * Static helpers only.
+	 */
+	private MoveGenerator()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * Write the legal moves for a side into moves.
+	 *
+	 * @param b the board
+	 * @param side the side to move
+	 * @param moves the buffer, at least MAX_MOVES long
+	 * @return the number of moves written
+	 */
+	public static int generateLegal(BitboardBoard b, PlayerColor side, int[] moves)
+	{
+		ValidationEvents events = ValidationEvents.installed();
+		Object event = events == null ? null : events.beginMoveGeneration();
+		int count = legal(b, side, moves);
+		if (event != null)
+		{
+			events.endMoveGeneration(event, b, true, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Write the pseudo-legal moves for a side into moves.
+	 *
+	 * @param b the board
+	 * @param side the side to move
+	 * @param moves the buffer, at least MAX_MOVES long
+	 * @return the number of moves written
+	 */
+	public static int generatePseudoLegal(BitboardBoard b, PlayerColor side, int[] moves)
+	{
+		ValidationEvents events = ValidationEvents.installed();
+		Object event = events == null ? null : events.beginMoveGeneration();
+		int count = pseudoLegal(b, side, moves);
+		if (event != null)
+		{
+			events.endMoveGeneration(event, b, false, count);
+		}
+		return count;
+	}
+
+	/**
+	 * generateLegal() without the events.
+	 */
+	private static int legal(BitboardBoard b, PlayerColor side, int[] moves)
+	{
+		int count = pseudoLegal(b, side, moves);
+		int legal = 0;
+
+		for (int i = 0; i < count; i++)
+		{
+			if (isLegal(b, side, moves[i]))
+			{
+				moves[legal++] = moves[i];
+			}
+		}
+
+		return legal;
+	}
+
+	/**
+	 * generatePseudoLegal() without the events.
+	 */
+	private static int pseudoLegal(BitboardBoard b, PlayerColor side, int[] moves)
+	{
+		long own = b.getPieces(side);
+		long enemy = b.getPieces(side.opponent());
+		long occupied = b.getOccupied();
+		int count = generatePawnMoves(b, side, enemy, occupied, moves, 0);
+
+		long knights = b.getPieces(side, KNIGHT);
+		while (knights != 0)
+		{
+			int from = Long.numberOfTrailingZeros(knights);
+			knights &= knights - 1;
+			count = addMoves(from, KNIGHT_ATTACKS[from] & ~own, enemy, moves, count);
+		}
+
+		long diagonal = b.getPieces(side, BISHOP) | b.getPieces(side, QUEEN);
+		while (diagonal != 0)
+		{
+			int from = Long.numberOfTrailingZeros(diagonal);
+			diagonal &= diagonal - 1;
+			count = addMoves(from, bishopAttacks(from, occupied) & ~own, enemy, moves, count);
+		}
+
+		long straight = b.getPieces(side, ROOK) | b.getPieces(side, QUEEN);
+		while (straight != 0)
+		{
+			int from = Long.numberOfTrailingZeros(straight);
+			straight &= straight - 1;
+			count = addMoves(from, rookAttacks(from, occupied) & ~own, enemy, moves, count);
+		}
+
+		long kings = b.getPieces(side, KING);
+		while (kings != 0)
+		{
+			int from = Long.numberOfTrailingZeros(kings);
+			kings &= kings - 1;
+			count = addMoves(from, kingTargets(b, side, from, own), enemy, moves, count);
+			count = generateCastling(b, side, from, moves, count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * As canMove() requires, the king doesn't step onto a square the other side
+	 * attacks, counting the squares behind it on the line of a checking slider.
+	 */
+	private static long kingTargets(BitboardBoard b, PlayerColor side, int from, long own)
+	{
+		long targets = KING_ATTACKS[from] & ~own;
+		long occupied = b.getOccupied() & ~(1L << from);
+		long safe = 0L;
+
+		while (targets != 0)
+		{
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			if (!isAttacked(b, to, side.opponent(), occupied, 0L))
+			{
+				safe |= 1L << to;
+			}
+		}
+
+		return safe;
+	}
+
+	/**
+	 * Add a move from one square to each of the targets.
+	 */
+	private static int addMoves(int from, long targets, long enemy, int[] moves, int count)
+	{
+		while (targets != 0)
+		{
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			moves[count++] = Move.make(from, to, (enemy & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Pushes, double pushes, captures, promotions and en passant.
+	 */
+	private static int generatePawnMoves(BitboardBoard b, PlayerColor side, long enemy,
+			long occupied, int[] moves, int count)
+	{
+		int forward = side == PlayerColor.WHITE ? SIZE : -SIZE;
+		int lastRow = side == PlayerColor.WHITE ? SIZE : 1;
+		int enPassant = b.getEnPassantSquare();
+		long[] attacks = PAWN_ATTACKS[side.ordinal()];
+
+		// an en passant capture needs an enemy pawn on the square behind it
+		if (enPassant != BitboardBoard.NO_SQUARE
+				&& (b.getPieces(side.opponent(), PAWN) & (1L << (enPassant - forward))) == 0)
+		{
+			enPassant = BitboardBoard.NO_SQUARE;
+		}
+
+		long pawns = b.getPieces(side, PAWN);
+		while (pawns != 0)
+		{
+			int from = Long.numberOfTrailingZeros(pawns);
+			pawns &= pawns - 1;
+			int one = from + forward;
+
+			if (one >= 0 && one < SQUARES && (occupied & (1L << one)) == 0)
+			{
+				count = addPawnMove(from, one, false, lastRow, moves, count);
+
+				int two = one + forward;
+				if (two >= 0 && two < SQUARES && (occupied & (1L << two)) == 0
+						&& !b.getPieceAt(from).hasMoved())
+				{
+					moves[count++] = Move.make(from, two, Move.DOUBLE_PAWN_PUSH);
+				}
+			}
+
+			long captures = attacks[from] & enemy;
+			while (captures != 0)
+			{
+				int to = Long.numberOfTrailingZeros(captures);
+				captures &= captures - 1;
+				count = addPawnMove(from, to, true, lastRow, moves, count);
+			}
+
+			if (enPassant != BitboardBoard.NO_SQUARE && (attacks[from] & (1L << enPassant)) != 0)
+			{
+				moves[count++] = Move.make(from, enPassant, Move.EN_PASSANT);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Add a pawn move, or the four promotions if it reaches the last row.
+	 */
+	private static int addPawnMove(int from, int to, boolean capture, int lastRow,
+			int[] moves, int count)
+	{
+		if (row(to) == lastRow)
+		{
+			int base = capture ? Move.KNIGHT_PROMOTION_CAPTURE : Move.KNIGHT_PROMOTION;
+			for (int promotion = 0; promotion < 4; promotion++)
+			{
+				moves[count++] = Move.make(from, to, base + promotion);
+			}
+		}
+		else
+		{
+			moves[count++] = Move.make(from, to, capture ? Move.CAPTURE : Move.QUIET);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Castling follows ChessPiece.checkValidCastling(): the king and the rook on
+	 * column 8 (or 1) of the king's row haven't moved, every square between
+	 * them is empty, and the king is not in check and doesn't pass through or
+	 * land on an attacked square. The king moves two squares towards the rook.
+	 */
+	private static int generateCastling(BitboardBoard b, PlayerColor side, int king,
+			int[] moves, int count)
+	{
+		if (b.getPieceAt(king).hasMoved())
+		{
+			return count;
+		}
+
+		int row = row(king);
+		int column = column(king);
+
+		if (column + 2 <= SIZE && canCastle(b, side, king, square(row, SIZE), king + 2))
+		{
+			moves[count++] = Move.make(king, king + 2, Move.KING_CASTLE);
+		}
+
+		if (column - 2 >= 1 && canCastle(b, side, king, square(row, 1), king - 2))
+		{
+			moves[count++] = Move.make(king, king - 2, Move.QUEEN_CASTLE);
+		}
+
+		return count;
+	}
+
+	/**
+	 * @return true if there is an unmoved rook on rook, nothing between it and
+	 *         the king, nothing on the king's destination, and no check on the way
+	 */
+	private static boolean canCastle(BitboardBoard b, PlayerColor side, int king, int rook, int to)
+	{
+		AttackMap attacks = b.getAttackMap();
+		PlayerColor enemy = side.opponent();
+
+		return (b.getPieces(side, ROOK) & (1L << rook)) != 0
+				&& !b.getPieceAt(rook).hasMoved()
+				&& ((between(king, rook) | (1L << to)) & b.getOccupied()) == 0
+				&& !attacks.isSquareAttacked(king, enemy)
+				&& !attacks.isSquareAttacked((king + to) >>> 1, enemy)
+				&& !attacks.isSquareAttacked(to, enemy);
+	}
+
+	/**
+	 * Determine whether a pseudo-legal move leaves the mover's king safe.
+	 *
+	 * @param b the board
+	 * @param side the side making the move
+	 * @param move a pseudo-legal move for side
+	 * @return true if the move is legal
+	 */
+	public static boolean isLegal(BitboardBoard b, PlayerColor side, int move)
+	{
+		long kings = b.getPieces(side, KING);
+		if (kings == 0)
+		{
+			return true;
+		}
+
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int flag = Move.flag(move);
+		PlayerColor enemy = side.opponent();
+		long occupied = b.getOccupied();
+
+		if (flag == Move.KING_CASTLE || flag == Move.QUEEN_CASTLE)
+		{
+			// not out of check, and not through an attacked square
+			int passed = (from + to) >>> 1;
+			if (isAttacked(b, from, enemy, occupied, 0L) || isAttacked(b, passed, enemy, occupied, 0L))
+			{
+				return false;
+			}
+		}
+
+		long captured = 0L;
+		if (flag == Move.EN_PASSANT)
+		{
+			captured = 1L << (to - (side == PlayerColor.WHITE ? SIZE : -SIZE));
+		}
+		else if (Move.isCapture(move))
+		{
+			captured = 1L << to;
+		}
+
+		long after = (occupied & ~(1L << from) & ~captured) | (1L << to);
+		int king = (kings & (1L << from)) != 0 ? to : Long.numberOfTrailingZeros(kings);
+
+		return !isAttacked(b, king, enemy, after, captured);
+	}
+
+	/**
+	 * @param b the board
+	 * @param side a color
+	 * @return true if a king of that color is attacked
+	 */
+	public static boolean isInCheck(BitboardBoard b, PlayerColor side)
+	{
+		long kings = b.getPieces(side, KING);
+		return kings != 0
+				&& isAttacked(b, Long.numberOfTrailingZeros(kings), side.opponent(), b.getOccupied(), 0L);
+	}
+
+	/**
+	 * A piece is pinned if taking it off the board would let an enemy rook,
+	 * bishop or queen attack its king through the square it is on.
+	 *
+	 * @param b the board
+	 * @param sq an occupied square
+	 * @return true if the piece on sq is pinned to its king
+	 */
+	public static boolean isPinned(BitboardBoard b, int sq)
+	{
+		PlayerColor side = b.getPieceAt(sq).getColor();
+		long kings = b.getPieces(side, KING) & ~(1L << sq);
+		if (kings == 0)
+		{
+			return false;
+		}
+
+		int king = Long.numberOfTrailingZeros(kings);
+		long occupied = b.getOccupied() & ~(1L << sq);
+		PlayerColor enemy = side.opponent();
+		long queens = b.getPieces(enemy, QUEEN);
+		long snipers = (rookAttacks(king, occupied) & (b.getPieces(enemy, ROOK) | queens))
+				| (bishopAttacks(king, occupied) & (b.getPieces(enemy, BISHOP) | queens));
+
+		while (snipers != 0)
+		{
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			if ((between(king, sniper) & (1L << sq)) != 0)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Determine whether any piece of one color attacks a square.
+	 *
+	 * @param b the board
+	 * @param sq the square
+	 * @param by the attacking color
+	 * @param occupied the occupancy to use for sliders
+	 * @param removed attacking pieces to ignore, e.g. because they were just captured
+	 * @return true if the square is attacked
+	 */
+	static boolean isAttacked(BitboardBoard b, int sq, PlayerColor by, long occupied, long removed)
+	{
+		long keep = ~removed;
+		long queens = b.getPieces(by, QUEEN);
+
+		// a pawn of one color attacks sq if a pawn of the other color on sq would attack it
+		return (PAWN_ATTACKS[by.opponent().ordinal()][sq] & b.getPieces(by, PAWN) & keep) != 0
+				|| (KNIGHT_ATTACKS[sq] & b.getPieces(by, KNIGHT) & keep) != 0
+				|| (KING_ATTACKS[sq] & b.getPieces(by, KING) & keep) != 0
+				|| (bishopAttacks(sq, occupied) & (b.getPieces(by, BISHOP) | queens) & keep) != 0
+				|| (rookAttacks(sq, occupied) & (b.getPieces(by, ROOK) | queens) & keep) != 0;
+	}
+}
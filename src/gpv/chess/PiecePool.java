@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import java.util.Arrays;
+
+/**
+ * ChessPieces handed out again and again to set up one board after another,
+ * so that filling a board allocates nothing once the pool has as many pieces
+ * of each kind as the largest position needed. reset() takes every piece
+ * back, which is only safe once the board holding them is about to be
+ * refilled. Not thread safe.
+ *
+ * @version Apr 23, 2020
+ */
+final class PiecePool
+{
+	// indexed by ChessPieceDescriptor ordinal, the pieces handed out so far
+	private final ChessPiece[][] pool = new ChessPiece[ChessPieceDescriptor.values().length][];
+	private final int[] used = new int[ChessPieceDescriptor.values().length];
+	private final ChessPieceFactory factory = new ChessPieceFactory();
+
+	/**
+	 * Take every piece back.
+	 */
+	void reset()
+	{
+		Arrays.fill(used, 0);
+	}
+
+	/**
+	 * @param d the kind of piece
+	 * @return a piece from the pool, with hasMoved false
+	 */
+	ChessPiece take(ChessPieceDescriptor d)
+	{
+		int kind = d.ordinal();
+		ChessPiece[] pieces = pool[kind];
+
+		if (pieces == null || used[kind] == pieces.length)
+		{
+			pieces = Arrays.copyOf(pieces == null ? new ChessPiece[0] : pieces,
+					Math.max(8, used[kind] * 2));
+			for (int i = used[kind]; i < pieces.length; i++)
+			{
+				pieces[i] = factory.makePiece(d);
+			}
+			pool[kind] = pieces;
+		}
+
+		ChessPiece p = pieces[used[kind]++];
+		p.clearHasMoved();
+		return p;
+	}
+}
@@ -15,9 +15,17 @@ package gpv.chess;
 /**
  * A very simple enumeration for the two colors used in chess. Used in the
  * ChessPieceDescriptor.
- * @version Feb 23, 2020
+ * @version Apr 24, 2020
  */
 public enum PlayerColor
 {
 	WHITE, BLACK;
+	
+	/**
+	 * @return the other color
+	 */
+	public PlayerColor opponent()
+	{
+		return this == WHITE ? BLACK : WHITE;
+	}
 }
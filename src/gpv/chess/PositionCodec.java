@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.Bitboards.*;
+import static gpv.util.Coordinate.makeCoordinate;
+import java.nio.ByteBuffer;
+import gpv.metrics.ValidationEvents;
+import gpv.util.Board;
+
+/**
+ * A compact binary form of an 8x8 board and the state of its pieces, for
+ * storing positions and sending them over the wire. For n pieces it takes
+ * 9 + ceil(n / 2) + ceil(n / 8) bytes, 29 for the starting position:
+ * <ul>
+ * <li>8 bytes: the occupied squares as a bitboard, most significant byte first</li>
+ * <li>ceil(n / 2) bytes: the ChessPieceDescriptor ordinal of each piece in 4
+ * bits, in square order, the first piece in the high half of a byte</li>
+ * <li>ceil(n / 8) bytes: the hasMoved flag of each piece in square order, the
+ * first piece in the lowest bit of a byte</li>
+ * <li>1 byte: 0x80 if black is to move, plus the en passant square, or 0x7F
+ * if there is none</li>
+ * </ul>
+ * A plain 8x8 Board has no side to move or en passant square, so it is
+ * written with white to move and none.
+ * <br/>
+ * encode() and decode() use the relative get and put methods of the buffer,
+ * so several positions can be written one after the other, and work on heap
+ * and direct buffers alike. decode() fills a board the caller already has
+ * with pieces from a pool kept by the codec, so it allocates nothing once the
+ * pool is warm; as with Fen, the pieces are reused by the next decode(). A
+ * codec is not thread safe.
+ *
+ * @version Apr 23, 2020
+ */
+public final class PositionCodec
+{
+	/**
+	 * The most bytes a position can take, with a piece on every square.
+	 */
+	public static final int MAX_BYTES = 8 + SQUARES / 2 + SQUARES / 8 + 1;
+
+	private static final int BLACK_TO_MOVE = 0x80;
+	private static final int NO_EN_PASSANT = 0x7F;
+
+	private static final ChessPieceDescriptor[] DESCRIPTORS = ChessPieceDescriptor.values();
+
+	private final PiecePool pool = new PiecePool();
+
+	/**
+	 * @param b an 8x8 board
+	 * @return the number of bytes encode() writes for it
+	 */
+	public static int size(Board b)
+	{
+		int n = Long.bitCount(occupied(b));
+		return 9 + (n + 1) / 2 + (n + 7) / 8;
+	}
+
+	/**
+	 * Write a board at the buffer's position, advancing it.
+	 *
+	 * @param b an 8x8 board
+	 * @param out the buffer
+	 * @return the number of bytes written
+	 * @throws IllegalArgumentException if the board isn't 8x8
+	 * @throws java.nio.BufferOverflowException if the buffer is too small
+	 */
+	public static int encode(Board b, ByteBuffer out)
+	{
+		long occupied = occupied(b);
+		int start = out.position();
+
+		for (int shift = 56; shift >= 0; shift -= 8)
+		{
+			out.put((byte) (occupied >>> shift));
+		}
+
+		// the descriptors, two to a byte
+		long rest = occupied;
+		while (rest != 0)
+		{
+			int high = pieceAt(b, Long.numberOfTrailingZeros(rest)).getDescriptor().ordinal();
+			rest &= rest - 1;
+			int low = 0;
+			if (rest != 0)
+			{
+				low = pieceAt(b, Long.numberOfTrailingZeros(rest)).getDescriptor().ordinal();
+				rest &= rest - 1;
+			}
+			out.put((byte) (high << 4 | low));
+		}
+
+		// the hasMoved flags, eight to a byte
+		rest = occupied;
+		while (rest != 0)
+		{
+			int flags = 0;
+			for (int bit = 0; bit < 8 && rest != 0; bit++)
+			{
+				flags |= pieceAt(b, Long.numberOfTrailingZeros(rest)).hasMoved() ? 1 << bit : 0;
+				rest &= rest - 1;
+			}
+			out.put((byte) flags);
+		}
+
+		int state = NO_EN_PASSANT;
+		if (b instanceof BitboardBoard)
+		{
+			BitboardBoard bitboards = (BitboardBoard) b;
+			state = (bitboards.getSideToMove() == PlayerColor.BLACK ? BLACK_TO_MOVE : 0)
+					| (bitboards.getEnPassantSquare() == BitboardBoard.NO_SQUARE
+							? NO_EN_PASSANT : bitboards.getEnPassantSquare());
+		}
+		out.put((byte) state);
+
+		return out.position() - start;
+	}
+
+	/**
+	 * Read a board written by encode() at the buffer's position, advancing it.
+	 * The board is cleared first.
+	 *
+	 * @param in the buffer
+	 * @param b an 8x8 board
+	 * @return the side to move
+	 * @throws IllegalArgumentException if the board isn't 8x8 or the bytes
+	 *             don't hold a position
+	 * @throws java.nio.BufferUnderflowException if the buffer ends too soon
+	 */
+	public PlayerColor decode(ByteBuffer in, Board b)
+	{
+		ValidationEvents events = ValidationEvents.installed();
+		Object event = events == null ? null : events.beginBoardReset();
+		PlayerColor side = setUp(in, b);
+		if (event != null)
+		{
+			events.endBoardReset(event, b);
+		}
+		return side;
+	}
+
+	/**
+	 * decode() without the events.
+	 */
+	private PlayerColor setUp(ByteBuffer in, Board b)
+	{
+		checkSize(b);
+
+		long occupied = 0L;
+		for (int i = 0; i < 8; i++)
+		{
+			occupied = occupied << 8 | (in.get() & 0xFF);
+		}
+
+		b.clear();
+		pool.reset();
+
+		// put the pieces down first, then set their flags
+		long rest = occupied;
+		while (rest != 0)
+		{
+			int codes = in.get() & 0xFF;
+			place(b, Long.numberOfTrailingZeros(rest), codes >>> 4);
+			rest &= rest - 1;
+			if (rest != 0)
+			{
+				place(b, Long.numberOfTrailingZeros(rest), codes & 0xF);
+				rest &= rest - 1;
+			}
+		}
+
+		rest = occupied;
+		while (rest != 0)
+		{
+			int flags = in.get();
+			for (int bit = 0; bit < 8 && rest != 0; bit++)
+			{
+				if ((flags & 1 << bit) != 0)
+				{
+					pieceAt(b, Long.numberOfTrailingZeros(rest)).setHasMoved();
+				}
+				rest &= rest - 1;
+			}
+		}
+
+		int state = in.get() & 0xFF;
+		PlayerColor side = (state & BLACK_TO_MOVE) != 0 ? PlayerColor.BLACK : PlayerColor.WHITE;
+		int enPassant = state & NO_EN_PASSANT;
+		if (enPassant != NO_EN_PASSANT && enPassant >= SQUARES)
+		{
+			throw new IllegalArgumentException("Bad en passant square: " + enPassant);
+		}
+
+		if (b instanceof BitboardBoard)
+		{
+			BitboardBoard bitboards = (BitboardBoard) b;
+			bitboards.setSideToMove(side);
+			bitboards.setEnPassantSquare(enPassant == NO_EN_PASSANT ? BitboardBoard.NO_SQUARE : enPassant);
+		}
+
+		return side;
+	}
+
+	/**
+	 * Put a new piece on a square.
+	 */
+	private void place(Board b, int sq, int code)
+	{
+		if (code >= DESCRIPTORS.length)
+		{
+			throw new IllegalArgumentException("Bad piece code: " + code);
+		}
+		b.putPieceAt(pool.take(DESCRIPTORS[code]), makeCoordinate(row(sq), column(sq)));
+	}
+
+	/**
+	 * @return the occupied squares of an 8x8 board
+	 */
+	private static long occupied(Board b)
+	{
+		if (b instanceof BitboardBoard)
+		{
+			return ((BitboardBoard) b).getOccupied();
+		}
+
+		checkSize(b);
+		long occupied = 0L;
+		for (int sq = 0; sq < SQUARES; sq++)
+		{
+			occupied |= pieceAt(b, sq) != null ? 1L << sq : 0L;
+		}
+		return occupied;
+	}
+
+	/**
+	 * @return the piece on a square of an 8x8 board
+	 */
+	private static ChessPiece pieceAt(Board b, int sq)
+	{
+		return (ChessPiece) b.getPieceAt(row(sq), column(sq));
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the board isn't 8x8
+	 */
+	private static void checkSize(Board b)
+	{
+		if (b.nRows != SIZE || b.nColumns != SIZE)
+		{
+			throw new IllegalArgumentException("Only 8x8 boards can be encoded");
+		}
+	}
+}
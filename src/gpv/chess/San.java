@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.Bitboards.*;
+import static gpv.util.Coordinate.makeCoordinate;
+
+/**
+ * Resolves moves written in Standard Algebraic Notation, as in PGN, against a
+ * position: "e4", "Nbd7", "R1e2", "exd6", "e8=Q", "O-O-O". Check and mate
+ * marks and the !? annotations are allowed and ignored, as are a missing "="
+ * before a promotion and castling written with zeros. Everything else has to
+ * match the board: the candidate pieces are the ones of the named kind and
+ * side that fit the file and rank given, and exactly one of them must be
+ * able to make the move by ChessPiece.canMoveLegally(), which asks canMove()
+ * first. A capture has to be written with an "x" and a move with an "x" has
+ * to capture, and a pawn reaching the last row has to say what it becomes.
+ * <br/>
+ * Resolving allocates nothing.
+ *
+ * @version Apr 24, 2020
+ */
+public final class San
+{
+	/**
+	 * No piece can make the move.
+	 */
+	public static final int NO_MOVE = -1;
+
+	/**
+	 * More than one piece can make the move.
+	 */
+	public static final int AMBIGUOUS = -2;
+
+	/**
+	 * The text isn't a move.
+	 */
+	public static final int MALFORMED = -3;
+
+	// indexed by the position of the piece letter in " NBRQK"
+	private static final PieceName[] NAMES = { PieceName.PAWN, PieceName.KNIGHT,
+			PieceName.BISHOP, PieceName.ROOK, PieceName.QUEEN, PieceName.KING };
+
+	/**
+	 * Static helpers only.
+	 */
+	private San()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * Work out which move a SAN means for the side to move.
+	 *
+	 * @param san the move
+	 * @param b the position
+	 * @return the packed Move, or NO_MOVE, AMBIGUOUS or MALFORMED
+	 */
+	public static int resolve(CharSequence san, BitboardBoard b)
+	{
+		int end = san.length();
+		while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0)
+		{
+			end--;
+		}
+
+		PlayerColor side = b.getSideToMove();
+		if (isCastle(san, end, 'O') || isCastle(san, end, '0'))
+		{
+			return castle(end == 5 ? Move.QUEEN_CASTLE : Move.KING_CASTLE, side, b);
+		}
+
+		// the promotion, from the end
+		int promotion = -1;
+		if (end > 0 && "NBRQ".indexOf(san.charAt(end - 1)) >= 0)
+		{
+			promotion = "NBRQ".indexOf(san.charAt(--end));
+			if (end > 0 && san.charAt(end - 1) == '=')
+			{
+				end--;
+			}
+		}
+
+		// the destination, before it
+		if (end < 2 || !isFile(san.charAt(end - 2)) || !isRank(san.charAt(end - 1)))
+		{
+			return MALFORMED;
+		}
+		int to = square(san.charAt(end - 1) - '0', san.charAt(end - 2) - 'a' + 1);
+		end -= 2;
+
+		// the piece, the file and rank it comes from, and the capture mark
+		int start = 0;
+		PieceName name = PieceName.PAWN;
+		if (start < end && "NBRQK".indexOf(san.charAt(start)) >= 0)
+		{
+			name = NAMES[" NBRQK".indexOf(san.charAt(start++))];
+		}
+		boolean capture = end > start && san.charAt(end - 1) == 'x';
+		if (capture)
+		{
+			end--;
+		}
+		int fromColumn = 0;
+		int fromRow = 0;
+		if (start < end && isFile(san.charAt(start)))
+		{
+			fromColumn = san.charAt(start++) - 'a' + 1;
+		}
+		if (start < end && isRank(san.charAt(start)))
+		{
+			fromRow = san.charAt(start++) - '0';
+		}
+		if (start != end || (promotion >= 0) != (name == PieceName.PAWN && isLastRow(to, side))
+				|| (name == PieceName.PAWN && capture != (fromColumn != 0)))
+		{
+			return MALFORMED;
+		}
+
+		// capturing en passant takes a pawn that isn't on the destination
+		boolean enPassant = name == PieceName.PAWN && to == b.getEnPassantSquare() && b.getPieceAt(to) == null;
+		if (capture != (enPassant || (b.getPieces(side.opponent()) & (1L << to)) != 0))
+		{
+			return NO_MOVE;
+		}
+
+		int move = NO_MOVE;
+		long candidates = b.getPieces(side, name);
+		while (candidates != 0)
+		{
+			int from = Long.numberOfTrailingZeros(candidates);
+			candidates &= candidates - 1;
+
+			if ((fromColumn != 0 && column(from) != fromColumn) || (fromRow != 0 && row(from) != fromRow)
+					|| (name == PieceName.KING && Math.abs(column(to) - column(from)) == 2)
+					|| !canMoveLegally(b, from, to))
+			{
+				continue;
+			}
+			if (move != NO_MOVE)
+			{
+				return AMBIGUOUS;
+			}
+			move = Move.make(from, to, flag(name, from, to, capture, enPassant, promotion));
+		}
+
+		return move;
+	}
+
+	/**
+	 * @return the castling move, or NO_MOVE if it can't be made
+	 */
+	private static int castle(int flag, PlayerColor side, BitboardBoard b)
+	{
+		long kings = b.getPieces(side, PieceName.KING);
+		if (kings == 0)
+		{
+			return NO_MOVE;
+		}
+
+		int from = Long.numberOfTrailingZeros(kings);
+		int to = flag == Move.KING_CASTLE ? from + 2 : from - 2;
+		if (column(from) != 5 || !canMoveLegally(b, from, to))
+		{
+			return NO_MOVE;
+		}
+		return Move.make(from, to, flag);
+	}
+
+	/**
+	 * @return the flag of a move that canMove() accepts
+	 */
+	private static int flag(PieceName name, int from, int to, boolean capture, boolean enPassant,
+			int promotion)
+	{
+		if (promotion >= 0)
+		{
+			return Move.KNIGHT_PROMOTION + promotion + (capture ? Move.CAPTURE : 0);
+		}
+		if (enPassant)
+		{
+			return Move.EN_PASSANT;
+		}
+		if (capture)
+		{
+			return Move.CAPTURE;
+		}
+		return name == PieceName.PAWN && Math.abs(to - from) == 2 * SIZE ? Move.DOUBLE_PAWN_PUSH : Move.QUIET;
+	}
+
+	/**
+	 * @return true if the piece on from can legally move to to
+	 */
+	private static boolean canMoveLegally(BitboardBoard b, int from, int to)
+	{
+		return b.getPieceAt(from).canMoveLegally(makeCoordinate(row(from), column(from)),
+				makeCoordinate(row(to), column(to)), b);
+	}
+
+	/**
+	 * @return true if the first end characters are O-O or O-O-O written with c
+	 */
+	private static boolean isCastle(CharSequence san, int end, char c)
+	{
+		if (end != 3 && end != 5)
+		{
+			return false;
+		}
+		for (int i = 0; i < end; i++)
+		{
+			if (san.charAt(i) != (i % 2 == 0 ? c : '-'))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the pawn of that side promotes on reaching sq
+	 */
+	private static boolean isLastRow(int sq, PlayerColor side)
+	{
+		return row(sq) == (side == PlayerColor.WHITE ? SIZE : 1);
+	}
+
+	private static boolean isFile(char c)
+	{
+		return c >= 'a' && c < 'a' + SIZE;
+	}
+
+	private static boolean isRank(char c)
+	{
+		return c >= '1' && c < '1' + SIZE;
+	}
+}
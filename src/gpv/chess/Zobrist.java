@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.Bitboards.*;
+
+/**
+ * The random numbers a Zobrist key is made of. A position's key is the XOR
+ * of one number for each piece on each square, one for black to move, one
+ * for each castling right and one for the en passant column. The numbers come
+ * from a fixed seed, so keys are the same from run to run.
+ *
+ * @version Apr 18, 2020
+ */
+final class Zobrist
+{
+	// castling rights, as bits of the index into CASTLING
+	static final int WHITE_KING_SIDE = 1, WHITE_QUEEN_SIDE = 2;
+	static final int BLACK_KING_SIDE = 4, BLACK_QUEEN_SIDE = 8;
+
+	// indexed by ChessPieceDescriptor ordinal * SQUARES + square
+	private static final long[] PIECE_SQUARE = new long[ChessPieceDescriptor.values().length * SQUARES];
+	private static final long[] CASTLING = new long[16];
+	private static final long[] EN_PASSANT_COLUMN = new long[SIZE];
+	static final long BLACK_TO_MOVE;
+
+	// for keys of a question about one square of a position, see query()
+	private static final long[] QUERY_SQUARE = new long[SQUARES];
+	private static final long[] QUERY_FLAGS = new long[8];
+
+	// state of the xorshift generator the numbers are drawn from
+	private static long seed = 0x2020_4233_C0FF_EE11L;
+
+	static
+	{
+		for (int i = 0; i < PIECE_SQUARE.length; i++)
+		{
+			PIECE_SQUARE[i] = nextRandom();
+		}
+
+		// the key of a set of rights is the XOR of the keys of its single rights
+		long[] single = new long[4];
+		for (int i = 0; i < single.length; i++)
+		{
+			single[i] = nextRandom();
+		}
+		for (int rights = 0; rights < CASTLING.length; rights++)
+		{
+			for (int i = 0; i < single.length; i++)
+			{
+				if ((rights & (1 << i)) != 0)
+				{
+					CASTLING[rights] ^= single[i];
+				}
+			}
+		}
+
+		for (int i = 0; i < EN_PASSANT_COLUMN.length; i++)
+		{
+			EN_PASSANT_COLUMN[i] = nextRandom();
+		}
+
+		BLACK_TO_MOVE = nextRandom();
+
+		for (int i = 0; i < QUERY_SQUARE.length; i++)
+		{
+			QUERY_SQUARE[i] = nextRandom();
+		}
+		for (int i = 1; i < QUERY_FLAGS.length; i++)
+		{
+			QUERY_FLAGS[i] = nextRandom();
+		}
+	}
+
+	/**
+	 * Static helpers only.
+	 */
+	private Zobrist()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * @param d the kind of piece
+	 * @param sq the square
+	 * @return the number for that piece on that square
+	 */
+	static long piece(ChessPieceDescriptor d, int sq)
+	{
+		return PIECE_SQUARE[d.ordinal() * SQUARES + sq];
+	}
+
+	/**
+	 * @param rights a combination of the castling right bits
+	 * @return the number for that set of rights
+	 */
+	static long castling(int rights)
+	{
+		return CASTLING[rights];
+	}
+
+	/**
+	 * @param sq an en passant square, or BitboardBoard.NO_SQUARE
+	 * @return the number for its column, or 0 if there is no square
+	 */
+	static long enPassant(int sq)
+	{
+		return sq == BitboardBoard.NO_SQUARE ? 0L : EN_PASSANT_COLUMN[column(sq) - 1];
+	}
+
+	/**
+	 * XORed into a position key, this makes the key of a question about the
+	 * piece on one square, such as where it can move.
+	 *
+	 * @param sq the square
+	 * @param flags up to three bits of extra state the answer depends on
+	 * @return the number for the square and flags
+	 */
+	static long query(int sq, int flags)
+	{
+		return QUERY_SQUARE[sq] ^ QUERY_FLAGS[flags];
+	}
+
+	/**
+	 * @return the next value of the xorshift64* generator
+	 */
+	private static long nextRandom()
+	{
+		seed ^= seed >>> 12;
+		seed ^= seed << 25;
+		seed ^= seed >>> 27;
+		return seed * 0x2545F4914F6CDD1DL;
+	}
+}
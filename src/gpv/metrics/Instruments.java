@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.metrics;
+
+/**
+ * What ChessPiece.canMove() is instrumented with: the ValidationMetrics being
+ * kept and the ValidationEvents installed, held together in one static field
+ * so that canMove() reads that field, finds it null while neither is on, and
+ * carries on. ValidationMetrics.enable() and disable() and
+ * ValidationEvents.install() replace it.
+ *
+ * @version Apr 24, 2020
+ */
+public final class Instruments
+{
+	private static volatile Instruments current;
+
+	private final ValidationMetrics metrics;
+	private final ValidationEvents events;
+
+	private Instruments(ValidationMetrics metrics, ValidationEvents events)
+	{
+		this.metrics = metrics;
+		this.events = events;
+	}
+
+	/**
+	 * @return the instruments on, or null if there are none
+	 */
+	public static Instruments current()
+	{
+		return current;
+	}
+
+	/**
+	 * Catch up with the metrics and events, after either has changed.
+	 */
+	static synchronized void update()
+	{
+		ValidationMetrics m = ValidationMetrics.active();
+		ValidationEvents e = ValidationEvents.installed();
+		current = m == null && e == null ? null : new Instruments(m, e);
+	}
+
+	/**
+	 * @return the metrics being kept, or null
+	 */
+	public ValidationMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * @return the events installed, or null
+	 */
+	public ValidationEvents getEvents()
+	{
+		return events;
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of latencies in nanoseconds, in log-linear buckets: values below 16
+ * have a bucket each, and every power of two above is split into 16 equal
+ * buckets, so a value is known to within 1/16th, 6.25%, from 1 ns to the
+ * largest long in 960 buckets. Recording is one atomic increment, without
+ * locks, so any number of threads can record at once.
+ *
+ * @version Apr 24, 2020
+ */
+final class LatencyHistogram
+{
+	private static final int SUB_BITS = 4;
+	private static final int SUB = 1 << SUB_BITS;
+
+	// the largest long is below 2^63
+	static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * @param nanos a latency; negative ones count as 0
+	 */
+	void record(long nanos)
+	{
+		counts.incrementAndGet(bucket(nanos));
+	}
+
+	/**
+	 * @return a copy of the counts, which other threads may be adding to
+	 */
+	long[] counts()
+	{
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			copy[i] = counts.get(i);
+		}
+		return copy;
+	}
+
+	/**
+	 * @return the bucket of a value
+	 */
+	static int bucket(long value)
+	{
+		if (value < SUB)
+		{
+			return (int) Math.max(value, 0);
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return (exponent - SUB_BITS + 1) * SUB + (int) ((value >>> (exponent - SUB_BITS)) & (SUB - 1));
+	}
+
+	/**
+	 * @return the largest value that goes in a bucket
+	 */
+	static long highest(int bucket)
+	{
+		if (bucket < SUB)
+		{
+			return bucket;
+		}
+		if (bucket == BUCKETS - 1)
+		{
+			return Long.MAX_VALUE;
+		}
+
+		int exponent = (bucket + 1) / SUB + SUB_BITS - 1;
+		return ((long) (SUB + (bucket + 1) % SUB) << (exponent - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * @param counts counts from counts()
+	 * @param fraction between 0 and 1, e.g. 0.99
+	 * @return the value at or below which that fraction of the values are,
+	 *         rounded up to the end of its bucket, or 0 if there are none
+	 */
+	static long percentile(long[] counts, double fraction)
+	{
+		long total = 0;
+		for (long c : counts)
+		{
+			total += c;
+		}
+		if (total == 0)
+		{
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++)
+		{
+			seen += counts[i];
+			if (seen >= rank)
+			{
+				return highest(i);
+			}
+		}
+		return highest(counts.length - 1);
+	}
+}
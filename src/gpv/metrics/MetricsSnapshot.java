@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.metrics;
+
+import gpv.chess.PieceName;
+
+/**
+ * The validation metrics at one moment, per kind of piece. Latencies are in
+ * nanoseconds, from the calls that were timed, and rounded up to the end of
+ * their histogram bucket.
+ *
+ * @version Apr 24, 2020
+ */
+public final class MetricsSnapshot
+{
+	private final long[] accepted;
+	private final long[] rejected;
+	private final long[][] latency;
+
+	/**
+	 * @param accepted accepted calls, by PieceName ordinal
+	 * @param rejected rejected calls, by PieceName ordinal
+	 * @param latency latency histogram counts, by PieceName ordinal
+	 */
+	MetricsSnapshot(long[] accepted, long[] rejected, long[][] latency)
+	{
+		this.accepted = accepted;
+		this.rejected = rejected;
+		this.latency = latency;
+	}
+
+	/**
+	 * @return the number of calls
+	 */
+	public long getCalls(PieceName name)
+	{
+		return getAccepted(name) + getRejected(name);
+	}
+
+	/**
+	 * @return the number of calls that answered true
+	 */
+	public long getAccepted(PieceName name)
+	{
+		return accepted[name.ordinal()];
+	}
+
+	/**
+	 * @return the number of calls that answered false
+	 */
+	public long getRejected(PieceName name)
+	{
+		return rejected[name.ordinal()];
+	}
+
+	/**
+	 * @return the fraction of calls that answered true, or NaN if there were none
+	 */
+	public double getAcceptRatio(PieceName name)
+	{
+		return (double) getAccepted(name) / getCalls(name);
+	}
+
+	/**
+	 * @return the number of calls that were timed
+	 */
+	public long getLatencySamples(PieceName name)
+	{
+		long samples = 0;
+		for (long count : latency[name.ordinal()])
+		{
+			samples += count;
+		}
+		return samples;
+	}
+
+	/**
+	 * @param fraction between 0 and 1, e.g. 0.99
+	 * @return the latency that fraction of the timed calls took at most, or 0
+	 *         if none were timed
+	 */
+	public long getLatencyPercentile(PieceName name, double fraction)
+	{
+		if (fraction < 0 || fraction > 1)
+		{
+			throw new IllegalArgumentException("Not a fraction: " + fraction);
+		}
+		return LatencyHistogram.percentile(latency[name.ordinal()], fraction);
+	}
+
+	/*
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("piece      calls   accepted   p50 ns   p99 ns  p99.9 ns\n");
+		for (PieceName name : PieceName.values())
+		{
+			sb.append(String.format("%-6s %9d %9.1f%% %8d %8d %9d%n", name, getCalls(name),
+					100 * getAcceptRatio(name), getLatencyPercentile(name, 0.5),
+					getLatencyPercentile(name, 0.99), getLatencyPercentile(name, 0.999)));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.metrics;
+
+import gpv.chess.PieceName;
+
+/**
+ * The JMX view of one kind of piece's metrics. Every attribute read takes a
+ * fresh snapshot.
+ *
+ * @version Apr 24, 2020
+ */
+final class PieceMetrics implements PieceMetricsMXBean
+{
+	private final ValidationMetrics metrics;
+	private final PieceName name;
+
+	/**
+	 * @param metrics the metrics being kept
+	 * @param name the kind of piece
+	 */
+	PieceMetrics(ValidationMetrics metrics, PieceName name)
+	{
+		this.metrics = metrics;
+		this.name = name;
+	}
+
+	@Override
+	public long getCalls()
+	{
+		return metrics.snapshot().getCalls(name);
+	}
+
+	@Override
+	public long getAccepted()
+	{
+		return metrics.snapshot().getAccepted(name);
+	}
+
+	@Override
+	public long getRejected()
+	{
+		return metrics.snapshot().getRejected(name);
+	}
+
+	@Override
+	public double getAcceptRatio()
+	{
+		return metrics.snapshot().getAcceptRatio(name);
+	}
+
+	@Override
+	public long getLatencySamples()
+	{
+		return metrics.snapshot().getLatencySamples(name);
+	}
+
+	@Override
+	public long getMedianLatency()
+	{
+		return metrics.snapshot().getLatencyPercentile(name, 0.5);
+	}
+
+	@Override
+	public long getP99Latency()
+	{
+		return metrics.snapshot().getLatencyPercentile(name, 0.99);
+	}
+
+	@Override
+	public long getP999Latency()
+	{
+		return metrics.snapshot().getLatencyPercentile(name, 0.999);
+	}
+}
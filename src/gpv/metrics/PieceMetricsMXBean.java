@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.metrics;
+
+/**
+ * The validation metrics of one kind of piece, as published to JMX while
+ * ValidationMetrics are enabled. Latencies are in nanoseconds.
+ *
+ * @version Apr 24, 2020
+ */
+public interface PieceMetricsMXBean
+{
+	long getCalls();
+
+	long getAccepted();
+
+	long getRejected();
+
+	double getAcceptRatio();
+
+	long getLatencySamples();
+
+	long getMedianLatency();
+
+	long getP99Latency();
+
+	long getP999Latency();
+}
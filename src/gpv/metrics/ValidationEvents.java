@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.metrics;
+
+import gpv.Piece;
+import gpv.chess.*;
+import gpv.util.*;
+
+/**
+ * Hooks around the validation hot paths for an event recorder such as Java
+ * Flight Recorder, which the library itself can't use as it runs on Java 8;
+ * the gpv-jfr add-on installs one. Each hook comes as a begin and an end:
+ * begin returns an event to end, or null if the recorder doesn't want one,
+ * and end is only called with what begin returned. The hooks are:
+ * <ul>
+ * <li>ChessPiece.canMove()</li>
+ * <li>BitboardBoard.reset(), Fen.read() and PositionCodec.decode(), which
+ * clear a board and set up another position on it</li>
+ * <li>MoveGenerator.generateLegal() and generatePseudoLegal()</li>
+ * </ul>
+ * With nothing installed each of them reads one static field and carries on:
+ * canMove() reads Instruments, which it shares with ValidationMetrics, and the
+ * others read installed().
+ *
+ * @version Apr 24, 2020
+ */
+public abstract class ValidationEvents
+{
+	private static volatile ValidationEvents installed;
+
+	/**
+	 * @param events the hooks to call from now on, or null for none
+	 */
+	public static void install(ValidationEvents events)
+	{
+		installed = events;
+		Instruments.update();
+	}
+
+	/**
+	 * @return the hooks installed, or null
+	 */
+	public static ValidationEvents installed()
+	{
+		return installed;
+	}
+
+	/**
+	 * @return an event for a canMove() call, or null
+	 */
+	public abstract Object beginCanMove();
+
+	/**
+	 * @param event what beginCanMove() returned
+	 * @param piece the piece asked
+	 * @param from the from square
+	 * @param to the to square
+	 * @param b the board
+	 * @param valid the answer
+	 */
+	public abstract void endCanMove(Object event, ChessPiece piece, Coordinate from, Coordinate to,
+			Board b, boolean valid);
+
+	/**
+	 * @return an event for setting up a board, or null
+	 */
+	public abstract Object beginBoardReset();
+
+	/**
+	 * @param event what beginBoardReset() returned
+	 * @param b the board, with its new position
+	 */
+	public abstract void endBoardReset(Object event, Board b);
+
+	/**
+	 * @return an event for generating the moves of a position, or null
+	 */
+	public abstract Object beginMoveGeneration();
+
+	/**
+	 * @param event what beginMoveGeneration() returned
+	 * @param b the board
+	 * @param legal true for legal moves, false for pseudo-legal ones
+	 * @param moves the number of moves generated
+	 */
+	public abstract void endMoveGeneration(Object event, BitboardBoard b, boolean legal, int moves);
+
+	/**
+	 * A number that tells positions apart: the Zobrist key of a BitboardBoard,
+	 * or a hash of the pieces of any other board.
+	 *
+	 * @param b the board
+	 * @return its fingerprint
+	 */
+	public static long fingerprint(Board b)
+	{
+		if (b instanceof BitboardBoard)
+		{
+			return ((BitboardBoard) b).getKey();
+		}
+
+		long hash = b.nRows * 31L + b.getnColumns();
+		for (int row = 1; row <= b.nRows; row++)
+		{
+			for (int column = 1; column <= b.getnColumns(); column++)
+			{
+				Piece<?> p = b.getPieceAt(row, column);
+				long code = p == null ? 0 : p instanceof ChessPiece
+						? 1 + ((ChessPiece) p).getDescriptor().ordinal() : p.getDescriptor().hashCode();
+				hash = hash * 0x9E3779B97F4A7C15L + code;
+			}
+		}
+		return hash;
+	}
+}
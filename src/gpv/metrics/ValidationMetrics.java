@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.*;
+import gpv.chess.PieceName;
+
+/**
+ * Counts of ChessPiece.canMove() calls, how many were accepted and rejected,
+ * and how long they took, for each kind of piece. Nothing is kept until
+ * enable() is called: until then canMove() reads one static field, that of
+ * Instruments, which it shares with ValidationEvents, finds it null and
+ * carries on.
+ * <br/>
+ * Enabled, the accepted and rejected calls go into LongAdders, which spread
+ * their updates over cells so that threads don't fight over one counter.
+ * Reading the clock twice costs more than the rest of a call, so only one
+ * call in sampleRate is timed, chosen at random per thread, and the
+ * latencies go into a log-linear histogram per kind of piece. The counts
+ * are exact and the latencies are a sample. snapshot() copies everything
+ * out, and while metrics are enabled each kind of piece is also published
+ * to JMX as gpv:type=ValidationMetrics,piece=NAME.
+ *
+ * @version Apr 24, 2020
+ */
+public final class ValidationMetrics
+{
+	/**
+	 * Default for how many calls there are to each one timed.
+	 */
+	public static final int DEFAULT_SAMPLE_RATE = 64;
+
+	/**
+	 * What start() returns for a call that isn't timed.
+	 */
+	public static final long NOT_TIMED = Long.MIN_VALUE;
+
+	private static final PieceName[] NAMES = PieceName.values();
+
+	private static volatile ValidationMetrics active;
+
+	private final LongAdder[] accepted = new LongAdder[NAMES.length];
+	private final LongAdder[] rejected = new LongAdder[NAMES.length];
+	private final LatencyHistogram[] latency = new LatencyHistogram[NAMES.length];
+	private final int sampleMask;
+	private final ObjectName[] beans = new ObjectName[NAMES.length];
+
+	/**
+	 * @param sampleRate a power of two
+	 */
+	private ValidationMetrics(int sampleRate)
+	{
+		sampleMask = sampleRate - 1;
+		for (int i = 0; i < NAMES.length; i++)
+		{
+			accepted[i] = new LongAdder();
+			rejected[i] = new LongAdder();
+			latency[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Start keeping metrics, timing one call in DEFAULT_SAMPLE_RATE.
+	 *
+	 * @return the metrics being kept
+	 */
+	public static ValidationMetrics enable()
+	{
+		return enable(DEFAULT_SAMPLE_RATE);
+	}
+
+	/**
+	 * Start keeping metrics from zero, replacing any being kept.
+	 *
+	 * @param sampleRate time one call in this many, a power of two; 1 times every call
+	 * @return the metrics being kept
+	 * @throws IllegalArgumentException if the rate isn't a power of two
+	 */
+	public static synchronized ValidationMetrics enable(int sampleRate)
+	{
+		if (sampleRate < 1 || Integer.bitCount(sampleRate) != 1)
+		{
+			throw new IllegalArgumentException("The sample rate must be a power of two: " + sampleRate);
+		}
+
+		disable();
+		ValidationMetrics metrics = new ValidationMetrics(sampleRate);
+		metrics.register();
+		active = metrics;
+		Instruments.update();
+		return metrics;
+	}
+
+	/**
+	 * Stop keeping metrics and take them off JMX. Snapshots already taken
+	 * keep their numbers.
+	 */
+	public static synchronized void disable()
+	{
+		if (active != null)
+		{
+			active.unregister();
+			active = null;
+			Instruments.update();
+		}
+	}
+
+	/**
+	 * @return the metrics being kept, or null if they are disabled
+	 */
+	public static ValidationMetrics active()
+	{
+		return active;
+	}
+
+	/**
+	 * Call before the work being measured.
+	 *
+	 * @return the time, if this call is one of those timed, or NOT_TIMED
+	 */
+	public long start()
+	{
+		return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0 ? System.nanoTime() : NOT_TIMED;
+	}
+
+	/**
+	 * Count a call, and its latency if it was timed.
+	 *
+	 * @param name the kind of piece asked
+	 * @param valid what the answer was
+	 * @param start what start() returned
+	 */
+	public void record(PieceName name, boolean valid, long start)
+	{
+		int i = name.ordinal();
+		(valid ? accepted : rejected)[i].increment();
+		if (start != NOT_TIMED)
+		{
+			latency[i].record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @return a copy of the metrics so far; calls being made meanwhile may or
+	 *         may not be in it
+	 */
+	public MetricsSnapshot snapshot()
+	{
+		long[] a = new long[NAMES.length];
+		long[] r = new long[NAMES.length];
+		long[][] l = new long[NAMES.length][];
+		for (int i = 0; i < NAMES.length; i++)
+		{
+			a[i] = accepted[i].sum();
+			r[i] = rejected[i].sum();
+			l[i] = latency[i].counts();
+		}
+		return new MetricsSnapshot(a, r, l);
+	}
+
+	/**
+	 * @return the JMX name of a kind of piece's metrics
+	 */
+	static ObjectName objectName(PieceName name)
+	{
+		try
+		{
+			return new ObjectName("gpv:type=ValidationMetrics,piece=" + name);
+		}
+		catch (MalformedObjectNameException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Publish a bean for each kind of piece.
+	 */
+	private void register()
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try
+		{
+			for (PieceName name : NAMES)
+			{
+				beans[name.ordinal()] = objectName(name);
+				server.registerMBean(new PieceMetrics(this, name), beans[name.ordinal()]);
+			}
+		}
+		catch (JMException e)
+		{
+			unregister();
+			throw new IllegalStateException("Can't publish the metrics", e);
+		}
+	}
+
+	/**
+	 * Take the beans back.
+	 */
+	private void unregister()
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (int i = 0; i < beans.length; i++)
+		{
+			try
+			{
+				if (beans[i] != null && server.isRegistered(beans[i]))
+				{
+					server.unregisterMBean(beans[i]);
+				}
+			}
+			catch (JMException e)
+			{
+				// already gone
+			}
+			beans[i] = null;
+		}
+	}
+}
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.perft;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+import gpv.chess.*;
+
+/**
+ * Perft spread over a ForkJoinPool. The tree is split into one task per move
+ * for the first splitDepth plies, and each task below that runs an ordinary
+ * sequential Perft. Every task gets its own board from Perft.play(), which
+ * copies the board and every piece on it, so no task ever sees another's
+ * hasMoved flags or squares.
+ * <br/>
+ * The leaf tasks record how many nodes each worker thread counted and how
+ * long it was busy, so the per-thread throughput can be reported.
+ * <br/>
+ * Usage:
+ * <pre>
+ * ParallelPerft [--threads n] [--split plies] depth [fen]
+ * </pre>
+ *
+ * @version Apr 16, 2020
+ */
+public class ParallelPerft
+{
+	private final BitboardBoard board;
+	private final PlayerColor side;
+	private final ForkJoinPool pool;
+	private int splitDepth = 1;
+	private boolean verify;
+
+	// keyed by worker thread name, filled in by the leaf tasks
+	private final ConcurrentMap<String, ThreadStats> stats = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Nodes counted and time spent by one worker thread. Each entry is only
+	 * updated by its own thread, and read after the pool has finished.
+	 */
+	public static final class ThreadStats
+	{
+		private long nodes;
+		private long nanos;
+
+		/**
+		 * @return the number of leaf nodes counted
+		 */
+		public long getNodes()
+		{
+			return nodes;
+		}
+
+		/**
+		 * @return the time spent counting them
+		 */
+		public long getNanos()
+		{
+			return nanos;
+		}
+
+		/**
+		 * @return the thread's speed
+		 */
+		public double getNodesPerSecond()
+		{
+			return Perft.nodesPerSecond(nodes, nanos);
+		}
+	}
+
+	/**
+	 * @param board the position; it isn't changed
+	 * @param side the side to move
+	 * @param pool the pool to run on
+	 */
+	public ParallelPerft(BitboardBoard board, PlayerColor side, ForkJoinPool pool)
+	{
+		this.board = board;
+		this.side = side;
+		this.pool = pool;
+	}
+
+	/**
+	 * @param board the position; it isn't changed
+	 * @param side the side to move
+	 */
+	public ParallelPerft(BitboardBoard board, PlayerColor side)
+	{
+		this(board, side, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param splitDepth how many plies to split into separate tasks, at least 1
+	 */
+	public void setSplitDepth(int splitDepth)
+	{
+		this.splitDepth = Math.max(1, splitDepth);
+	}
+
+	/**
+	 * @param verify true to check the generator against canMove() at every node
+	 */
+	public void setVerify(boolean verify)
+	{
+		this.verify = verify;
+	}
+
+	/**
+	 * @return the per-thread figures of the runs so far, by thread name
+	 */
+	public Map<String, ThreadStats> getThreadStats()
+	{
+		return Collections.unmodifiableMap(stats);
+	}
+
+	/**
+	 * @param depth the number of plies, at least 1
+	 * @return the number of leaf nodes
+	 */
+	public long count(int depth)
+	{
+		return pool.invoke(new PerftTask(board, side, depth, splitDepth));
+	}
+
+	/**
+	 * Count the leaf nodes below each root move in parallel, then print one
+	 * line per move, the total, the overall speed and each thread's share.
+	 *
+	 * @param depth the number of plies, at least 1
+	 * @param out where to print
+	 * @return the number of leaf nodes
+	 */
+	public long divide(int depth, PrintStream out)
+	{
+		long start = System.nanoTime();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.generateLegal(board, side, moves);
+		List<PerftTask> tasks = new ArrayList<>(n);
+
+		for (int i = 0; i < n; i++)
+		{
+			tasks.add(new PerftTask(Perft.play(board, moves[i]), side.opponent(), depth - 1, splitDepth - 1));
+		}
+
+		long total = 0;
+		if (depth > 1)
+		{
+			for (PerftTask task : tasks)
+			{
+				pool.execute(task);
+			}
+		}
+
+		for (int i = 0; i < n; i++)
+		{
+			long nodes = depth == 1 ? 1 : tasks.get(i).join();
+			out.println(Move.toString(moves[i]) + ": " + nodes);
+			total += nodes;
+		}
+
+		long elapsed = System.nanoTime() - start;
+		out.println();
+		out.println("Moves: " + n);
+		out.println("Nodes: " + total);
+		out.printf("Time: %.3f s%n", elapsed / 1e9);
+		out.printf("Nodes/second: %.0f%n", Perft.nodesPerSecond(total, elapsed));
+		out.println("Threads: " + stats.size());
+		for (Map.Entry<String, ThreadStats> e : stats.entrySet())
+		{
+			out.printf("  %-32s %12d nodes  %12.0f nodes/s%n", e.getKey(),
+					e.getValue().getNodes(), e.getValue().getNodesPerSecond());
+		}
+		return total;
+	}
+
+	/**
+	 * Counts one subtree. It forks a task per move while there are plies left
+	 * to split, and otherwise counts sequentially.
+	 */
+	private final class PerftTask extends RecursiveTask<Long>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final BitboardBoard b;
+		private final PlayerColor toMove;
+		private final int depth;
+		private final int split;
+
+		PerftTask(BitboardBoard b, PlayerColor toMove, int depth, int split)
+		{
+			this.b = b;
+			this.toMove = toMove;
+			this.depth = depth;
+			this.split = split;
+		}
+
+		/*
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected Long compute()
+		{
+			if (depth <= 1 || split <= 0)
+			{
+				return countHere();
+			}
+
+			int[] moves = new int[MoveGenerator.MAX_MOVES];
+			int n = MoveGenerator.generateLegal(b, toMove, moves);
+			PerftTask[] children = new PerftTask[n];
+
+			for (int i = 0; i < n; i++)
+			{
+				children[i] = new PerftTask(Perft.play(b, moves[i]), toMove.opponent(), depth - 1, split - 1);
+			}
+			invokeAll(children);
+
+			long nodes = 0;
+			for (PerftTask child : children)
+			{
+				nodes += child.join();
+			}
+			return nodes;
+		}
+
+		/**
+		 * @return the sequential count, recorded against the current thread
+		 */
+		private long countHere()
+		{
+			long start = System.nanoTime();
+			long nodes = 0;
+
+			if (depth > 0)
+			{
+				Perft perft = new Perft(b, toMove);
+				perft.setVerify(verify);
+				nodes = perft.count(depth);
+			}
+
+			ThreadStats s = stats.computeIfAbsent(Thread.currentThread().getName(),
+					name -> new ThreadStats());
+			s.nodes += nodes;
+			s.nanos += System.nanoTime() - start;
+			return nodes;
+		}
+	}
+
+	/**
+	 * @param args see the class comment
+	 */
+	public static void main(String[] args)
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		int split = 1;
+		int i = 0;
+
+		for (; i < args.length && args[i].startsWith("--"); i += 2)
+		{
+			if (args[i].equals("--threads"))
+			{
+				threads = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("--split"))
+			{
+				split = Integer.parseInt(args[i + 1]);
+			}
+		}
+
+		if (i >= args.length)
+		{
+			System.err.println("Usage: ParallelPerft [--threads n] [--split plies] depth [fen]");
+			System.exit(2);
+		}
+
+		int depth = Integer.parseInt(args[i++]);
+		StringBuilder fen = new StringBuilder();
+		for (; i < args.length; i++)
+		{
+			fen.append(args[i]).append(' ');
+		}
+		String position = fen.length() == 0 ? PerftPosition.START : fen.toString();
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		ParallelPerft perft = new ParallelPerft(PerftPosition.makeBoard(position),
+				PerftPosition.sideToMove(position), pool);
+		perft.setSplitDepth(split);
+		perft.divide(depth, System.out);
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.perft;
+
+import static gpv.chess.Bitboards.*;
+import static gpv.util.Coordinate.makeCoordinate;
+import java.io.PrintStream;
+import gpv.chess.*;
+import gpv.util.*;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth (perft) so that
+ * the move generator and the canMove() rules can be checked against published
+ * node counts, and timed.
+ * <br/>
+ * Perft works on its own copy of the board and plays the moves in place with
+ * makeMove() and unmakeMove(), so walking the tree allocates nothing and the
+ * board a Perft was made with is never changed. With verify on, every node also checks
+ * that the pseudo-legal moves of the generator are exactly the moves
+ * ChessPiece.canMove() accepts, both on the BitboardBoard and on a plain
+ * Board holding the same pieces. That is much slower but exercises the
+ * ChessPiece rules on every position of the tree.
+ * <br/>
+ * Usage:
+ * <pre>
+ * Perft [--verify] depth [fen]    divide from the start position or fen
+ * Perft [--verify] --suite [depth]    check the known positions up to depth
+ * </pre>
+ *
+ * @version Apr 15, 2020
+ */
+public class Perft
+{
+	private static final int DEFAULT_SUITE_DEPTH = 4;
+
+	private final BitboardBoard board;
+	private final PlayerColor side;
+	private boolean verify;
+
+	// one move buffer per ply, allocated as the tree gets deeper
+	private int[][] buffers = new int[0][];
+
+	/**
+	 * @param board the position; it isn't changed
+	 * @param side the side to move
+	 */
+	public Perft(BitboardBoard board, PlayerColor side)
+	{
+		this.board = board.copy();
+		this.side = side;
+	}
+
+	/**
+	 * @param position a known position
+	 */
+	public Perft(PerftPosition position)
+	{
+		this(position.makeBoard(), position.getSideToMove());
+	}
+
+	/**
+	 * @param verify true to check the generator against canMove() at every node
+	 */
+	public void setVerify(boolean verify)
+	{
+		this.verify = verify;
+	}
+
+	/**
+	 * @param depth the number of plies, at least 1
+	 * @return the number of leaf nodes
+	 */
+	public long count(int depth)
+	{
+		return count(side, depth, 0);
+	}
+
+	/**
+	 * Count the leaf nodes below each root move and print one line per move,
+	 * then the total and the speed.
+	 *
+	 * @param depth the number of plies, at least 1
+	 * @param out where to print
+	 * @return the number of leaf nodes
+	 */
+	public long divide(int depth, PrintStream out)
+	{
+		long start = System.nanoTime();
+		int[] moves = buffer(0);
+		int n = MoveGenerator.generateLegal(board, side, moves);
+		long total = 0;
+
+		for (int i = 0; i < n; i++)
+		{
+			long nodes = 1;
+			if (depth > 1)
+			{
+				board.makeMove(moves[i]);
+				nodes = count(side.opponent(), depth - 1, 1);
+				board.unmakeMove();
+			}
+			out.println(Move.toString(moves[i]) + ": " + nodes);
+			total += nodes;
+		}
+
+		long elapsed = System.nanoTime() - start;
+		out.println();
+		out.println("Moves: " + n);
+		out.println("Nodes: " + total);
+		out.printf("Time: %.3f s%n", elapsed / 1e9);
+		out.printf("Nodes/second: %.0f%n", nodesPerSecond(total, elapsed));
+		return total;
+	}
+
+	/**
+	 * @param nodes a node count
+	 * @param nanos the time it took
+	 * @return the speed
+	 */
+	static double nodesPerSecond(long nodes, long nanos)
+	{
+		return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+	}
+
+	/**
+	 * The recursive count. Leaves at depth 1 are counted without being played.
+	 */
+	private long count(PlayerColor toMove, int depth, int ply)
+	{
+		if (verify)
+		{
+			verify(board, toMove);
+		}
+
+		int[] moves = buffer(ply);
+		int n = MoveGenerator.generateLegal(board, toMove, moves);
+
+		if (depth == 1)
+		{
+			return n;
+		}
+
+		long nodes = 0;
+		for (int i = 0; i < n; i++)
+		{
+			board.makeMove(moves[i]);
+			nodes += count(toMove.opponent(), depth - 1, ply + 1);
+			board.unmakeMove();
+		}
+
+		return nodes;
+	}
+
+	/**
+	 * @return the move buffer for a ply
+	 */
+	private int[] buffer(int ply)
+	{
+		if (ply >= buffers.length)
+		{
+			int[][] grown = new int[ply + 1][];
+			System.arraycopy(buffers, 0, grown, 0, buffers.length);
+			for (int i = buffers.length; i <= ply; i++)
+			{
+				grown[i] = new int[MoveGenerator.MAX_MOVES];
+			}
+			buffers = grown;
+		}
+
+		return buffers[ply];
+	}
+
+	/**
+	 * Play a move on a copy of the board, see BitboardBoard.makeMove().
+	 *
+	 * @param b the board before the move; it isn't changed
+	 * @param move a pseudo-legal move
+	 * @return a new board after the move
+	 */
+	public static BitboardBoard play(BitboardBoard b, int move)
+	{
+		BitboardBoard next = b.copy();
+		next.makeMove(move);
+		return next;
+	}
+
+	/**
+	 * Check that the pseudo-legal moves are exactly the moves canMove() accepts
+	 * on both kinds of board.
+	 *
+	 * @throws IllegalStateException if they differ
+	 */
+	private void verify(BitboardBoard b, PlayerColor toMove)
+	{
+		Board plain = new Board(SIZE, SIZE);
+		for (int sq = 0; sq < SQUARES; sq++)
+		{
+			plain.putPieceAt(b.getPieceAt(sq), coordinate(sq));
+		}
+
+		boolean[] generated = new boolean[SQUARES * SQUARES];
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.generatePseudoLegal(b, toMove, moves);
+		for (int i = 0; i < n; i++)
+		{
+			generated[Move.from(moves[i]) * SQUARES + Move.to(moves[i])] = true;
+		}
+
+		long own = b.getPieces(toMove);
+		while (own != 0)
+		{
+			int from = Long.numberOfTrailingZeros(own);
+			own &= own - 1;
+			ChessPiece p = b.getPieceAt(from);
+
+			for (int to = 0; to < SQUARES; to++)
+			{
+				boolean expected = generated[from * SQUARES + to];
+				// the plain board knows nothing about en passant
+				boolean enPassant = to == b.getEnPassantSquare() && p.getName() == PieceName.PAWN;
+				if (p.canMove(coordinate(from), coordinate(to), b) != expected
+						|| !enPassant && p.canMove(coordinate(from), coordinate(to), plain) != expected)
+				{
+					throw new IllegalStateException("canMove() and the generator disagree on "
+							+ p.getDescriptor() + " " + Move.squareName(from) + Move.squareName(to));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the coordinate of a square
+	 */
+	private static Coordinate coordinate(int sq)
+	{
+		return makeCoordinate(row(sq), column(sq));
+	}
+
+	/**
+	 * Run every known position up to a depth and compare with the published
+	 * node counts.
+	 *
+	 * @param maxDepth the deepest depth to run
+	 * @param verify true to check the generator against canMove() as well
+	 * @param out where to print
+	 * @return the number of mismatches
+	 */
+	public static int runSuite(int maxDepth, boolean verify, PrintStream out)
+	{
+		int failures = 0;
+
+		for (PerftPosition position : PerftPosition.KNOWN)
+		{
+			Perft perft = new Perft(position);
+			perft.setVerify(verify);
+
+			for (int depth = 1; depth <= Math.min(maxDepth, position.getMaxDepth()); depth++)
+			{
+				long start = System.nanoTime();
+				long nodes = perft.count(depth);
+				long elapsed = System.nanoTime() - start;
+				boolean ok = nodes == position.getCount(depth);
+
+				out.printf("%-12s depth %d  %12d nodes  %12.0f nodes/s  %s%n", position, depth,
+						nodes, nodesPerSecond(nodes, elapsed),
+						ok ? "ok" : "FAILED, expected " + position.getCount(depth));
+				failures += ok ? 0 : 1;
+			}
+		}
+
+		return failures;
+	}
+
+	/**
+	 * @param args see the class comment
+	 */
+	public static void main(String[] args)
+	{
+		int i = 0;
+		boolean verify = i < args.length && args[i].equals("--verify");
+		i += verify ? 1 : 0;
+
+		if (i < args.length && args[i].equals("--suite"))
+		{
+			int depth = i + 1 < args.length ? Integer.parseInt(args[i + 1]) : DEFAULT_SUITE_DEPTH;
+			int failures = runSuite(depth, verify, System.out);
+			System.out.println(failures == 0 ? "All counts match" : failures + " counts differ");
+			System.exit(failures == 0 ? 0 : 1);
+		}
+
+		if (i >= args.length)
+		{
+			System.err.println("Usage: Perft [--verify] depth [fen] | Perft [--verify] --suite [depth]");
+			System.exit(2);
+		}
+
+		int depth = Integer.parseInt(args[i++]);
+		StringBuilder fen = new StringBuilder();
+		for (; i < args.length; i++)
+		{
+			fen.append(args[i]).append(' ');
+		}
+		String position = fen.length() == 0 ? PerftPosition.START : fen.toString();
+
+		Perft perft = new Perft(PerftPosition.makeBoard(position), PerftPosition.sideToMove(position));
+		perft.setVerify(verify);
+		perft.divide(depth, System.out);
+	}
+}
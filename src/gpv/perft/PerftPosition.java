@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.perft;
+
+import java.util.*;
+import gpv.chess.*;
+
+/**
+ * A position to run perft from, given in FEN, along with the published node
+ * counts for it when they are known. Fen turns the FEN into a board,
+ * translating the castling rights into hasMoved flags.
+ *
+ * @version Apr 15, 2020
+ */
+public final class PerftPosition
+{
+	public static final String START = Fen.START;
+
+	/**
+	 * The standard perft positions with their published node counts, from the
+	 * Chess Programming Wiki "Perft Results" page. Entry i of the counts is the
+	 * node count at depth i + 1.
+	 */
+	public static final List<PerftPosition> KNOWN = Collections.unmodifiableList(Arrays.asList(
+			new PerftPosition("start", START,
+					20L, 400L, 8902L, 197281L, 4865609L, 119060324L),
+			new PerftPosition("kiwipete",
+					"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+					48L, 2039L, 97862L, 4085603L, 193690690L),
+			new PerftPosition("position 3",
+					"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+					14L, 191L, 2812L, 43238L, 674624L, 11030083L),
+			new PerftPosition("position 4",
+					"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+					6L, 264L, 9467L, 422333L, 15833292L),
+			new PerftPosition("position 5",
+					"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+					44L, 1486L, 62379L, 2103487L, 89941194L),
+			new PerftPosition("position 6",
+					"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+					46L, 2079L, 89890L, 3894594L, 164075551L)));
+
+	private final String name;
+	private final String fen;
+	private final long[] counts;
+
+	/**
+	 * @param name a name for reports
+	 * @param fen the position
+	 * @param counts the node counts for depth 1, 2, ...
+	 */
+	public PerftPosition(String name, String fen, long... counts)
+	{
+		this.name = name;
+		this.fen = fen;
+		this.counts = counts.clone();
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return the FEN
+	 */
+	public String getFen()
+	{
+		return fen;
+	}
+
+	/**
+	 * @return the deepest depth with a known node count
+	 */
+	public int getMaxDepth()
+	{
+		return counts.length;
+	}
+
+	/**
+	 * @param depth 1 to getMaxDepth()
+	 * @return the published node count at that depth
+	 */
+	public long getCount(int depth)
+	{
+		return counts[depth - 1];
+	}
+
+	/**
+	 * @return the side to move
+	 */
+	public PlayerColor getSideToMove()
+	{
+		return sideToMove(fen);
+	}
+
+	/**
+	 * @return a new board set up with the position
+	 */
+	public BitboardBoard makeBoard()
+	{
+		return makeBoard(fen);
+	}
+
+	/**
+	 * @param fen a position in FEN
+	 * @return the side to move
+	 */
+	public static PlayerColor sideToMove(String fen)
+	{
+		String[] fields = fields(fen);
+		return fields.length > 1 && fields[1].equals("b") ? PlayerColor.BLACK : PlayerColor.WHITE;
+	}
+
+	/**
+	 * @param fen a position in FEN
+	 * @return a new board set up with the position, see Fen
+	 * @throws IllegalArgumentException if the FEN is malformed
+	 */
+	public static BitboardBoard makeBoard(String fen)
+	{
+		BitboardBoard b = new BitboardBoard();
+		new Fen().read(fen, b);
+		return b;
+	}
+
+	private static String[] fields(String fen)
+	{
+		return fen.trim().split("\\s+");
+	}
+
+	/*
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
@@ -0,0 +1,369 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.pgn;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Consumer;
+
+/**
+ * Replays the games of a PGN archive on several threads, giving the verdicts
+ * in the order of the games, numbered as PgnReader would number them.
+ * <br/>
+ * A reader thread cuts the archive into chunks of about chunkBytes that end
+ * where a game's tags begin, and hands each chunk to a pool of worker
+ * threads. Every worker replays its chunks with a PgnReader of its own, so
+ * it keeps one board and one set of pieces made by the ChessPieceFactory
+ * for as long as it lives, and nothing the workers change is shared. At most
+ * two chunks per thread are in flight, so a fast reader doesn't fill the
+ * heap, and the verdicts are handed on as they come due.
+ * <br/>
+ * A game starts at a line beginning with a tag, [Name "..., that follows a
+ * line that isn't a tag. Games without tags can't be told apart that way, so
+ * a chunk without a game start in it grows until one turns up, or the
+ * archive ends; such an archive is best read with a PgnReader.
+ * <br/>
+ * Usage:
+ * <pre>
+ * ArchiveValidator [--threads n] [file...]
+ * </pre>
+ * reads the files, or stdin, and prints each invalid game and a count.
+ *
+ * @version Apr 24, 2020
+ */
+public final class ArchiveValidator implements Closeable
+{
+	/**
+	 * Default chunk size, in bytes.
+	 */
+	public static final int DEFAULT_CHUNK = 1 << 20;
+
+	private static final Future<List<GameVerdict>> END = CompletableFuture.completedFuture(null);
+
+	private final ExecutorService workers;
+	private final int chunkBytes;
+	private final int window;
+
+	// the reader, board and pieces of each worker
+	private final ThreadLocal<PgnReader> readers = ThreadLocal.withInitial(PgnReader::new);
+
+	/**
+	 * @param threads the number of worker threads
+	 */
+	public ArchiveValidator(int threads)
+	{
+		this(threads, DEFAULT_CHUNK);
+	}
+
+	/**
+	 * @param threads the number of worker threads
+	 * @param chunkBytes about how many bytes of games each worker is given at a time
+	 */
+	public ArchiveValidator(int threads, int chunkBytes)
+	{
+		if (threads < 1 || chunkBytes < 1)
+		{
+			throw new IllegalArgumentException("Threads and chunk size must be positive");
+		}
+
+		AtomicInteger count = new AtomicInteger();
+		this.chunkBytes = chunkBytes;
+		window = 2 * threads;
+		workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "archive-validator-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Replay every game of an archive. The channel isn't closed, even if this
+	 * gives up: the reader thread isn't interrupted, which would close it, but
+	 * told to stop, and does once the read it may be in returns.
+	 *
+	 * @param in the archive
+	 * @param out given each verdict, in the order of the games, on the calling thread
+	 * @return the number of games
+	 * @throws IOException if the archive can't be read
+	 */
+	public long validate(ReadableByteChannel in, Consumer<GameVerdict> out) throws IOException
+	{
+		BlockingQueue<Future<List<GameVerdict>>> pending = new ArrayBlockingQueue<>(window);
+		IOException[] failure = new IOException[1];
+		AtomicBoolean stopped = new AtomicBoolean();
+
+		Thread reader = new Thread(() -> read(in, pending, failure, stopped), "archive-reader");
+		reader.setDaemon(true);
+		reader.start();
+
+		long games = 0;
+		try
+		{
+			for (Future<List<GameVerdict>> chunk = pending.take(); chunk != END; chunk = pending.take())
+			{
+				for (GameVerdict verdict : chunk.get())
+				{
+					out.accept(verdict.renumber(++games));
+				}
+			}
+			reader.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			stop(pending, stopped);
+			throw new InterruptedIOException("Interrupted while validating");
+		}
+		catch (ExecutionException e)
+		{
+			stop(pending, stopped);
+			throw new IOException(e.getCause());
+		}
+		catch (RuntimeException e)
+		{
+			// out failed
+			stop(pending, stopped);
+			throw e;
+		}
+
+		if (failure[0] != null)
+		{
+			throw failure[0];
+		}
+		return games;
+	}
+
+	/**
+	 * Replay every game of an archive. The stream isn't closed.
+	 *
+	 * @param in the archive
+	 * @param out given each verdict, in the order of the games, on the calling thread
+	 * @return the number of games
+	 * @throws IOException if the archive can't be read
+	 */
+	public long validate(InputStream in, Consumer<GameVerdict> out) throws IOException
+	{
+		return validate(Channels.newChannel(in), out);
+	}
+
+	/**
+	 * Stop the worker threads.
+	 */
+	@Override
+	public void close()
+	{
+		workers.shutdown();
+	}
+
+	/**
+	 * Tell the reader thread to stop, and make room in case it is waiting to
+	 * hand over a chunk. It looks at the flag before each chunk it reads, so
+	 * it hands over at most one more.
+	 */
+	private static void stop(BlockingQueue<Future<List<GameVerdict>>> pending, AtomicBoolean stopped)
+	{
+		stopped.set(true);
+		pending.clear();
+	}
+
+	/**
+	 * The reader thread: one task per chunk, then END, until stopped.
+	 */
+	private void read(ReadableByteChannel in, BlockingQueue<Future<List<GameVerdict>>> pending,
+			IOException[] failure, AtomicBoolean stopped)
+	{
+		try
+		{
+			try
+			{
+				byte[] chunk = new byte[chunkBytes];
+				int length = 0;
+				boolean end = false;
+
+				while (!end && !stopped.get())
+				{
+					ByteBuffer free = ByteBuffer.wrap(chunk, length, chunk.length - length);
+					while (free.hasRemaining() && !end)
+					{
+						end = in.read(free) < 0;
+					}
+					length = free.position();
+
+					int cut = end ? length : lastGameStart(chunk, length);
+					if (cut > 0)
+					{
+						ByteBuffer games = ByteBuffer.wrap(chunk, 0, cut);
+						pending.put(workers.submit(() -> replay(games)));
+
+						// the start of the next chunk
+						byte[] next = new byte[Math.max(chunkBytes, 2 * (length - cut))];
+						System.arraycopy(chunk, cut, next, 0, length - cut);
+						chunk = next;
+						length -= cut;
+					}
+					else if (!end)
+					{
+						// a game longer than the chunk
+						chunk = Arrays.copyOf(chunk, 2 * chunk.length);
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				failure[0] = e;
+			}
+			if (!stopped.get())
+			{
+				pending.put(END);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// validate() gave up
+		}
+	}
+
+	/**
+	 * @param games whole games
+	 * @return their verdicts, numbered from 1
+	 */
+	private List<GameVerdict> replay(ByteBuffer games) throws IOException
+	{
+		PgnReader reader = readers.get();
+		reader.reset(games);
+
+		List<GameVerdict> verdicts = new ArrayList<>();
+		for (GameVerdict verdict = reader.next(); verdict != null; verdict = reader.next())
+		{
+			verdicts.add(verdict);
+		}
+		return verdicts;
+	}
+
+	/**
+	 * @param b the bytes of an archive
+	 * @param length how many of them there are
+	 * @return the offset of the last line that starts the tags of a game, or
+	 *         -1 if none does after the first byte
+	 */
+	static int lastGameStart(byte[] b, int length)
+	{
+		for (int i = length - 1; i > 0; i--)
+		{
+			if (b[i - 1] == '\n' && isTag(b, i, length))
+			{
+				// the start of the line before, skipping blank lines
+				int j = i - 1;
+				while (j > 0 && (b[j - 1] == '\n' || b[j - 1] == '\r'))
+				{
+					j--;
+				}
+				while (j > 0 && b[j - 1] != '\n')
+				{
+					j--;
+				}
+				if (j == i - 1 || b[j] != '[')
+				{
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if the bytes from i start like a tag pair, [Name "
+	 */
+	private static boolean isTag(byte[] b, int i, int length)
+	{
+		if (b[i] != '[')
+		{
+			return false;
+		}
+
+		int j = i + 1;
+		while (j < length && (Character.isLetterOrDigit(b[j]) || b[j] == '_'))
+		{
+			j++;
+		}
+		if (j == i + 1)
+		{
+			return false;
+		}
+		while (j < length && (b[j] == ' ' || b[j] == '\t'))
+		{
+			j++;
+		}
+		return j < length && b[j] == '"';
+	}
+
+	/**
+	 * Validate PGN files, or stdin, printing each invalid game and a count.
+	 *
+	 * @param args [--threads n] [file...]
+	 * @throws IOException if a file can't be read
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> files = new ArrayList<>();
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--threads") && i + 1 < args.length)
+			{
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].startsWith("--"))
+			{
+				System.err.println("Usage: ArchiveValidator [--threads n] [file...]");
+				System.exit(2);
+			}
+			else
+			{
+				files.add(args[i]);
+			}
+		}
+
+		long[] invalid = new long[1];
+		Consumer<GameVerdict> report = verdict -> {
+			if (!verdict.isValid())
+			{
+				invalid[0]++;
+				System.out.println(verdict);
+			}
+		};
+
+		try (ArchiveValidator validator = new ArchiveValidator(threads))
+		{
+			long games = 0;
+			if (files.isEmpty())
+			{
+				games = validator.validate(System.in, report);
+			}
+			for (String file : files)
+			{
+				try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ))
+				{
+					games += validator.validate(channel, report);
+				}
+			}
+			System.out.println(games + " games, " + invalid[0] + " invalid");
+		}
+	}
+}
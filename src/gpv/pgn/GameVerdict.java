@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.pgn;
+
+/**
+ * What replaying one game of a PGN archive found: either every move could be
+ * made and the game ended with a result, or the first move that couldn't be
+ * made and why.
+ *
+ * @version Apr 24, 2020
+ */
+public final class GameVerdict
+{
+	private final long game;
+	private final int plies;
+	private final String result;
+	private final String move;
+	private final String reason;
+
+	/**
+	 * @param game the number of the game in the archive, from 1
+	 * @param plies the number of moves made
+	 * @param result the game termination marker, or null if there was none
+	 * @param move the move that couldn't be made, or null
+	 * @param reason why the game is invalid, or null if it is valid
+	 */
+	GameVerdict(long game, int plies, String result, String move, String reason)
+	{
+		this.game = game;
+		this.plies = plies;
+		this.result = result;
+		this.move = move;
+		this.reason = reason;
+	}
+
+	/**
+	 * @param game another number for the game
+	 * @return the same verdict for that game
+	 */
+	GameVerdict renumber(long game)
+	{
+		return new GameVerdict(game, plies, result, move, reason);
+	}
+
+	/**
+	 * @return the number of the game in the archive, from 1
+	 */
+	public long getGame()
+	{
+		return game;
+	}
+
+	/**
+	 * @return true if every move could be made and the game has a result
+	 */
+	public boolean isValid()
+	{
+		return reason == null;
+	}
+
+	/**
+	 * @return the number of moves made, by both sides
+	 */
+	public int getPlies()
+	{
+		return plies;
+	}
+
+	/**
+	 * @return the game termination marker, "1-0", "0-1", "1/2-1/2" or "*",
+	 *         or null if the game had none
+	 */
+	public String getResult()
+	{
+		return result;
+	}
+
+	/**
+	 * @return the move that couldn't be made, or null
+	 */
+	public String getMove()
+	{
+		return move;
+	}
+
+	/**
+	 * @return why the game is invalid, or null if it is valid
+	 */
+	public String getReason()
+	{
+		return reason;
+	}
+
+	/*
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return "game " + game + ": " + (reason == null ? "valid, " + plies + " plies, " + result
+				: "invalid after " + plies + " plies, " + (move == null ? "" : move + ": ") + reason);
+	}
+}
@@ -0,0 +1,445 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.pgn;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import gpv.chess.*;
+
+/**
+ * Replays the games of a PGN archive and tells for each one whether its moves
+ * are valid. Each move is resolved with San.resolve(), which asks the pieces
+ * that could make it with ChessPiece.canMoveLegally(), and made on the board
+ * before the next one is read. A game starts from the standard position, or
+ * from its FEN tag if it has one, and ends with its termination marker. A game
+ * is invalid from the first move that can't be made, and the rest of its moves
+ * are skipped; a game that stops without a termination marker, at the end of
+ * the input or at the tags of the next game, is invalid too.
+ * <br/>
+ * The input is read through one buffer of BUFFER_BYTES and parsed byte by
+ * byte as it arrives: neither the archive nor a game is ever held whole.
+ * There is one board, reset for every game, and each move and FEN tag is
+ * gathered in a bounded builder, so the memory used doesn't grow with the
+ * size of the archive. Comments, variations, NAGs and escaped lines are
+ * skipped, and tags other than FEN are read past without being kept.
+ * <br/>
+ * A PgnReader is not thread safe.
+ *
+ * @version Apr 24, 2020
+ */
+public final class PgnReader implements Closeable
+{
+	/**
+	 * Size of the input buffer.
+	 */
+	public static final int BUFFER_BYTES = 1 << 16;
+
+	// longest move or termination marker, and longest FEN tag
+	private static final int MAX_TOKEN = 32;
+	private static final int MAX_TAG_VALUE = 256;
+
+	private static final int NONE = -2;
+	private static final int END = -1;
+
+	private ReadableByteChannel in;
+	private ByteBuffer buffer;
+	private final StringBuilder token = new StringBuilder(MAX_TOKEN);
+	private final StringBuilder value = new StringBuilder(MAX_TAG_VALUE);
+	private final BitboardBoard board = new BitboardBoard();
+	private final Fen fen = new Fen();
+
+	private int pending = NONE;
+	private int last = '\n';
+	private long games;
+
+	// the game being read
+	private boolean started;
+	private boolean inMoves;
+	private int plies;
+	private String failedMove;
+	private String reason;
+
+	/**
+	 * @param in the archive, a blocking channel
+	 * @throws IllegalArgumentException if in is a channel in non-blocking mode,
+	 *             which read() would spin on
+	 */
+	public PgnReader(ReadableByteChannel in)
+	{
+		if (in instanceof SelectableChannel && !((SelectableChannel) in).isBlocking())
+		{
+			throw new IllegalArgumentException("PgnReader needs a channel in blocking mode");
+		}
+		this.in = in;
+		buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		buffer.flip();
+	}
+
+	/**
+	 * @param in the archive
+	 */
+	public PgnReader(InputStream in)
+	{
+		this(Channels.newChannel(in));
+	}
+
+	/**
+	 * A reader for ArchiveValidator workers, given their games by reset().
+	 */
+	PgnReader()
+	{
+		buffer = ByteBuffer.allocate(0);
+	}
+
+	/**
+	 * Start over on games that are all in a buffer, numbering them from 1
+	 * again. The board and its pieces are kept.
+	 *
+	 * @param games whole games, read from the position to the limit
+	 */
+	void reset(ByteBuffer games)
+	{
+		in = null;
+		buffer = games;
+		pending = NONE;
+		last = '\n';
+		this.games = 0;
+		started = false;
+		inMoves = false;
+	}
+
+	/**
+	 * Read and replay the next game.
+	 *
+	 * @return its verdict, or null at the end of the archive
+	 * @throws IOException if the archive can't be read
+	 */
+	public GameVerdict next() throws IOException
+	{
+		while (true)
+		{
+			boolean lineStart = last == '\n';
+			int c = read();
+
+			switch (c) {
+				case END:
+					return started ? finish(null) : null;
+				case ' ': case '\t': case '\r': case '\n': case '.':
+					break;
+				case '[':
+					if (inMoves)
+					{
+						// the tags of the next game
+						pending = c;
+						return finish(null);
+					}
+					begin();
+					tag();
+					break;
+				case '{':
+					skipComment();
+					break;
+				case ';':
+					skipLine();
+					break;
+				case '(':
+					skipVariation();
+					break;
+				case '$':
+					skipNag();
+					break;
+				default:
+					if (c == '%' && lineStart)
+					{
+						skipLine();
+						break;
+					}
+
+					begin();
+					inMoves = true;
+					readToken(c);
+					if (isResult())
+					{
+						return finish(token.toString());
+					}
+					if (!isMoveNumber())
+					{
+						move();
+					}
+			}
+		}
+	}
+
+	/*
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (in != null)
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Start a game if one isn't started yet.
+	 */
+	private void begin()
+	{
+		if (!started)
+		{
+			started = true;
+			games++;
+			plies = 0;
+			failedMove = null;
+			reason = null;
+			fen.read(Fen.START, board);
+		}
+	}
+
+	/**
+	 * @return the verdict of the game read
+	 */
+	private GameVerdict finish(String result)
+	{
+		started = false;
+		inMoves = false;
+		return new GameVerdict(games, plies, result, failedMove,
+				reason == null && result == null ? "no termination marker" : reason);
+	}
+
+	/**
+	 * Make the move in the token, unless the game is already invalid.
+	 */
+	private void move()
+	{
+		if (reason != null)
+		{
+			return;
+		}
+
+		int move = token.length() > MAX_TOKEN ? San.MALFORMED : San.resolve(token, board);
+		if (move >= 0)
+		{
+			board.makeMove(move);
+			plies++;
+			return;
+		}
+
+		failedMove = token.toString();
+		reason = move == San.AMBIGUOUS ? "ambiguous move" : move == San.MALFORMED ? "not a move" : "illegal move";
+	}
+
+	/**
+	 * Read a tag pair after its "[", setting up the board from a FEN tag.
+	 */
+	private void tag() throws IOException
+	{
+		int c = read();
+		while (c == ' ' || c == '\t')
+		{
+			c = read();
+		}
+		token.setLength(0);
+		while (c > ' ' && c != '"' && c != ']')
+		{
+			append(token, c, MAX_TOKEN);
+			c = read();
+		}
+		while (c == ' ' || c == '\t')
+		{
+			c = read();
+		}
+
+		value.setLength(0);
+		if (c == '"')
+		{
+			for (c = read(); c != END && c != '"'; c = read())
+			{
+				if (c == '\\')
+				{
+					c = read();
+				}
+				append(value, c, MAX_TAG_VALUE);
+			}
+			c = read();
+		}
+		while (c != END && c != ']' && c != '\n')
+		{
+			c = read();
+		}
+
+		if ("FEN".contentEquals(token) && reason == null)
+		{
+			try
+			{
+				if (value.length() > MAX_TAG_VALUE)
+				{
+					throw new IllegalArgumentException();
+				}
+				fen.read(value, board);
+			}
+			catch (IllegalArgumentException e)
+			{
+				reason = "bad FEN tag";
+			}
+		}
+	}
+
+	/**
+	 * Read a move, move number or termination marker starting with c.
+	 */
+	private void readToken(int c) throws IOException
+	{
+		// the first byte is always taken, so a stray one makes a bad move
+		token.setLength(0);
+		do
+		{
+			append(token, c, MAX_TOKEN);
+			c = read();
+		} while (c > ' ' && "{}();[]$.".indexOf(c) < 0);
+		pending = c;
+	}
+
+	/**
+	 * @return true if the token is a game termination marker
+	 */
+	private boolean isResult()
+	{
+		return "1-0".contentEquals(token) || "0-1".contentEquals(token)
+				|| "1/2-1/2".contentEquals(token) || "*".contentEquals(token);
+	}
+
+	/**
+	 * @return true if the token is a move number
+	 */
+	private boolean isMoveNumber()
+	{
+		for (int i = 0; i < token.length(); i++)
+		{
+			if (token.charAt(i) < '0' || token.charAt(i) > '9')
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void skipComment() throws IOException
+	{
+		int c = read();
+		while (c != END && c != '}')
+		{
+			c = read();
+		}
+	}
+
+	private void skipLine() throws IOException
+	{
+		int c = read();
+		while (c != END && c != '\n')
+		{
+			c = read();
+		}
+	}
+
+	private void skipNag() throws IOException
+	{
+		int c = read();
+		while (c >= '0' && c <= '9')
+		{
+			c = read();
+		}
+		pending = c;
+	}
+
+	/**
+	 * Skip a variation after its "(", with the variations and comments in it.
+	 */
+	private void skipVariation() throws IOException
+	{
+		int depth = 1;
+		while (depth > 0)
+		{
+			int c = read();
+			switch (c) {
+				case END:
+					return;
+				case '(':
+					depth++;
+					break;
+				case ')':
+					depth--;
+					break;
+				case '{':
+					skipComment();
+					break;
+				case ';':
+					skipLine();
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Add a byte to a builder, keeping at most one more than max so that
+	 * overflow shows.
+	 */
+	private static void append(StringBuilder sb, int c, int max)
+	{
+		if (sb.length() <= max)
+		{
+			sb.append((char) c);
+		}
+	}
+
+	/**
+	 * @return the next byte, or END
+	 */
+	private int read() throws IOException
+	{
+		if (pending != NONE)
+		{
+			int c = pending;
+			pending = NONE;
+			return c;
+		}
+
+		if (!buffer.hasRemaining())
+		{
+			if (in == null)
+			{
+				return END;
+			}
+			buffer.clear();
+			int n;
+			while ((n = in.read(buffer)) == 0)
+			{
+				// nothing yet from a channel that doesn't block; let others run
+				Thread.yield();
+			}
+			buffer.flip();
+			if (n < 0)
+			{
+				return END;
+			}
+		}
+
+		last = buffer.get() & 0xFF;
+		return last;
+	}
+}
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.server;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Just enough JSON for the validation server: a flat object whose values are
+ * strings, numbers, true, false or null. Values are kept as the JSON text
+ * they were written as, so that an id can be echoed back unchanged;
+ * string() turns a quoted value into its contents.
+ *
+ * @version Apr 21, 2020
+ */
+final class Json
+{
+	private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+	/**
+	 * Static helpers only.
+	 */
+	private Json()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * @param text a JSON object with no nested objects or arrays
+	 * @return its members, each value as JSON text
+	 * @throws IllegalArgumentException if the text isn't such an object
+	 */
+	static Map<String, String> parseObject(String text)
+	{
+		Map<String, String> members = new HashMap<>();
+		int i = skipSpace(text, 0);
+		i = expect(text, i, '{');
+		i = skipSpace(text, i);
+
+		if (i < text.length() && text.charAt(i) == '}')
+		{
+			return checkEnd(text, i + 1, members);
+		}
+
+		while (true)
+		{
+			int keyEnd = endOfValue(text, i);
+			if (text.charAt(i) != '"')
+			{
+				throw new IllegalArgumentException("Expected a member name at " + i);
+			}
+			String key = string(text.substring(i, keyEnd));
+			i = expect(text, skipSpace(text, keyEnd), ':');
+			i = skipSpace(text, i);
+			int valueEnd = endOfValue(text, i);
+			members.put(key, text.substring(i, valueEnd));
+			i = skipSpace(text, valueEnd);
+
+			if (i < text.length() && text.charAt(i) == ',')
+			{
+				i = skipSpace(text, i + 1);
+			}
+			else
+			{
+				return checkEnd(text, expect(text, i, '}'), members);
+			}
+		}
+	}
+
+	/**
+	 * parseObject() keeps any bare token as a value; this tells whether one is
+	 * really JSON and so can be written back out as it is.
+	 *
+	 * @param value a value as JSON text
+	 * @return true if it is a JSON number, string, true, false or null
+	 */
+	static boolean isScalar(String value)
+	{
+		if (value.equals("true") || value.equals("false") || value.equals("null"))
+		{
+			return true;
+		}
+		if (value.isEmpty() || value.charAt(0) != '"')
+		{
+			return NUMBER.matcher(value).matches();
+		}
+
+		for (int i = 1; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if (c == '"')
+			{
+				return i == value.length() - 1;
+			}
+			if (c < ' ')
+			{
+				return false;
+			}
+			if (c == '\\')
+			{
+				char escaped = ++i < value.length() ? value.charAt(i) : ' ';
+				if (escaped == 'u')
+				{
+					if (i + 4 >= value.length())
+					{
+						return false;
+					}
+					for (int j = i + 1; j <= i + 4; j++)
+					{
+						if (Character.digit(value.charAt(j), 16) < 0)
+						{
+							return false;
+						}
+					}
+					i += 4;
+				}
+				else if ("\"\\/bfnrt".indexOf(escaped) < 0)
+				{
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param value a value as JSON text
+	 * @return the contents of the string
+	 * @throws IllegalArgumentException if the value isn't a string
+	 */
+	static String string(String value)
+	{
+		if (value.length() < 2 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"')
+		{
+			throw new IllegalArgumentException("Expected a string: " + value);
+		}
+
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 1; i < value.length() - 1; i++)
+		{
+			char c = value.charAt(i);
+			if (c != '\\')
+			{
+				sb.append(c);
+				continue;
+			}
+
+			char escaped = value.charAt(++i);
+			switch (escaped)
+			{
+				case 'n':
+					sb.append('\n');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'u':
+					sb.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+					i += 4;
+					break;
+				default:
+					sb.append(escaped);
+					break;
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * @param s any string
+	 * @return it as a JSON string
+	 */
+	static String quote(String s)
+	{
+		StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+			{
+				sb.append('\\').append(c);
+			}
+			else if (c < ' ')
+			{
+				sb.append(String.format("\\u%04x", (int) c));
+			}
+			else
+			{
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * @return the index just past the value starting at i
+	 */
+	private static int endOfValue(String text, int i)
+	{
+		if (i >= text.length())
+		{
+			throw new IllegalArgumentException("Unexpected end of object");
+		}
+
+		if (text.charAt(i) == '"')
+		{
+			for (int j = i + 1; j < text.length(); j++)
+			{
+				char c = text.charAt(j);
+				if (c == '\\')
+				{
+					j++;
+				}
+				else if (c == '"')
+				{
+					return j + 1;
+				}
+			}
+			throw new IllegalArgumentException("Unterminated string at " + i);
+		}
+
+		int j = i;
+		while (j < text.length() && ",}: \t".indexOf(text.charAt(j)) < 0)
+		{
+			char c = text.charAt(j);
+			if (c == '{' || c == '[' || c == '"')
+			{
+				throw new IllegalArgumentException("Nested values aren't supported at " + j);
+			}
+			j++;
+		}
+
+		if (j == i)
+		{
+			throw new IllegalArgumentException("Expected a value at " + i);
+		}
+
+		return j;
+	}
+
+	/**
+	 * @return the index after c, which must be at i
+	 */
+	private static int expect(String text, int i, char c)
+	{
+		if (i >= text.length() || text.charAt(i) != c)
+		{
+			throw new IllegalArgumentException("Expected '" + c + "' at " + i);
+		}
+		return i + 1;
+	}
+
+	/**
+	 * @return the index of the first character from i that isn't white space
+	 */
+	private static int skipSpace(String text, int i)
+	{
+		while (i < text.length() && Character.isWhitespace(text.charAt(i)))
+		{
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * @return members, if nothing but white space follows i
+	 */
+	private static Map<String, String> checkEnd(String text, int i, Map<String, String> members)
+	{
+		if (skipSpace(text, i) != text.length())
+		{
+			throw new IllegalArgumentException("Unexpected text after the object at " + i);
+		}
+		return members;
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.server;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits a byte stream into UTF-8 lines using two fixed buffers, one for
+ * reading and one for the line, so a client can't make the server hold more
+ * than maxLength bytes of a line however long it is. The rest of a line that
+ * doesn't fit is skipped and the line is reported as too long. A line ends
+ * with \n, optionally preceded by \r; the last line needn't end at all.
+ *
+ * @version Apr 21, 2020
+ */
+final class LineReader
+{
+	private static final int READ_SIZE = 1 << 16;
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[READ_SIZE];
+	private int position;
+	private int limit;
+
+	private final byte[] line;
+	private int length;
+	private boolean tooLong;
+
+	/**
+	 * @param in the stream to read
+	 * @param maxLength the longest line kept, in bytes
+	 */
+	LineReader(InputStream in, int maxLength)
+	{
+		this.in = in;
+		line = new byte[maxLength];
+	}
+
+	/**
+	 * Read the next line.
+	 *
+	 * @return false at the end of the stream
+	 * @throws IOException if the stream can't be read
+	 */
+	boolean next() throws IOException
+	{
+		length = 0;
+		tooLong = false;
+		boolean any = false;
+
+		while (true)
+		{
+			if (position == limit)
+			{
+				limit = in.read(buffer);
+				position = 0;
+				if (limit <= 0)
+				{
+					limit = 0;
+					return any;
+				}
+			}
+
+			any = true;
+			byte c = buffer[position++];
+			if (c == '\n')
+			{
+				if (length > 0 && line[length - 1] == '\r' && !tooLong)
+				{
+					length--;
+				}
+				return true;
+			}
+
+			if (length < line.length)
+			{
+				line[length++] = c;
+			}
+			else
+			{
+				tooLong = true;
+			}
+		}
+	}
+
+	/**
+	 * @return true if the line read by next() didn't fit and was cut short
+	 */
+	boolean isTooLong()
+	{
+		return tooLong;
+	}
+
+	/**
+	 * @return true if the line read by next() is empty or only white space
+	 */
+	boolean isBlank()
+	{
+		for (int i = 0; i < length; i++)
+		{
+			if (line[i] != ' ' && line[i] != '\t' && line[i] != '\r')
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the line read by next()
+	 */
+	String getLine()
+	{
+		return new String(line, 0, length, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,444 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.server;
+
+import static gpv.util.Coordinate.makeCoordinate;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import gpv.chess.*;
+import gpv.util.Coordinate;
+
+/**
+ * Answers move validation requests written as newline-delimited JSON, one
+ * object per line, from stdin or from clients connecting to a port on the
+ * loopback address. A request gives a position in FEN and a move:
+ * <pre>
+ * {"id": 7, "fen": "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "from": "e2", "to": "e4"}
+ * </pre>
+ * and is answered with one line, {"id":7,"valid":true}, using
+ * ChessPiece.canMove(), or ChessPiece.canMoveLegally() if the request also
+ * has "legal": true. The id can be any JSON number, string, true, false or
+ * null and is echoed back unchanged. A request that can't be understood is
+ * answered with {"id":...,"error":"..."}, with a null id if its own isn't
+ * one of those, and the stream carries on.
+ * <br/>
+ * Answers come back in the order of the requests, but the requests are
+ * worked on concurrently: a reader thread splits the input into lines and
+ * hands each to a pool of worker threads, and the answers are written as
+ * they come due. At most window requests are in flight per stream, so a
+ * client that sends faster than it reads is held back instead of filling
+ * the heap, and lines are read through fixed buffers of MAX_LINE bytes.
+ * Every worker reads positions onto one board of its own with a Fen, and
+ * keeps the last one, so a run of requests about one position parses it only
+ * once per worker and reading another allocates nothing.
+ * <br/>
+ * On a port at most maxClients clients are served at a time, each by a
+ * thread of a fixed pool and a reader thread of its own. Clients beyond that
+ * wait in the socket's backlog until one of those served goes away.
+ * <br/>
+ * Usage:
+ * <pre>
+ * ValidationServer [--threads n] [--clients n] [--port p]
+ * </pre>
+ * Without --port the server answers stdin on stdout and stops at the end of
+ * the input. The port only listens on the loopback address. Unix domain
+ * sockets would need Java 16, which the library doesn't require.
+ *
+ * @version Apr 24, 2020
+ */
+public final class ValidationServer implements Closeable
+{
+	/**
+	 * Longest request line, in bytes.
+	 */
+	public static final int MAX_LINE = 8192;
+
+	/**
+	 * Default number of requests in flight per stream.
+	 */
+	public static final int DEFAULT_WINDOW = 4096;
+
+	/**
+	 * Default number of clients served at a time.
+	 */
+	public static final int DEFAULT_CLIENTS = 16;
+
+	private static final Future<String> END = CompletableFuture.completedFuture(null);
+
+	private final ExecutorService workers;
+	private final ExecutorService clients;
+	private final int window;
+	private final int maxClients;
+
+	// the board of the last position each worker was given
+	private final ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+
+	/**
+	 * A worker's last position.
+	 */
+	private static final class Position
+	{
+		private String fen;
+		private final Fen parser = new Fen();
+		private final BitboardBoard board = new BitboardBoard();
+	}
+
+	/**
+	 * @param threads the number of worker threads
+	 */
+	public ValidationServer(int threads)
+	{
+		this(threads, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * @param threads the number of worker threads
+	 * @param window the most requests in flight per stream
+	 */
+	public ValidationServer(int threads, int window)
+	{
+		this(threads, window, DEFAULT_CLIENTS);
+	}
+
+	/**
+	 * @param threads the number of worker threads
+	 * @param window the most requests in flight per stream
+	 * @param maxClients the most clients listen() serves at a time
+	 */
+	public ValidationServer(int threads, int window, int maxClients)
+	{
+		if (threads < 1 || window < 1 || maxClients < 1)
+		{
+			throw new IllegalArgumentException("Threads, window and clients must be positive");
+		}
+
+		this.window = window;
+		this.maxClients = maxClients;
+		workers = Executors.newFixedThreadPool(threads, daemons("validator-"));
+		clients = Executors.newFixedThreadPool(maxClients, daemons("client-"));
+	}
+
+	/**
+	 * @return a factory of daemon threads named prefix and a number
+	 */
+	private static ThreadFactory daemons(String prefix)
+	{
+		AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/**
+	 * Answer every request on in, writing the answers to out in the same
+	 * order, until in ends. Neither stream is closed, even if this gives up:
+	 * the reader thread is told to stop, and does once the read it may be in
+	 * returns.
+	 *
+	 * @param in the requests
+	 * @param out where the answers go
+	 * @throws IOException if either stream fails
+	 */
+	public void serve(InputStream in, OutputStream out) throws IOException
+	{
+		BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(window);
+		IOException[] failure = new IOException[1];
+		AtomicBoolean stopped = new AtomicBoolean();
+
+		Thread reader = new Thread(() -> read(in, pending, failure, stopped), "request-reader");
+		reader.setDaemon(true);
+		reader.start();
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+		try
+		{
+			for (Future<String> answer = pending.take(); answer != END; answer = pending.take())
+			{
+				writer.write(answer.get());
+				writer.write('\n');
+
+				// flush whenever the client may be waiting for what was written
+				if (pending.isEmpty())
+				{
+					writer.flush();
+				}
+			}
+			writer.flush();
+			reader.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while serving");
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException(e.getCause());
+		}
+		finally
+		{
+			// however this ends, the reader mustn't be left waiting for room
+			stop(pending, stopped);
+		}
+
+		if (failure[0] != null)
+		{
+			throw failure[0];
+		}
+	}
+
+	/**
+	 * Accept clients on a server socket until it is closed, serving up to
+	 * maxClients at a time. The next client isn't accepted until there is
+	 * room for it.
+	 *
+	 * @param server a bound server socket
+	 */
+	public void listen(ServerSocket server)
+	{
+		Semaphore room = new Semaphore(maxClients);
+		while (!server.isClosed())
+		{
+			Socket client;
+			try
+			{
+				room.acquire();
+				client = server.accept();
+			}
+			catch (IOException e)
+			{
+				// closed
+				room.release();
+				return;
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			clients.execute(() -> {
+				try (Socket s = client)
+				{
+					serve(s.getInputStream(), s.getOutputStream());
+				}
+				catch (IOException e)
+				{
+					// the client went away
+				}
+				finally
+				{
+					room.release();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stop the worker and client threads.
+	 */
+	@Override
+	public void close()
+	{
+		workers.shutdown();
+		clients.shutdown();
+	}
+
+	/**
+	 * Tell the reader thread to stop, and make room in case it is waiting to
+	 * hand over a request. It looks at the flag before each line it hands
+	 * over, so it hands over at most one more.
+	 */
+	private static void stop(BlockingQueue<Future<String>> pending, AtomicBoolean stopped)
+	{
+		stopped.set(true);
+		pending.clear();
+	}
+
+	/**
+	 * The reader thread: one task per line, then END, until stopped.
+	 */
+	private void read(InputStream in, BlockingQueue<Future<String>> pending, IOException[] failure,
+			AtomicBoolean stopped)
+	{
+		LineReader lines = new LineReader(in, MAX_LINE);
+
+		try
+		{
+			try
+			{
+				while (!stopped.get() && lines.next())
+				{
+					if (lines.isTooLong())
+					{
+						pending.put(CompletableFuture.completedFuture(
+								error("null", "Request longer than " + MAX_LINE + " bytes")));
+					}
+					else if (!lines.isBlank())
+					{
+						String line = lines.getLine();
+						pending.put(workers.submit(() -> answer(line)));
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				failure[0] = e;
+			}
+			if (!stopped.get())
+			{
+				pending.put(END);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// serve() gave up
+		}
+	}
+
+	/**
+	 * @param request one request line
+	 * @return the answer line
+	 */
+	String answer(String request)
+	{
+		String id = "null";
+
+		try
+		{
+			Map<String, String> fields = Json.parseObject(request);
+			String given = fields.getOrDefault("id", "null");
+			if (!Json.isScalar(given))
+			{
+				throw new IllegalArgumentException("The id must be a number, string, true, false or null");
+			}
+			id = given;
+			BitboardBoard b = board(Json.string(required(fields, "fen")));
+			Coordinate from = square(Json.string(required(fields, "from")));
+			Coordinate to = square(Json.string(required(fields, "to")));
+			boolean legal = "true".equals(fields.get("legal"));
+
+			ChessPiece p = b.insideBoard(from) ? (ChessPiece) b.getPieceAt(from) : null;
+			boolean valid = p != null && (legal ? p.canMoveLegally(from, to, b) : p.canMove(from, to, b));
+			return "{\"id\":" + id + ",\"valid\":" + valid + "}";
+		}
+		catch (RuntimeException e)
+		{
+			return error(id, e.getMessage() == null ? e.toString() : e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the board for a position, reusing the worker's last one if it
+	 *         is the same position
+	 */
+	private BitboardBoard board(String fen)
+	{
+		Position last = positions.get();
+		if (!fen.equals(last.fen))
+		{
+			// forget the position first, in case the new one is malformed
+			last.fen = null;
+			last.parser.read(fen, last.board);
+			last.fen = fen;
+		}
+		return last.board;
+	}
+
+	/**
+	 * @return the value of a member that must be there
+	 */
+	private static String required(Map<String, String> fields, String name)
+	{
+		String value = fields.get(name);
+		if (value == null)
+		{
+			throw new IllegalArgumentException("Missing \"" + name + "\"");
+		}
+		return value;
+	}
+
+	/**
+	 * @param name a square in algebraic form, e.g. "e2"
+	 * @return its coordinate
+	 */
+	static Coordinate square(String name)
+	{
+		if (name.length() < 2 || name.charAt(0) < 'a' || name.charAt(0) > 'z')
+		{
+			throw new IllegalArgumentException("Not a square: " + name);
+		}
+		return makeCoordinate(Integer.parseInt(name.substring(1)), name.charAt(0) - 'a' + 1);
+	}
+
+	/**
+	 * @return an error answer
+	 */
+	private static String error(String id, String message)
+	{
+		return "{\"id\":" + id + ",\"error\":" + Json.quote(message) + "}";
+	}
+
+	/**
+	 * @param args see the class comment
+	 * @throws IOException if stdin, stdout or the port fails
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		int maxClients = DEFAULT_CLIENTS;
+		int port = -1;
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--threads") && i + 1 < args.length)
+			{
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("--clients") && i + 1 < args.length)
+			{
+				maxClients = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("--port") && i + 1 < args.length)
+			{
+				port = Integer.parseInt(args[++i]);
+			}
+			else
+			{
+				System.err.println("Usage: ValidationServer [--threads n] [--clients n] [--port p]");
+				System.exit(2);
+			}
+		}
+
+		try (ValidationServer server = new ValidationServer(threads, DEFAULT_WINDOW, maxClients))
+		{
+			if (port < 0)
+			{
+				server.serve(System.in, System.out);
+				return;
+			}
+
+			try (ServerSocket socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress()))
+			{
+				System.err.println("Listening on " + socket.getLocalSocketAddress());
+				server.listen(socket);
+			}
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.store;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * A read-only file of fixed width records, each a 64-bit key and a 64-bit
+ * value, sorted by key, looked up without reading the file into the heap.
+ * The intended keys are BitboardBoard.getKey() position hashes, which are
+ * evenly spread, and the values packed validation results such as the
+ * squares a piece can legally move to, as canMoveAll() or a MoveCache works
+ * them out.
+ * <br/>
+ * The file is mapped with FileChannel.map() in segments of up to 1 GB, so
+ * files larger than the 2 GB a single MappedByteBuffer can hold work too, and
+ * the operating system pages in only what lookups touch. A lookup is an
+ * interpolation search: with evenly spread keys it guesses where the key is
+ * from its value and lands within a few records of it, so it touches a
+ * couple of pages however large the file. After a few guesses that don't
+ * narrow things down it falls back to halving, which bounds the worst case
+ * at a binary search.
+ * <br/>
+ * The file is a 16 byte header, the magic number and the record count, and
+ * then the records in ascending signed key order, everything big-endian.
+ * PositionStoreWriter writes it. Lookups only use absolute reads of the
+ * mapped buffers, so one PositionStore can be shared by any number of
+ * threads.
+ *
+ * @version Apr 24, 2020
+ */
+public final class PositionStore implements Closeable
+{
+	/**
+	 * "GPVSTORE" in ASCII.
+	 */
+	static final long MAGIC = 0x475056_53544F5245L;
+	static final int HEADER_BYTES = 16;
+	static final int RECORD_BYTES = 16;
+
+	// 64M records, 1 GB, per mapped segment
+	private static final int RECORDS_PER_SEGMENT = 1 << 26;
+
+	// interpolation steps before halving
+	private static final int GUESSES = 4;
+
+	private final long count;
+	private final int recordsPerSegment;
+	private final ByteBuffer[] segments;
+
+	/**
+	 * @param count the number of records
+	 * @param recordsPerSegment the records in each mapped segment
+	 * @param segments the mapped records
+	 */
+	private PositionStore(long count, int recordsPerSegment, ByteBuffer[] segments)
+	{
+		this.count = count;
+		this.recordsPerSegment = recordsPerSegment;
+		this.segments = segments;
+	}
+
+	/**
+	 * @param file a file written by PositionStoreWriter
+	 * @return the store
+	 * @throws IOException if the file can't be read or isn't a store
+	 */
+	public static PositionStore open(Path file) throws IOException
+	{
+		return open(file, RECORDS_PER_SEGMENT);
+	}
+
+	/**
+	 * @param file a file written by PositionStoreWriter
+	 * @param recordsPerSegment the records in each mapped segment
+	 * @return the store
+	 * @throws IOException if the file can't be read or isn't a store
+	 */
+	static PositionStore open(Path file, int recordsPerSegment) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+			{
+				// keep reading
+			}
+			header.flip();
+
+			long count = header.remaining() == HEADER_BYTES && header.getLong() == MAGIC ? header.getLong() : -1;
+			if (count < 0 || channel.size() != HEADER_BYTES + count * RECORD_BYTES)
+			{
+				throw new IOException(file + " is not a position store");
+			}
+
+			ByteBuffer[] segments = new ByteBuffer[(int) ((count + recordsPerSegment - 1) / recordsPerSegment)];
+			for (int i = 0; i < segments.length; i++)
+			{
+				long first = (long) i * recordsPerSegment;
+				long records = Math.min(recordsPerSegment, count - first);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES);
+			}
+
+			// the mappings stay valid after the channel is closed
+			return new PositionStore(count, recordsPerSegment, segments);
+		}
+	}
+
+	/**
+	 * @return the number of records
+	 */
+	public long size()
+	{
+		return count;
+	}
+
+	/**
+	 * Look a key up.
+	 *
+	 * @param key the key
+	 * @param value where to put the value (value[0])
+	 * @return true if the key was found
+	 */
+	public boolean probe(long key, long[] value)
+	{
+		long low = 0;
+		long high = count - 1;
+		int guesses = 0;
+
+		while (low <= high)
+		{
+			long lowKey = key(low);
+			long highKey = key(high);
+			if (key < lowKey || key > highKey)
+			{
+				return false;
+			}
+
+			long middle;
+			if (guesses++ < GUESSES && highKey != lowKey)
+			{
+				// where the key would be if the keys in between were evenly spread
+				double fraction = ((double) key - lowKey) / ((double) highKey - lowKey);
+				middle = Math.min(high, Math.max(low, low + (long) (fraction * (high - low))));
+			}
+			else
+			{
+				middle = (low + high) >>> 1;
+			}
+
+			long middleKey = key(middle);
+			if (middleKey < key)
+			{
+				low = middle + 1;
+			}
+			else if (middleKey > key)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				value[0] = segment(middle).getLong(offset(middle) + 8);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Drop the mappings. The memory is given back when they are garbage
+	 * collected, as Java has no portable way of unmapping a file sooner.
+	 */
+	@Override
+	public void close()
+	{
+		java.util.Arrays.fill(segments, null);
+	}
+
+	/**
+	 * @return the key of a record
+	 */
+	private long key(long record)
+	{
+		return segment(record).getLong(offset(record));
+	}
+
+	/**
+	 * @return the mapped segment holding a record
+	 */
+	private ByteBuffer segment(long record)
+	{
+		ByteBuffer segment = segments[(int) (record / recordsPerSegment)];
+		if (segment == null)
+		{
+			throw new IllegalStateException("The store is closed");
+		}
+		return segment;
+	}
+
+	/**
+	 * @return the offset of a record within its segment
+	 */
+	private int offset(long record)
+	{
+		return (int) (record % recordsPerSegment) * RECORD_BYTES;
+	}
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.store;
+
+import static gpv.store.PositionStore.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Writes a PositionStore file. Records have to be added in ascending key
+ * order, which lets a store of any size be written through one small buffer,
+ * for instance from the output of an external sort. write() sorts records
+ * that fit in memory first, in the caller's arrays so that no copy of them
+ * is needed. The header is written last, by close(), and only if every
+ * record made it, so a file that wasn't finished never opens as a store.
+ *
+ * @version Apr 24, 2020
+ */
+public final class PositionStoreWriter implements Closeable
+{
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	private long count;
+	private long lastKey;
+	private boolean failed;
+
+	/**
+	 * @param file the file to write, replacing it if it exists
+	 * @throws IOException if the file can't be written
+	 */
+	public PositionStoreWriter(Path file) throws IOException
+	{
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		// no magic until close()
+		buffer.putLong(0L).putLong(0L);
+	}
+
+	/**
+	 * @param key the key, greater than every key added so far
+	 * @param value the value
+	 * @throws IOException if the file can't be written
+	 * @throws IllegalArgumentException if the key is out of order
+	 */
+	public void add(long key, long value) throws IOException
+	{
+		if (count > 0 && key <= lastKey)
+		{
+			failed = true;
+			throw new IllegalArgumentException("Keys must be added in ascending order without repeats");
+		}
+
+		if (buffer.remaining() < RECORD_BYTES)
+		{
+			try
+			{
+				flush();
+			}
+			catch (IOException e)
+			{
+				failed = true;
+				throw e;
+			}
+		}
+		buffer.putLong(key).putLong(value);
+		lastKey = key;
+		count++;
+	}
+
+	/**
+	 * Finish the file by writing out the last records and the header. After
+	 * a failed add() the header is left blank, so the file isn't a store.
+	 *
+	 * @throws IOException if the file can't be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			if (failed)
+			{
+				return;
+			}
+			flush();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putLong(MAGIC).putLong(count);
+			header.flip();
+			while (header.hasRemaining())
+			{
+				channel.write(header, header.position());
+			}
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Write a store from records in any order. The arrays are sorted in place
+	 * by key, each value staying with its key.
+	 *
+	 * @param file the file to write
+	 * @param keys the keys, all different; left in ascending order
+	 * @param values the value of each key, as long as keys; reordered along with them
+	 * @throws IOException if the file can't be written
+	 * @throws IllegalArgumentException if the arrays differ in length or a key repeats,
+	 *         in which case the file isn't touched
+	 */
+	public static void write(Path file, long[] keys, long[] values) throws IOException
+	{
+		if (keys.length != values.length)
+		{
+			throw new IllegalArgumentException(
+					"There are " + keys.length + " keys but " + values.length + " values");
+		}
+		sort(keys, values);
+		for (int i = 1; i < keys.length; i++)
+		{
+			if (keys[i] == keys[i - 1])
+			{
+				throw new IllegalArgumentException("Key " + keys[i] + " repeats");
+			}
+		}
+
+		PositionStoreWriter writer = new PositionStoreWriter(file);
+		boolean written = false;
+		try
+		{
+			for (int i = 0; i < keys.length; i++)
+			{
+				writer.add(keys[i], values[i]);
+			}
+			written = true;
+		}
+		finally
+		{
+			// a store that wasn't finished is removed, not just left without a header
+			writer.failed |= !written;
+			writer.close();
+			if (!written)
+			{
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	/**
+	 * Write out the buffer.
+	 */
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Heapsort the keys, moving the values along, in place.
+	 */
+	private static void sort(long[] keys, long[] values)
+	{
+		int n = keys.length;
+
+		for (int i = n / 2 - 1; i >= 0; i--)
+		{
+			siftDown(keys, values, i, n);
+		}
+		for (int end = n - 1; end > 0; end--)
+		{
+			swap(keys, values, 0, end);
+			siftDown(keys, values, 0, end);
+		}
+	}
+
+	private static void siftDown(long[] keys, long[] values, int i, int n)
+	{
+		while (2 * i + 1 < n)
+		{
+			int child = 2 * i + 1;
+			if (child + 1 < n && keys[child + 1] > keys[child])
+			{
+				child++;
+			}
+			if (keys[i] >= keys[child])
+			{
+				return;
+			}
+			swap(keys, values, i, child);
+			i = child;
+		}
+	}
+
+	private static void swap(long[] keys, long[] values, int i, int j)
+	{
+		long k = keys[i];
+		keys[i] = keys[j];
+		keys[j] = k;
+		long v = values[i];
+		values[i] = values[j];
+		values[j] = v;
+	}
+}
@@ -17,15 +17,23 @@ import java.util.stream.Stream;
 import gpv.Piece;
 
 /**
- * Class for a rectangular board made up of squares
+ * Class for a rectangular board made up of squares. The squares are kept in
+ * a dense array indexed by (row - 1) * nColumns + (column - 1). Pieces that
+ * are placed outside of the board dimensions are still accepted and kept in
+ * a small side map so that callers see the same behavior as before.
  * @version Feb 23, 2020
  */
 public class Board
 {
-	Map<Coordinate, Piece> board;
+	Piece[] squares;
+	Map<Coordinate, Piece> offBoard;	// lazily created, for squares outside the board
 	public int nRows;
 	public int nColumns;
 	
+	// the dimensions that squares was allocated for
+	private int rowCapacity;
+	private int columnCapacity;
+	
 	/**
 	 * Constructor for an uninitialized board with given dimensions.
 	 * @param maxRows
@@ -35,7 +43,7 @@ public class Board
 	{
 		nRows = maxRows;
 		nColumns = maxColumns;
-		board = new HashMap<Coordinate, Piece>();
+		allocate(maxRows, maxColumns);
 	}
 	
 	/**
@@ -51,12 +59,57 @@ public class Board
 		reset(initializers);
 	}
 	
+	/**
+	 * Allocate the square array for the given dimensions.
+	 * @param rows
+	 * @param columns
+	 */
+	private void allocate(int rows, int columns)
+	{
+		rowCapacity = Math.max(rows, 0);
+		columnCapacity = Math.max(columns, 0);
+		squares = new Piece[rowCapacity * columnCapacity];
+	}
+	
+	/**
+	 * @param row
+	 * @param column
+	 * @return the index into squares, or -1 if the square is not in the array
+	 */
+	private int indexOf(int row, int column)
+	{
+		if (row < 1 || row > rowCapacity || column < 1 || column > columnCapacity)
+		{
+			return -1;
+		}
+		
+		return (row - 1) * columnCapacity + (column - 1);
+	}
+	
 	/**
 	 * @return the piece at the given coordinate or null if none.
 	 */
 	public Piece getPieceAt(Coordinate c)
 	{
-		return board.get(c);
+		return getPieceAt(c.getRow(), c.getColumn());
+	}
+	
+	/**
+	 * Same as getPieceAt(Coordinate) without needing a Coordinate.
+	 * @param row
+	 * @param column
+	 * @return the piece at the given square or null if none.
+	 */
+	public Piece getPieceAt(int row, int column)
+	{
+		int index = indexOf(row, column);
+		
+		if (index >= 0)
+		{
+			return squares[index];
+		}
+		
+		return offBoard == null ? null : offBoard.get(Coordinate.makeCoordinate(row, column));
 	}
 	
 	/**
@@ -66,21 +119,46 @@ public class Board
 	 */
 	public void reset(List<SquareInitializer> initializers)
 	{
-		board.clear();
+		clear();
 		for (SquareInitializer si : initializers) {
-			board.put(si.getSquare(), si.getPiece());
+			putPieceAt(si.getPiece(), si.getSquare());
+		}
+	}
+	
+	/**
+	 * Remove every piece from the board.
+	 */
+	public void clear()
+	{
+		Arrays.fill(squares, null);
+		if (offBoard != null) {
+			offBoard.clear();
 		}
 	}
 	
 	/**
 	 * Place a piece p at the given location
-	 * @param p the piece to place
+	 * @param p the piece to place, or null to empty the square
 	 * @param c the coordinate of the square
-	 * @return the piece that was placed
+	 * @return the piece that was previously on the square or null if none
 	 */
 	public Piece putPieceAt(Piece p, Coordinate c)
 	{
-		return board.put(c, p);
+		int index = indexOf(c.getRow(), c.getColumn());
+		
+		if (index >= 0)
+		{
+			Piece previous = squares[index];
+			squares[index] = p;
+			return previous;
+		}
+		
+		if (offBoard == null)
+		{
+			offBoard = new HashMap<Coordinate, Piece>();
+		}
+		
+		return offBoard.put(c, p);
 	}
 	
 	/**
@@ -92,11 +170,62 @@ public class Board
 	}
 
 	/**
+	 * Changing the number of rows keeps every piece where it is.
 	 * @param nRows the nRows to set
 	 */
 	public void setnRows(int nRows)
 	{
 		this.nRows = nRows;
+		
+		if (nRows != rowCapacity)
+		{
+			Piece[] oldSquares = squares;
+			int oldRows = rowCapacity;
+			Map<Coordinate, Piece> oldOffBoard = offBoard;
+			
+			allocate(nRows, columnCapacity);
+			offBoard = null;
+			
+			for (int row = 1; row <= oldRows; row++)
+			{
+				for (int column = 1; column <= columnCapacity; column++)
+				{
+					Piece p = oldSquares[(row - 1) * columnCapacity + (column - 1)];
+					if (p != null)
+					{
+						putPieceAt(p, Coordinate.makeCoordinate(row, column));
+					}
+				}
+			}
+			
+			if (oldOffBoard != null)
+			{
+				for (Map.Entry<Coordinate, Piece> e : oldOffBoard.entrySet())
+				{
+					putPieceAt(e.getValue(), e.getKey());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Squares can also be named by number, counting from 0 along the rows, as
+	 * in Piece.canMoveAll(). On an 8x8 board these are the bitboard squares.
+	 * @param c a coordinate on the board
+	 * @return its square number, (row - 1) * nColumns + (column - 1)
+	 */
+	public int squareOf(Coordinate c)
+	{
+		return (c.getRow() - 1) * nColumns + (c.getColumn() - 1);
+	}
+	
+	/**
+	 * @param square a square number, see squareOf()
+	 * @return its coordinate
+	 */
+	public Coordinate coordinateOf(int square)
+	{
+		return Coordinate.makeCoordinate(square / nColumns + 1, square % nColumns + 1);
 	}
 	
 	/**
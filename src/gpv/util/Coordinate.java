@@ -13,6 +13,7 @@
 package gpv.util;
 
 import java.awt.Point;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class represents a two-dimensional coordinate that would be
@@ -23,11 +24,50 @@ import java.awt.Point;
  * used as keys in collections that use hashing (e.g. HashMap) and a
  * toString() to print the coordinate in some readable form. This is
  * useful for debugging.
+ * <br/>
+ * Coordinates are interned. Every coordinate whose row and column fall in
+ * [MIN_CACHED, MAX_CACHED] is preallocated, so makeCoordinate() on a board
+ * square never allocates and two coordinates for the same square can be
+ * compared with ==. Values outside that range go through a bounded
+ * secondary cache. Since instances are shared, the Point mutators throw
+ * UnsupportedOperationException.
  * 
  * @version Feb 21, 2020
  */
 public class Coordinate extends Point
 {
+	/**
+	 * The smallest row or column value that is preallocated.
+	 */
+	public static final int MIN_CACHED = -2;
+	
+	/**
+	 * The largest row or column value that is preallocated. This covers boards
+	 * up to 16x16 plus the off-board squares a knight can probe from the edge.
+	 */
+	public static final int MAX_CACHED = 18;
+	
+	private static final int CACHE_SPAN = MAX_CACHED - MIN_CACHED + 1;
+	
+	// the maximum number of out-of-range coordinates kept by the overflow cache
+	private static final int OVERFLOW_LIMIT = 4096;
+	
+	private static final Coordinate[] CACHE = new Coordinate[CACHE_SPAN * CACHE_SPAN];
+	
+	private static final ConcurrentHashMap<Long, Coordinate> OVERFLOW = 
+			new ConcurrentHashMap<Long, Coordinate>();
+	
+	static
+	{
+		for (int row = MIN_CACHED; row <= MAX_CACHED; row++)
+		{
+			for (int column = MIN_CACHED; column <= MAX_CACHED; column++)
+			{
+				CACHE[(row - MIN_CACHED) * CACHE_SPAN + (column - MIN_CACHED)] = 
+						new Coordinate(row, column);
+			}
+		}
+	}
 	
 	/**
 	 * The only constructor. It is private to avoid any client from
@@ -44,15 +84,55 @@ public class Coordinate extends Point
 	
 	/**
 	 * Factory method. This only creates a Coordinate if it hasn't been created
-	 * already.
+	 * already. Coordinates in the preallocated range come straight out of the
+	 * table; anything else is looked up in the overflow cache, and once that
+	 * cache is full a fresh (non-interned) instance is returned.
 	 * 
 	 * @param row
 	 * @param column 
-	 * @return
+	 * @return the shared Coordinate for (row, column)
 	 */
 	public static Coordinate makeCoordinate(int row, int column)
 	{
-		return new Coordinate(row, column);
+		if (row >= MIN_CACHED && row <= MAX_CACHED 
+				&& column >= MIN_CACHED && column <= MAX_CACHED)
+		{
+			return CACHE[(row - MIN_CACHED) * CACHE_SPAN + (column - MIN_CACHED)];
+		}
+		
+		return makeOverflowCoordinate(row, column);
+	}
+	
+	/**
+	 * Slow path for makeCoordinate() when the values are outside of the
+	 * preallocated table.
+	 * 
+	 * @param row
+	 * @param column
+	 * @return the cached Coordinate, or a new one if the overflow cache is full
+	 */
+	private static Coordinate makeOverflowCoordinate(int row, int column)
+	{
+		Long key = ((long) row << 32) | (column & 0xFFFFFFFFL);
+		Coordinate c = OVERFLOW.get(key);
+		
+		if (c == null)
+		{
+			c = new Coordinate(row, column);
+			
+			// stop interning once the cache is full so it can't grow without bound
+			if (OVERFLOW.size() < OVERFLOW_LIMIT)
+			{
+				Coordinate previous = OVERFLOW.putIfAbsent(key, c);
+				
+				if (previous != null)
+				{
+					c = previous;
+				}
+			}
+		}
+		
+		return c;
 	}
 	
 	/**
@@ -95,6 +175,60 @@ public class Coordinate extends Point
 		return this.y;
 	}
 
+	/**
+	 * Coordinates are shared, so they can't be moved.
+	 * 
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void setLocation(int x, int y)
+	{
+		throw new UnsupportedOperationException("Coordinates are immutable");
+	}
+	
+	/**
+	 * Coordinates are shared, so they can't be moved.
+	 * 
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void setLocation(double x, double y)
+	{
+		throw new UnsupportedOperationException("Coordinates are immutable");
+	}
+	
+	/**
+	 * Coordinates are shared, so they can't be moved.
+	 * 
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void setLocation(Point p)
+	{
+		throw new UnsupportedOperationException("Coordinates are immutable");
+	}
+	
+	/**
+	 * Coordinates are shared, so they can't be moved.
+	 * 
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void translate(int dx, int dy)
+	{
+		throw new UnsupportedOperationException("Coordinates are immutable");
+	}
+	
+	/**
+	 * Keeps deserialized coordinates interned.
+	 * 
+	 * @return the shared instance for this row and column
+	 */
+	private Object readResolve()
+	{
+		return makeCoordinate(x, y);
+	}
+
 	/*
 	 * @see java.lang.Object#hashCode()
 	 */
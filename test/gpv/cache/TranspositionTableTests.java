@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests for the lock-free transposition table.
+ * @version Apr 19, 2020
+ */
+class TranspositionTableTests
+{
+	private long[] entry = new long[2];
+
+	@Test
+	void storeAndProbe()
+	{
+		TranspositionTable table = new TranspositionTable(1000);
+		assertEquals(1024, table.capacity());
+		assertFalse(table.probe(42L, entry));
+
+		table.store(42L, 0xDEADL, 7, 3);
+		assertTrue(table.probe(42L, entry));
+		assertEquals(0xDEADL, entry[0]);
+		assertEquals(7L, entry[1]);
+
+		table.store(42L, 0xBEEFL, 1, 0);
+		assertTrue(table.probe(42L, entry));
+		assertEquals(0xBEEFL, entry[0]);
+
+		table.clear();
+		assertFalse(table.probe(42L, entry));
+	}
+
+	@Test
+	void sizes()
+	{
+		assertEquals(2, TranspositionTable.size(0));
+		assertEquals(2, TranspositionTable.size(2));
+		assertEquals(4, TranspositionTable.size(3));
+		assertEquals(TranspositionTable.MAX_ENTRIES, TranspositionTable.size(TranspositionTable.MAX_ENTRIES - 1));
+		assertEquals(TranspositionTable.MAX_ENTRIES, TranspositionTable.size(TranspositionTable.MAX_ENTRIES));
+		assertThrows(IllegalArgumentException.class, () -> TranspositionTable.size(TranspositionTable.MAX_ENTRIES + 1));
+		assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(Integer.MAX_VALUE));
+		assertEquals(2, new TranspositionTable(1).capacity());
+	}
+
+	@Test
+	void replacesShallowerThenOlder()
+	{
+		// a single bucket of two entries, so every key collides
+		TranspositionTable table = new TranspositionTable(2);
+		table.store(1L, 1L, 0, 5);
+		table.store(2L, 2L, 0, 1);
+		table.store(3L, 3L, 0, 4);
+		assertTrue(table.probe(1L, entry));
+		assertFalse(table.probe(2L, entry));
+		assertTrue(table.probe(3L, entry));
+
+		// after a new age the deeper old entry goes before a shallow new one
+		table.nextAge();
+		table.store(4L, 4L, 0, 0);
+		table.store(5L, 5L, 0, 0);
+		assertFalse(table.probe(1L, entry));
+		assertFalse(table.probe(3L, entry));
+		assertTrue(table.probe(4L, entry));
+		assertTrue(table.probe(5L, entry));
+	}
+
+	@Test
+	void concurrentReadersNeverSeeTornEntries() throws Exception
+	{
+		TranspositionTable table = new TranspositionTable(64);
+		int threads = 4;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		AtomicLong hits = new AtomicLong();
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int t = 0; t < threads; t++)
+		{
+			final long seed = t;
+			futures.add(pool.submit(() -> {
+				Random random = new Random(seed);
+				long[] e = new long[2];
+				for (int i = 0; i < 200000; i++)
+				{
+					long key = random.nextInt(1000) * 0x9E3779B97F4A7C15L;
+					if (random.nextBoolean())
+					{
+						table.store(key, data(key), (int) key, random.nextInt(10));
+					}
+					else if (table.probe(key, e))
+					{
+						assertEquals(data(key), e[0]);
+						assertEquals((long) (int) key & 0xFFFFFFFFL, e[1]);
+						hits.incrementAndGet();
+					}
+				}
+			}));
+		}
+
+		for (Future<?> f : futures)
+		{
+			f.get();
+		}
+		pool.shutdown();
+		assertTrue(hits.get() > 0);
+	}
+
+	/**
+	 * Data that depends on the key without cancelling it out of the check word.
+	 */
+	private static long data(long key)
+	{
+		return Long.rotateLeft(key, 17) * 31;
+	}
+}
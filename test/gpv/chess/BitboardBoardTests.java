@@ -0,0 +1,503 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.ChessPieceDescriptor.*;
+import static gpv.util.Coordinate.makeCoordinate;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.*;
+import gpv.util.*;
+
+/**
+ * Tests that the bitboard masks follow the squares and that canMove() gives
+ * the same answer on a BitboardBoard as on a plain Board.
+ * @version Apr 10, 2020
+ */
+class BitboardBoardTests
+{
+	private static ChessPieceFactory factory = null;
+	private BitboardBoard board;
+
+	@BeforeAll
+	public static void setupBeforeTests()
+	{
+		factory = new ChessPieceFactory();
+	}
+
+	@BeforeEach
+	public void setupTest()
+	{
+		board = new BitboardBoard();
+	}
+
+	@Test
+	void masksFollowPutPieceAt()
+	{
+		ChessPiece wq = factory.makePiece(WHITEQUEEN);
+		ChessPiece bp = factory.makePiece(BLACKPAWN);
+		board.putPieceAt(wq, makeCoordinate(1, 4));
+		board.putPieceAt(bp, makeCoordinate(7, 5));
+		assertEquals(1L << Bitboards.square(1, 4), board.getPieces(WHITEQUEEN));
+		assertEquals(1L << Bitboards.square(7, 5), board.getPieces(PlayerColor.BLACK));
+		assertEquals(2, Long.bitCount(board.getOccupied()));
+
+		board.putPieceAt(wq, makeCoordinate(7, 5));
+		assertEquals(0L, board.getPieces(BLACKPAWN));
+		assertEquals(0L, board.getPieces(PlayerColor.BLACK));
+
+		board.putPieceAt(null, makeCoordinate(7, 5));
+		assertEquals(1L << Bitboards.square(1, 4), board.getOccupied());
+	}
+
+	@Test
+	void clearEmptiesMasks()
+	{
+		board.putPieceAt(factory.makePiece(WHITEKING), makeCoordinate(1, 5));
+		board.clear();
+		assertEquals(0L, board.getOccupied());
+		assertEquals(0L, board.getPieces(WHITEKING));
+		assertNull(board.getPieceAt(1, 5));
+	}
+
+	@Test
+	void rejectsOtherDimensions()
+	{
+		assertThrows(UnsupportedOperationException.class, () -> board.setnRows(10));
+	}
+
+	@Test
+	void zobristKeyIgnoresOrder()
+	{
+		BitboardBoard other = new BitboardBoard();
+		board.putPieceAt(factory.makePiece(WHITEKING), makeCoordinate(1, 5));
+		board.putPieceAt(factory.makePiece(BLACKKNIGHT), makeCoordinate(6, 3));
+		other.putPieceAt(factory.makePiece(BLACKKNIGHT), makeCoordinate(8, 2));
+		other.putPieceAt(factory.makePiece(WHITEKING), makeCoordinate(1, 5));
+		assertNotEquals(board.getKey(), other.getKey());
+
+		// move the knight b8-c6 on the second board
+		ChessPiece knight = (ChessPiece) other.putPieceAt(null, makeCoordinate(8, 2));
+		other.putPieceAt(knight, makeCoordinate(6, 3));
+		assertEquals(board.getKey(), other.getKey());
+		assertEquals(board.getKey(), board.copy().getKey());
+
+		board.clear();
+		assertEquals(0L, board.getKey());
+	}
+
+	@Test
+	void zobristKeyCoversSideEnPassantAndCastling()
+	{
+		ChessPiece king = factory.makePiece(WHITEKING);
+		ChessPiece rook = factory.makePiece(WHITEROOK);
+		board.putPieceAt(king, makeCoordinate(1, 5));
+		board.putPieceAt(rook, makeCoordinate(1, 8));
+		long start = board.getKey();
+
+		board.setSideToMove(PlayerColor.BLACK);
+		long blackToMove = board.getKey();
+		assertNotEquals(start, blackToMove);
+		board.setSideToMove(PlayerColor.WHITE);
+		assertEquals(start, board.getKey());
+
+		board.setEnPassantSquare(Bitboards.square(3, 4));
+		assertNotEquals(start, board.getKey());
+		board.setEnPassantSquare(BitboardBoard.NO_SQUARE);
+		assertEquals(start, board.getKey());
+
+		assertEquals(Zobrist.WHITE_KING_SIDE, board.getCastlingRights());
+		rook.setHasMoved();
+		assertEquals(0, board.getCastlingRights());
+		assertNotEquals(start, board.getKey());
+	}
+
+	@Test
+	void magicAttacksMatchRayScan()
+	{
+		Random random = new Random(2020);
+
+		for (int i = 0; i < 20000; i++)
+		{
+			int sq = random.nextInt(64);
+			long occupied = random.nextLong() & random.nextLong();
+			assertEquals(Bitboards.rookRayAttacks(sq, occupied), Bitboards.rookAttacks(sq, occupied));
+			assertEquals(Bitboards.bishopRayAttacks(sq, occupied), Bitboards.bishopAttacks(sq, occupied));
+		}
+	}
+
+	@Test
+	void betweenAndLineTables()
+	{
+		int a1 = Bitboards.square(1, 1);
+		int d4 = Bitboards.square(4, 4);
+		int h8 = Bitboards.square(8, 8);
+		int b3 = Bitboards.square(3, 2);
+
+		assertEquals((1L << Bitboards.square(2, 2)) | (1L << Bitboards.square(3, 3)),
+				Bitboards.between(a1, d4));
+		assertEquals(Bitboards.between(a1, d4), Bitboards.between(d4, a1));
+		assertEquals(0x8040201008040201L, Bitboards.line(d4, h8));
+		assertEquals(0L, Bitboards.between(a1, b3));
+		assertEquals(0L, Bitboards.line(a1, b3));
+		assertEquals(0L, Bitboards.between(a1, Bitboards.square(1, 2)));
+		assertEquals(0xFFL, Bitboards.line(a1, Bitboards.square(1, 2)));
+	}
+
+	@Test
+	void sameAnswersAsPlainBoard()
+	{
+		Random random = new Random(4233);
+		ChessPieceDescriptor[] kinds = ChessPieceDescriptor.values();
+
+		for (int position = 0; position < 300; position++)
+		{
+			Board plain = new Board(8, 8);
+			board.clear();
+			int count = 2 + random.nextInt(20);
+
+			for (int i = 0; i < count; i++)
+			{
+				ChessPiece p = factory.makePiece(kinds[random.nextInt(kinds.length)]);
+				if (random.nextBoolean())
+				{
+					p.setHasMoved();
+				}
+				Coordinate c = makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8));
+				plain.putPieceAt(p, c);
+				board.putPieceAt(p, c);
+			}
+
+			for (int from = 0; from < 64; from++)
+			{
+				Coordinate f = makeCoordinate(Bitboards.row(from), Bitboards.column(from));
+				ChessPiece p = (ChessPiece) plain.getPieceAt(f);
+				if (p == null)
+				{
+					continue;
+				}
+
+				for (int to = 0; to < 64; to++)
+				{
+					Coordinate t = makeCoordinate(Bitboards.row(to), Bitboards.column(to));
+					assertEquals(p.canMove(f, t, plain), p.canMove(f, t, board),
+							p.getDescriptor() + " " + f + " -> " + t);
+				}
+			}
+		}
+	}
+
+	@Test
+	void canMoveAllMatchesCanMove()
+	{
+		Random random = new Random(16);
+		ChessPieceDescriptor[] kinds = ChessPieceDescriptor.values();
+		int[] fromTo = new int[2 * (64 * 64 + 2)];
+		for (int move = 0; move < 64 * 64; move++)
+		{
+			fromTo[2 * move] = move / 64;
+			fromTo[2 * move + 1] = move % 64;
+		}
+		// and two moves off the board
+		fromTo[2 * 64 * 64] = -1;
+		fromTo[2 * 64 * 64 + 3] = 64;
+
+		for (int position = 0; position < 50; position++)
+		{
+			Board plain = new Board(8, 8);
+			board.clear();
+			int count = 2 + random.nextInt(20);
+
+			for (int i = 0; i < count; i++)
+			{
+				ChessPiece p = factory.makePiece(kinds[random.nextInt(kinds.length)]);
+				if (random.nextBoolean())
+				{
+					p.setHasMoved();
+				}
+				Coordinate c = makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8));
+				plain.putPieceAt(p, c);
+				board.putPieceAt(p, c);
+			}
+
+			BitSet expected = new BitSet();
+			for (int move = 0; move < 64 * 64; move++)
+			{
+				Coordinate f = board.coordinateOf(move / 64);
+				ChessPiece p = board.getPieceAt(move / 64);
+				expected.set(move, p != null && p.canMove(f, board.coordinateOf(move % 64), board));
+			}
+
+			ChessPiece any = factory.makePiece(WHITEPAWN);
+			BitSet onBitboard = new BitSet();
+			BitSet onPlain = new BitSet();
+			onPlain.set(64 * 64);
+			any.canMoveAll(board, fromTo, onBitboard);
+			any.canMoveAll(plain, fromTo, onPlain);
+			assertEquals(expected, onBitboard, "position " + position);
+			assertEquals(expected, onPlain, "position " + position);
+		}
+	}
+
+	@Test
+	void cachedAnswersMatchUncached()
+	{
+		Random random = new Random(2020);
+		ChessPieceDescriptor[] kinds = ChessPieceDescriptor.values();
+		BitboardBoard cached = new BitboardBoard();
+		cached.setMoveCache(new MoveCache(1 << 12));
+
+		for (int position = 0; position < 200; position++)
+		{
+			board.clear();
+			cached.clear();
+			int count = 2 + random.nextInt(20);
+
+			for (int i = 0; i < count; i++)
+			{
+				ChessPiece p = factory.makePiece(kinds[random.nextInt(kinds.length)]);
+				if (random.nextBoolean())
+				{
+					p.setHasMoved();
+				}
+				Coordinate c = makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8));
+				board.putPieceAt(p, c);
+				cached.putPieceAt(p, c);
+			}
+
+			// twice, so the second round is answered from the cache
+			for (int round = 0; round < 2; round++)
+			{
+				for (int from = 0; from < 64; from++)
+				{
+					Coordinate f = makeCoordinate(Bitboards.row(from), Bitboards.column(from));
+					ChessPiece p = board.getPieceAt(from);
+					if (p == null)
+					{
+						continue;
+					}
+
+					for (int to = 0; to < 64; to++)
+					{
+						Coordinate t = makeCoordinate(Bitboards.row(to), Bitboards.column(to));
+						assertEquals(p.canMove(f, t, board), p.canMove(f, t, cached),
+								p.getDescriptor() + " " + f + " -> " + t);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void cacheReportsCheckAndPins()
+	{
+		MoveCache cache = new MoveCache(64);
+		ChessPiece bishop = factory.makePiece(WHITEBISHOP);
+		board.putPieceAt(factory.makePiece(WHITEKING), makeCoordinate(1, 5));
+		board.putPieceAt(bishop, makeCoordinate(2, 5));
+		board.putPieceAt(factory.makePiece(BLACKROOK), makeCoordinate(8, 5));
+		int e2 = Bitboards.square(2, 5);
+
+		assertEquals(MoveCache.PINNED, cache.getStatus(bishop, e2, board));
+		assertEquals(Long.bitCount(Bitboards.bishopAttacks(e2, board.getOccupied())),
+				Long.bitCount(cache.getTargets(bishop, e2, board)));
+
+		board.putPieceAt(null, makeCoordinate(8, 5));
+		board.putPieceAt(factory.makePiece(BLACKBISHOP), makeCoordinate(3, 3));
+		assertEquals(MoveCache.IN_CHECK, cache.getStatus(bishop, e2, board));
+	}
+
+	@Test
+	void kingStaysOutOfAttackedSquares()
+	{
+		ChessPiece king = factory.makePiece(WHITEKING);
+		board.putPieceAt(king, makeCoordinate(1, 5));
+		board.putPieceAt(factory.makePiece(WHITEROOK), makeCoordinate(1, 8));
+		board.putPieceAt(factory.makePiece(BLACKROOK), makeCoordinate(5, 5));
+		AttackMap attacks = board.getAttackMap();
+
+		assertTrue(attacks.isInCheck(PlayerColor.WHITE));
+		assertFalse(attacks.isInCheck(PlayerColor.BLACK));
+		assertTrue(attacks.isSquareAttacked(makeCoordinate(2, 5), PlayerColor.BLACK));
+		assertFalse(attacks.isSquareAttacked(makeCoordinate(2, 4), PlayerColor.BLACK));
+
+		// not out of check, and not away along the rook's line
+		assertFalse(king.canMove(makeCoordinate(1, 5), makeCoordinate(1, 7), board));
+		assertFalse(king.canMove(makeCoordinate(1, 5), makeCoordinate(2, 5), board));
+		assertTrue(king.canMove(makeCoordinate(1, 5), makeCoordinate(2, 4), board));
+
+		// the rook moves over to attack the square the king would pass
+		board.putPieceAt(board.putPieceAt(null, makeCoordinate(5, 5)), makeCoordinate(5, 6));
+		assertFalse(attacks.isInCheck(PlayerColor.WHITE));
+		assertFalse(king.canMove(makeCoordinate(1, 5), makeCoordinate(1, 6), board));
+		assertFalse(king.canMove(makeCoordinate(1, 5), makeCoordinate(1, 7), board));
+		assertTrue(king.canMove(makeCoordinate(1, 5), makeCoordinate(2, 5), board));
+	}
+
+	@Test
+	void attackMapFollowsRandomGames()
+	{
+		Random random = new Random(14);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		ChessPieceDescriptor[] back = { WHITEROOK, WHITEKNIGHT, WHITEBISHOP, WHITEQUEEN,
+				WHITEKING, WHITEBISHOP, WHITEKNIGHT, WHITEROOK };
+
+		for (int game = 0; game < 20; game++)
+		{
+			board.clear();
+			for (int c = 1; c <= 8; c++)
+			{
+				ChessPieceDescriptor white = back[c - 1];
+				board.putPieceAt(factory.makePiece(white), makeCoordinate(1, c));
+				board.putPieceAt(factory.makePiece(WHITEPAWN), makeCoordinate(2, c));
+				board.putPieceAt(factory.makePiece(BLACKPAWN), makeCoordinate(7, c));
+				board.putPieceAt(factory.makePiece(ChessPieceDescriptor.of(PlayerColor.BLACK,
+						white.getName())), makeCoordinate(8, c));
+			}
+
+			for (int ply = 0; ply < 200; ply++)
+			{
+				for (PlayerColor color : PlayerColor.values())
+				{
+					assertEquals(attacksOf(color), board.getAttackMap().getAttacks(color));
+					assertEquals(MoveGenerator.isInCheck(board, color),
+							board.getAttackMap().isInCheck(color));
+				}
+
+				int n = MoveGenerator.generateLegal(board, board.getSideToMove(), moves);
+				if (n == 0)
+				{
+					break;
+				}
+				board.makeMove(moves[random.nextInt(n)]);
+			}
+		}
+	}
+
+	/**
+	 * @return the squares a color attacks, worked out from scratch
+	 */
+	private long attacksOf(PlayerColor color)
+	{
+		long attacks = 0L;
+
+		for (int sq = 0; sq < 64; sq++)
+		{
+			ChessPiece p = board.getPieceAt(sq);
+			if (p != null && p.getColor() == color)
+			{
+				attacks |= AttackMap.attacks(p.getName(), color, sq, board.getOccupied());
+			}
+		}
+
+		return attacks;
+	}
+
+	/**
+	 * @return everything makeMove() changes, to compare before and after
+	 */
+	private String snapshot()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int sq = 0; sq < 64; sq++)
+		{
+			ChessPiece p = board.getPieceAt(sq);
+			sb.append(p == null ? "." : p.getDescriptor().ordinal() + (p.hasMoved() ? "m" : "u"));
+		}
+		return sb + " " + board.getEnPassantSquare() + " " + board.getSideToMove()
+				+ " " + board.getKey() + " " + board.getOccupied();
+	}
+
+	@Test
+	void unmakeMoveRestoresEverything()
+	{
+		board.putPieceAt(factory.makePiece(WHITEKING), makeCoordinate(1, 5));
+		board.putPieceAt(factory.makePiece(WHITEROOK), makeCoordinate(1, 8));
+		board.putPieceAt(factory.makePiece(WHITEROOK), makeCoordinate(1, 1));
+		ChessPiece pawn = factory.makePiece(WHITEPAWN);
+		pawn.setHasMoved();
+		board.putPieceAt(pawn, makeCoordinate(7, 2));
+		board.putPieceAt(factory.makePiece(BLACKROOK), makeCoordinate(8, 1));
+		ChessPiece e5 = factory.makePiece(WHITEPAWN);
+		e5.setHasMoved();
+		board.putPieceAt(e5, makeCoordinate(5, 5));
+		ChessPiece d5 = factory.makePiece(BLACKPAWN);
+		d5.setHasMoved();
+		board.putPieceAt(d5, makeCoordinate(5, 4));
+		board.putPieceAt(factory.makePiece(BLACKKING), makeCoordinate(8, 8));
+		board.setEnPassantSquare(Bitboards.square(6, 4));
+
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.generateLegal(board, PlayerColor.WHITE, moves);
+		String before = snapshot();
+		int[] seen = new int[16];
+
+		for (int i = 0; i < n; i++)
+		{
+			board.makeMove(moves[i]);
+			assertEquals(PlayerColor.BLACK, board.getSideToMove());
+			assertNotEquals(before, snapshot());
+			board.unmakeMove();
+			assertEquals(before, snapshot(), Move.toString(moves[i]));
+			seen[Move.flag(moves[i])]++;
+		}
+
+		assertEquals(1, seen[Move.KING_CASTLE]);
+		assertEquals(1, seen[Move.QUEEN_CASTLE]);
+		assertEquals(1, seen[Move.EN_PASSANT]);
+		assertEquals(1, seen[Move.QUEEN_PROMOTION_CAPTURE]);
+		assertEquals(0, board.getUndoDepth());
+		assertThrows(IllegalStateException.class, () -> board.unmakeMove());
+	}
+
+	@Test
+	void randomGamesUnwindToTheStart()
+	{
+		Random random = new Random(42);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		ChessPieceDescriptor[] back = { WHITEROOK, WHITEKNIGHT, WHITEBISHOP, WHITEQUEEN,
+				WHITEKING, WHITEBISHOP, WHITEKNIGHT, WHITEROOK };
+
+		for (int game = 0; game < 20; game++)
+		{
+			board.clear();
+			for (int c = 1; c <= 8; c++)
+			{
+				ChessPieceDescriptor white = back[c - 1];
+				board.putPieceAt(factory.makePiece(white), makeCoordinate(1, c));
+				board.putPieceAt(factory.makePiece(WHITEPAWN), makeCoordinate(2, c));
+				board.putPieceAt(factory.makePiece(BLACKPAWN), makeCoordinate(7, c));
+				board.putPieceAt(factory.makePiece(ChessPieceDescriptor.of(PlayerColor.BLACK,
+						white.getName())), makeCoordinate(8, c));
+			}
+
+			String start = snapshot();
+			for (int ply = 0; ply < 200; ply++)
+			{
+				int n = MoveGenerator.generateLegal(board, board.getSideToMove(), moves);
+				if (n == 0)
+				{
+					break;
+				}
+				board.makeMove(moves[random.nextInt(n)]);
+			}
+
+			while (board.getUndoDepth() > 0)
+			{
+				board.unmakeMove();
+			}
+			assertEquals(start, snapshot());
+		}
+	}
+}
@@ -25,6 +25,7 @@ import java.util.stream.Stream;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.*;
+import gpv.Piece;
 import gpv.util.*;
 
 /**
@@ -1080,7 +1081,7 @@ class ChessTests
      * When castling, the initializers are the king first, rook second,
      * and others follow, if they are in play.
      */
-    @ParameterizedTest //101 - 111
+    @ParameterizedTest //101 - 115
     @MethodSource("castlingTestProvider")
     void castlingTest(List<SquareInitializer> initializers, boolean kingMoved,
         boolean rookMoved, Coordinate to, boolean expected)
@@ -1160,10 +1161,264 @@ class ChessTests
         		Arguments.of(
         				makeInitializers(WHITEKING, 1, 5, WHITEROOK, 1, 8,
         						WHITEBISHOP, 1, 6),
-        				false, false, makeCoordinate(1, 7), false)
+        				false, false, makeCoordinate(1, 7), false),
+        		
+        		// the king is in check
+        		Arguments.of(
+        				makeInitializers(WHITEKING, 1, 5, WHITEROOK, 1, 8,
+        						BLACKROOK, 5, 5),
+        				false, false, makeCoordinate(1, 7), false),
+        		
+        		// the king passes through an attacked square
+        		Arguments.of(
+        				makeInitializers(WHITEKING, 1, 5, WHITEROOK, 1, 1,
+        						BLACKBISHOP, 4, 7),
+        				false, false, makeCoordinate(1, 3), false),
+        		
+        		// the king lands on an attacked square
+        		Arguments.of(
+        				makeInitializers(BLACKKING, 8, 5, BLACKROOK, 8, 8,
+        						WHITEKNIGHT, 6, 8),
+        				false, false, makeCoordinate(8, 7), false),
+        		
+        		// only the rook passes an attacked square
+        		Arguments.of(
+        				makeInitializers(WHITEKING, 1, 5, WHITEROOK, 1, 1,
+        						BLACKROOK, 8, 2),
+        				false, false, makeCoordinate(1, 3), true)
         );
     }
 
+////////////////////////Test Cases for Larger Boards //////////////////////////////////////////////////
+
+    @ParameterizedTest
+    @CsvSource({ "8, 10", "12, 12", "16, 16" })
+    void castlingToTheCornerRook(int rows, int columns)
+    {
+        board = new Board(rows, columns);
+        board.reset(makeInitializers(WHITEKING, 1, 5, WHITEROOK, 1, columns, WHITEROOK, 1, 1,
+        		BLACKKING, rows, 5, BLACKROOK, rows, columns));
+        ChessPiece king = (ChessPiece) board.getPieceAt(makeCoordinate(1, 5));
+        assertTrue(king.canMove(makeCoordinate(1, 5), makeCoordinate(1, 7), board));
+        assertTrue(king.canMove(makeCoordinate(1, 5), makeCoordinate(1, 3), board));
+        
+        ChessPiece black = (ChessPiece) board.getPieceAt(makeCoordinate(rows, 5));
+        assertTrue(black.canMove(makeCoordinate(rows, 5), makeCoordinate(rows, 7), board));
+        
+        // a rook on column 8 is no longer in the corner
+        board.putPieceAt(board.putPieceAt(null, makeCoordinate(1, columns)), makeCoordinate(1, 8));
+        assertFalse(king.canMove(makeCoordinate(1, 5), makeCoordinate(1, 7), board));
+        
+        // a rook far up the board attacks the square the king passes
+        board.putPieceAt(factory.makePiece(BLACKROOK), makeCoordinate(rows - 1, 4));
+        assertFalse(king.canMove(makeCoordinate(1, 5), makeCoordinate(1, 3), board));
+    }
+    
+    @Test
+    void movesAcrossALargeBoard()
+    {
+        board = new Board(16, 16);
+        board.reset(makeInitializers(WHITEKNIGHT, 16, 16, WHITEBISHOP, 1, 1, WHITEQUEEN, 1, 16,
+        		BLACKROOK, 16, 1));
+        ChessPiece knight = (ChessPiece) board.getPieceAt(makeCoordinate(16, 16));
+        ChessPiece bishop = (ChessPiece) board.getPieceAt(makeCoordinate(1, 1));
+        ChessPiece queen = (ChessPiece) board.getPieceAt(makeCoordinate(1, 16));
+        assertTrue(knight.canMove(makeCoordinate(16, 16), makeCoordinate(14, 15), board));
+        assertTrue(knight.canMove(makeCoordinate(16, 16), makeCoordinate(15, 14), board));
+        assertFalse(knight.canMove(makeCoordinate(16, 16), makeCoordinate(14, 17), board));
+        assertFalse(knight.canMove(makeCoordinate(16, 16), makeCoordinate(13, 15), board));
+        assertTrue(bishop.canMove(makeCoordinate(1, 1), makeCoordinate(15, 15), board));
+        assertFalse(bishop.canMove(makeCoordinate(1, 1), makeCoordinate(16, 16), board));
+        assertTrue(queen.canMove(makeCoordinate(1, 16), makeCoordinate(16, 1), board));
+        assertFalse(queen.canMove(makeCoordinate(1, 16), makeCoordinate(16, 2), board));
+    }
+    
+    @Test
+    void legalMovesFollowTheKing()
+    {
+        board = new Board(16, 16);
+        board.reset(makeInitializers(WHITEKING, 1, 9, WHITEROOK, 5, 9, BLACKROOK, 16, 9));
+        ChessPiece rook = (ChessPiece) board.getPieceAt(makeCoordinate(5, 9));
+        ChessPiece king = (ChessPiece) board.getPieceAt(makeCoordinate(1, 9));
+        
+        // pinned along the column
+        assertFalse(rook.canMoveLegally(makeCoordinate(5, 9), makeCoordinate(5, 12), board));
+        assertTrue(rook.canMoveLegally(makeCoordinate(5, 9), makeCoordinate(12, 9), board));
+        assertTrue(king.canMoveLegally(makeCoordinate(1, 9), makeCoordinate(1, 8), board));
+        
+        // once the king has gone, the rook isn't pinned
+        board.putPieceAt(board.putPieceAt(null, makeCoordinate(1, 9)), makeCoordinate(1, 2));
+        assertTrue(rook.canMoveLegally(makeCoordinate(5, 9), makeCoordinate(5, 12), board));
+        
+        // and on a row of its own, the king pins it again
+        board.putPieceAt(board.putPieceAt(null, makeCoordinate(1, 2)), makeCoordinate(5, 2));
+        board.putPieceAt(board.putPieceAt(null, makeCoordinate(16, 9)), makeCoordinate(5, 16));
+        assertFalse(rook.canMoveLegally(makeCoordinate(5, 9), makeCoordinate(6, 9), board));
+        assertTrue(rook.canMoveLegally(makeCoordinate(5, 9), makeCoordinate(5, 16), board));
+    }
+    
+    @Test
+    void legalMovesOnlyReadTheBoard()
+    {
+        int[] puts = new int[1];
+        board = new Board(12, 12)
+        {
+        	@Override
+        	public Piece putPieceAt(Piece p, Coordinate c)
+        	{
+        		puts[0]++;
+        		return super.putPieceAt(p, c);
+        	}
+        };
+        board.reset(makeInitializers(WHITEKING, 1, 6, WHITEBISHOP, 2, 6, BLACKROOK, 9, 6,
+        		WHITEKING, 12, 1, BLACKQUEEN, 12, 12));
+        puts[0] = 0;
+        ChessPiece bishop = (ChessPiece) board.getPieceAt(makeCoordinate(2, 6));
+        ChessPiece king = (ChessPiece) board.getPieceAt(makeCoordinate(12, 1));
+        
+        // judged by the first king by row, which the bishop is pinned to, every time
+        for (int i = 0; i < 3; i++)
+        {
+        	assertFalse(bishop.canMoveLegally(makeCoordinate(2, 6), makeCoordinate(3, 7), board));
+        	assertFalse(king.canMoveLegally(makeCoordinate(12, 1), makeCoordinate(12, 2), board));
+        	assertTrue(king.canMoveLegally(makeCoordinate(12, 1), makeCoordinate(11, 1), board));
+        }
+        assertEquals(0, puts[0]);
+    }
+    
+    @Test
+    void vacatedSquaresDontAttack()
+    {
+        board = new Board(12, 12);
+        Coordinate target = makeCoordinate(6, 6);
+        
+        // an enemy on the vacated square neither attacks nor blocks
+        ChessPieceDescriptor[] enemies = { BLACKKNIGHT, BLACKPAWN, BLACKQUEEN };
+        Coordinate[] squares = { makeCoordinate(4, 5), makeCoordinate(7, 7), makeCoordinate(6, 1) };
+        for (int i = 0; i < enemies.length; i++)
+        {
+        	board.clear();
+        	board.putPieceAt(factory.makePiece(enemies[i]), squares[i]);
+        	assertTrue(AttackMap.isAttacked(board, target, PlayerColor.BLACK, null, null));
+        	assertFalse(AttackMap.isAttacked(board, target, PlayerColor.BLACK, squares[i], null));
+        }
+        board.putPieceAt(factory.makePiece(WHITEROOK), makeCoordinate(6, 3));
+        assertFalse(AttackMap.isAttacked(board, target, PlayerColor.BLACK, null, null));
+        assertTrue(AttackMap.isAttacked(board, target, PlayerColor.BLACK, makeCoordinate(6, 3), null));
+    }
+    
+    @ParameterizedTest
+    @CsvSource({ "8, 8", "8, 10", "12, 12", "16, 16", "3, 20" })
+    void attacksOnRandomBoards(int rows, int columns)
+    {
+        Random random = new Random(rows * 31 + columns);
+        ChessPieceDescriptor[] descriptors = ChessPieceDescriptor.values();
+        board = new Board(rows, columns);
+        
+        for (int position = 0; position < 50; position++)
+        {
+        	board.clear();
+        	for (int i = random.nextInt(rows * columns / 3); i >= 0; i--)
+        	{
+        		board.putPieceAt(factory.makePiece(descriptors[random.nextInt(descriptors.length)]),
+        				makeCoordinate(1 + random.nextInt(rows), 1 + random.nextInt(columns)));
+        	}
+        	Coordinate vacated = random.nextBoolean() ? null
+        			: makeCoordinate(1 + random.nextInt(rows), 1 + random.nextInt(columns));
+        	Coordinate occupied = random.nextBoolean() ? null
+        			: makeCoordinate(1 + random.nextInt(rows), 1 + random.nextInt(columns));
+        	if (occupied != null && occupied.equals(vacated))
+        	{
+        		occupied = null;
+        	}
+        	
+        	for (int row = 1; row <= rows; row++)
+        	{
+        		for (int column = 1; column <= columns; column++)
+        		{
+        			Coordinate target = makeCoordinate(row, column);
+        			for (PlayerColor by : PlayerColor.values())
+        			{
+        				Assertions.assertEquals(attackedByScan(target, by, vacated, occupied), 
+        						AttackMap.isAttacked(board, target, by, vacated, occupied), target + " " + by);
+        			}
+        		}
+        	}
+        }
+    }
+    
+    /**
+     * @return true if a piece of the color attacks target, from every piece on the board
+     * 	except those on vacated and occupied
+     */
+    private boolean attackedByScan(Coordinate target, PlayerColor by, Coordinate vacated, Coordinate occupied)
+    {
+    	for (int row = 1; row <= board.nRows; row++)
+    	{
+    		for (int column = 1; column <= board.nColumns; column++)
+    		{
+    			ChessPiece p = (ChessPiece) board.getPieceAt(row, column);
+    			int rowDelta = target.getRow() - row;
+    			int rowDistance = Math.abs(rowDelta);
+    			int columnDistance = Math.abs(target.getColumn() - column);
+    			if (p == null || p.getColor() != by || rowDistance + columnDistance == 0
+    					|| makeCoordinate(row, column).equals(vacated) 
+    					|| makeCoordinate(row, column).equals(occupied))
+    			{
+    				continue;
+    			}
+    			
+    			boolean straight = rowDistance == 0 || columnDistance == 0;
+    			boolean diagonal = rowDistance == columnDistance;
+    			boolean attacks;
+    			switch (p.getName())
+    			{
+    				case PAWN:
+    					attacks = rowDelta == (by == PlayerColor.WHITE ? 1 : -1) && columnDistance == 1;
+    					break;
+    				case KNIGHT:
+    					attacks = rowDistance * columnDistance == 2;
+    					break;
+    				case KING:
+    					attacks = rowDistance <= 1 && columnDistance <= 1;
+    					break;
+    				case BISHOP:
+    					attacks = diagonal && clearBetween(makeCoordinate(row, column), target, vacated, occupied);
+    					break;
+    				case ROOK:
+    					attacks = straight && clearBetween(makeCoordinate(row, column), target, vacated, occupied);
+    					break;
+    				default:
+    					attacks = (straight || diagonal) && clearBetween(makeCoordinate(row, column), target, vacated, occupied);
+    			}
+    			if (attacks)
+    			{
+    				return true;
+    			}
+    		}
+    	}
+    	return false;
+    }
+    
+    /**
+     * @return true if every square strictly between from and to is empty or vacated,
+     * 	and isn't occupied
+     */
+    private boolean clearBetween(Coordinate from, Coordinate to, Coordinate vacated, Coordinate occupied)
+    {
+    	int rowStep = Integer.signum(to.getRow() - from.getRow());
+    	int columnStep = Integer.signum(to.getColumn() - from.getColumn());
+    	for (Coordinate c = makeCoordinate(from.getRow() + rowStep, from.getColumn() + columnStep); 
+    			!c.equals(to); c = makeCoordinate(c.getRow() + rowStep, c.getColumn() + columnStep))
+    	{
+    		if (c.equals(occupied) || board.getPieceAt(c) != null && !c.equals(vacated))
+    		{
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
 ////////////////////////Test Cases for Black Color Pieces //////////////////////////////////////////////////
 	
 	/**
@@ -1173,7 +1428,7 @@ class ChessTests
 	 * @param to move to this coordinate
 	 * @param expected the expected result calling canMove() on the piece at "from"
 	 */
-    @ParameterizedTest // 112 - 118
+    @ParameterizedTest // 116 - 122
     @MethodSource("moveTestProvider")
     void testingBlackColorPieces(List<SquareInitializer> initializers, Coordinate from,
             Coordinate to, boolean expected)
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.util.Coordinate.makeCoordinate;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.*;
+import gpv.perft.PerftPosition;
+import gpv.util.Board;
+
+/**
+ * Tests for reading and writing FEN.
+ * @version Apr 22, 2020
+ */
+class FenTests
+{
+	private Fen fen;
+	private BitboardBoard board;
+
+	@BeforeEach
+	public void setupTest()
+	{
+		fen = new Fen();
+		board = new BitboardBoard();
+	}
+
+	@Test
+	void knownPositionsRoundTrip()
+	{
+		for (PerftPosition position : PerftPosition.KNOWN)
+		{
+			fen.read(position.getFen(), board);
+			assertEquals(withoutCounters(position.getFen()), withoutCounters(Fen.toFen(board)));
+			assertEquals(position.makeBoard().getKey(), board.getKey());
+		}
+	}
+
+	@Test
+	void castlingRightsBecomeHasMoved()
+	{
+		assertEquals(PlayerColor.BLACK, fen.read("r3k2r/8/8/8/8/8/8/R3K2R b Kq - 0 1", board));
+		assertEquals(PlayerColor.BLACK, board.getSideToMove());
+		assertFalse(piece(1, 5).hasMoved());
+		assertFalse(piece(1, 8).hasMoved());
+		assertTrue(piece(1, 1).hasMoved());
+		assertFalse(piece(8, 5).hasMoved());
+		assertTrue(piece(8, 8).hasMoved());
+		assertFalse(piece(8, 1).hasMoved());
+		assertEquals("r3k2r/8/8/8/8/8/8/R3K2R b Kq - 0 1", Fen.toFen(board));
+
+		fen.read("4k3/8/8/3pP3/8/8/P7/4K3 w - d6 0 1", board);
+		assertEquals(Bitboards.square(6, 4), board.getEnPassantSquare());
+		assertFalse(piece(2, 1).hasMoved());
+		assertTrue(piece(5, 5).hasMoved());
+		assertTrue(piece(1, 5).hasMoved());
+		assertEquals("4k3/8/8/3pP3/8/8/P7/4K3 w - d6 0 1", Fen.toFen(board));
+	}
+
+	@Test
+	void byteBuffersReadLikeStrings()
+	{
+		byte[] bytes = ("xx" + PerftPosition.KNOWN.get(1).getFen() + "yy").getBytes(StandardCharsets.US_ASCII);
+		BitboardBoard expected = PerftPosition.KNOWN.get(1).makeBoard();
+
+		ByteBuffer heap = ByteBuffer.wrap(bytes, 2, bytes.length - 4);
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).position(2).limit(bytes.length - 2);
+
+		for (ByteBuffer buffer : new ByteBuffer[] { heap, direct })
+		{
+			int position = buffer.position();
+			fen.read(buffer, board);
+			assertEquals(position, buffer.position());
+			assertEquals(expected.getKey(), board.getKey());
+			assertEquals(Fen.toFen(expected), Fen.toFen(board));
+		}
+	}
+
+	@Test
+	void piecesAreReused()
+	{
+		fen.read(Fen.START, board);
+		ChessPiece rook = piece(1, 1);
+		fen.read(Fen.START, board);
+		assertSame(rook, piece(1, 1));
+		assertFalse(rook.hasMoved());
+	}
+
+	@Test
+	void otherBoardSizes()
+	{
+		Board wide = new Board(8, 10);
+		fen.read("r3k4r/10/10/10/10/10/10/R3K4R w Kq - 0 1", wide);
+		assertEquals(ChessPieceDescriptor.WHITEROOK, wide.getPieceAt(1, 10).getDescriptor());
+		assertFalse(((ChessPiece) wide.getPieceAt(1, 10)).hasMoved());
+		assertTrue(((ChessPiece) wide.getPieceAt(8, 10)).hasMoved());
+		assertEquals("r3k4r/10/10/10/10/10/10/R3K4R w Kq - 0 1", Fen.toFen(wide));
+	}
+
+	@Test
+	void malformedFen()
+	{
+		assertThrows(IllegalArgumentException.class, () -> fen.read("", board));
+		assertThrows(IllegalArgumentException.class, () -> fen.read("8/8/8/8/8/8/8 w - - 0 1", board));
+		assertThrows(IllegalArgumentException.class, () -> fen.read("9/8/8/8/8/8/8/8 w - - 0 1", board));
+		assertThrows(IllegalArgumentException.class, () -> fen.read("8/8/8/8/8/8/8/7x w - - 0 1", board));
+		assertThrows(IllegalArgumentException.class, () -> fen.read("8/8/8/8/8/8/8/8 x - - 0 1", board));
+		assertThrows(IllegalArgumentException.class, () -> fen.read("8/8/8/8/8/8/8/8 w X - 0 1", board));
+		assertThrows(IllegalArgumentException.class, () -> fen.read("8/8/8/8/8/8/8/8 w - i9 0 1", board));
+	}
+
+	/**
+	 * @return the first four fields of a FEN
+	 */
+	private static String withoutCounters(String fen)
+	{
+		String[] fields = fen.split(" ");
+		return String.join(" ", fields[0], fields[1], fields[2], fields[3]);
+	}
+
+	private ChessPiece piece(int row, int column)
+	{
+		return (ChessPiece) board.getPieceAt(makeCoordinate(row, column));
+	}
+}
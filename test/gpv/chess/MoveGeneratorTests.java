@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static gpv.chess.ChessPieceDescriptor.*;
+import static gpv.util.Coordinate.makeCoordinate;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import gpv.util.*;
+
+/**
+ * Tests for the move generator, and that it agrees with canMove().
+ * @version Apr 14, 2020
+ */
+class MoveGeneratorTests
+{
+	private static ChessPieceFactory factory = null;
+	private BitboardBoard board;
+	private int[] moves;
+
+	@BeforeAll
+	public static void setupBeforeTests()
+	{
+		factory = new ChessPieceFactory();
+	}
+
+	@BeforeEach
+	public void setupTest()
+	{
+		board = new BitboardBoard();
+		moves = new int[MoveGenerator.MAX_MOVES];
+	}
+
+	/**
+	 * Put a new piece on a square given in algebraic form, e.g. "e1".
+	 */
+	private ChessPiece put(ChessPieceDescriptor d, String square)
+	{
+		ChessPiece p = factory.makePiece(d);
+		board.putPieceAt(p, makeCoordinate(square.charAt(1) - '0', square.charAt(0) - 'a' + 1));
+		return p;
+	}
+
+	private void setupStartPosition()
+	{
+		ChessPieceDescriptor[] white = { WHITEROOK, WHITEKNIGHT, WHITEBISHOP, WHITEQUEEN,
+				WHITEKING, WHITEBISHOP, WHITEKNIGHT, WHITEROOK };
+		ChessPieceDescriptor[] black = { BLACKROOK, BLACKKNIGHT, BLACKBISHOP, BLACKQUEEN,
+				BLACKKING, BLACKBISHOP, BLACKKNIGHT, BLACKROOK };
+		for (int c = 1; c <= 8; c++)
+		{
+			board.putPieceAt(factory.makePiece(white[c - 1]), makeCoordinate(1, c));
+			board.putPieceAt(factory.makePiece(WHITEPAWN), makeCoordinate(2, c));
+			board.putPieceAt(factory.makePiece(BLACKPAWN), makeCoordinate(7, c));
+			board.putPieceAt(factory.makePiece(black[c - 1]), makeCoordinate(8, c));
+		}
+	}
+
+	/**
+	 * @return the generated legal moves in coordinate notation
+	 */
+	private Set<String> legalMoves(PlayerColor side)
+	{
+		int count = MoveGenerator.generateLegal(board, side, moves);
+		Set<String> result = new HashSet<>();
+		for (int i = 0; i < count; i++)
+		{
+			result.add(Move.toString(moves[i]));
+		}
+		assertEquals(count, result.size());
+		return result;
+	}
+
+	@Test
+	void startPosition()
+	{
+		setupStartPosition();
+		assertEquals(20, legalMoves(PlayerColor.WHITE).size());
+		assertEquals(20, legalMoves(PlayerColor.BLACK).size());
+		assertTrue(legalMoves(PlayerColor.WHITE).contains("e2e4"));
+		assertTrue(legalMoves(PlayerColor.BLACK).contains("g8f6"));
+	}
+
+	@Test
+	void packedMove()
+	{
+		int move = Move.make(Bitboards.square(7, 1), Bitboards.square(8, 2),
+				Move.QUEEN_PROMOTION_CAPTURE);
+		assertEquals("a7b8q", Move.toString(move));
+		assertTrue(Move.isCapture(move));
+		assertTrue(Move.isPromotion(move));
+		assertFalse(Move.isCastle(move));
+		assertEquals(PieceName.QUEEN, Move.promotion(move));
+	}
+
+	@Test
+	void castling()
+	{
+		put(WHITEKING, "e1");
+		put(WHITEROOK, "h1");
+		put(WHITEROOK, "a1");
+		put(BLACKKING, "e8");
+		assertTrue(legalMoves(PlayerColor.WHITE).containsAll(Arrays.asList("e1g1", "e1c1")));
+
+		// no castling through an attacked square
+		put(BLACKROOK, "f8");
+		Set<String> moves = legalMoves(PlayerColor.WHITE);
+		assertFalse(moves.contains("e1g1"));
+		assertTrue(moves.contains("e1c1"));
+
+		// nor out of check
+		put(BLACKROOK, "e7");
+		assertFalse(legalMoves(PlayerColor.WHITE).contains("e1c1"));
+	}
+
+	@Test
+	void noCastlingAfterRookMoved()
+	{
+		put(WHITEKING, "e1");
+		put(WHITEROOK, "h1").setHasMoved();
+		assertFalse(legalMoves(PlayerColor.WHITE).contains("e1g1"));
+	}
+
+	@Test
+	void enPassant()
+	{
+		put(WHITEKING, "e1");
+		ChessPiece pawn = put(WHITEPAWN, "e5");
+		pawn.setHasMoved();
+		put(BLACKPAWN, "d5").setHasMoved();
+		put(BLACKKING, "e8");
+		assertFalse(legalMoves(PlayerColor.WHITE).contains("e5d6"));
+
+		board.setEnPassantSquare(Bitboards.square(6, 4));
+		assertTrue(legalMoves(PlayerColor.WHITE).contains("e5d6"));
+		assertTrue(pawn.canMove(makeCoordinate(5, 5), makeCoordinate(6, 4), board));
+	}
+
+	@Test
+	void enPassantExposingKing()
+	{
+		// taking en passant would empty the row between the king and the rook
+		put(WHITEKING, "a5");
+		put(WHITEPAWN, "e5").setHasMoved();
+		put(BLACKPAWN, "d5").setHasMoved();
+		put(BLACKROOK, "h5");
+		board.setEnPassantSquare(Bitboards.square(6, 4));
+		assertFalse(legalMoves(PlayerColor.WHITE).contains("e5d6"));
+	}
+
+	@Test
+	void promotions()
+	{
+		put(WHITEPAWN, "b7").setHasMoved();
+		put(BLACKROOK, "a8");
+		put(BLACKKNIGHT, "b8");
+		Set<String> moves = legalMoves(PlayerColor.WHITE);
+		assertEquals(new HashSet<>(Arrays.asList("b7a8n", "b7a8b", "b7a8r", "b7a8q")), moves);
+	}
+
+	@Test
+	void pinnedPieceCannotLeaveTheLine()
+	{
+		put(WHITEKING, "e1");
+		put(WHITEBISHOP, "e2");
+		put(BLACKQUEEN, "e8");
+		put(BLACKKING, "a8");
+		for (String move : legalMoves(PlayerColor.WHITE))
+		{
+			assertFalse(move.startsWith("e2"), move);
+		}
+		assertFalse(MoveGenerator.isInCheck(board, PlayerColor.WHITE));
+		board.putPieceAt(null, makeCoordinate(2, 5));
+		assertTrue(MoveGenerator.isInCheck(board, PlayerColor.WHITE));
+	}
+
+	@Test
+	void pinsAndChecksLimitLegalMoves()
+	{
+		put(WHITEKING, "e1");
+		ChessPiece rook = put(WHITEROOK, "e2");
+		ChessPiece knight = put(WHITEKNIGHT, "c3");
+		put(BLACKQUEEN, "e7");
+		put(BLACKBISHOP, "a5");
+		put(BLACKKING, "a8");
+		AttackMap attacks = board.getAttackMap();
+		Coordinate e2 = makeCoordinate(2, 5);
+		Coordinate c3 = makeCoordinate(3, 3);
+
+		assertEquals((1L << Bitboards.square(2, 5)) | (1L << Bitboards.square(3, 3)),
+				attacks.getPinned(PlayerColor.WHITE));
+		assertTrue(rook.canMoveLegally(e2, makeCoordinate(7, 5), board));
+		assertTrue(rook.canMove(e2, makeCoordinate(2, 1), board));
+		assertFalse(rook.canMoveLegally(e2, makeCoordinate(2, 1), board));
+		assertFalse(knight.canMoveLegally(c3, makeCoordinate(5, 4), board));
+
+		// take the rook away: now the queen checks and only blocking it will do
+		board.putPieceAt(null, e2);
+		assertTrue(attacks.isInCheck(PlayerColor.WHITE));
+		assertFalse(knight.canMoveLegally(c3, makeCoordinate(4, 5), board));
+		board.putPieceAt(null, makeCoordinate(5, 1));
+		assertTrue(knight.canMoveLegally(c3, makeCoordinate(4, 5), board));
+		assertFalse(knight.canMoveLegally(c3, makeCoordinate(5, 4), board));
+		assertTrue(knight.canMoveLegally(c3, makeCoordinate(2, 5), board));
+	}
+
+	@Test
+	void legalMovesMatchCanMoveLegally()
+	{
+		Random random = new Random(15);
+		ChessPieceDescriptor[] kinds = ChessPieceDescriptor.values();
+
+		for (int position = 0; position < 300; position++)
+		{
+			board.clear();
+			Board plain = new Board(8, 8);
+			int count = 2 + random.nextInt(20);
+			put(WHITEKING, "" + (char) ('a' + random.nextInt(8)) + (1 + random.nextInt(8)));
+			put(BLACKKING, "" + (char) ('a' + random.nextInt(8)) + (1 + random.nextInt(8)));
+
+			for (int i = 0; i < count; i++)
+			{
+				ChessPiece p = factory.makePiece(kinds[random.nextInt(kinds.length)]);
+				if (p.getName() != PieceName.KING)
+				{
+					p.setHasMoved();
+					board.putPieceAt(p, makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8)));
+				}
+			}
+			for (int sq = 0; sq < Bitboards.SQUARES; sq++)
+			{
+				plain.putPieceAt(board.getPieceAt(sq), makeCoordinate(Bitboards.row(sq), Bitboards.column(sq)));
+			}
+
+			for (PlayerColor side : PlayerColor.values())
+			{
+				Set<Integer> generated = new HashSet<>();
+				int n = MoveGenerator.generateLegal(board, side, moves);
+				for (int i = 0; i < n; i++)
+				{
+					generated.add(Move.from(moves[i]) * Bitboards.SQUARES + Move.to(moves[i]));
+				}
+
+				Set<Integer> allowed = new HashSet<>();
+				Set<Integer> allowedOnPlain = new HashSet<>();
+				for (int from = 0; from < Bitboards.SQUARES; from++)
+				{
+					ChessPiece p = board.getPieceAt(from);
+					if (p == null || p.getColor() != side)
+					{
+						continue;
+					}
+					Coordinate f = makeCoordinate(Bitboards.row(from), Bitboards.column(from));
+					for (int to = 0; to < Bitboards.SQUARES; to++)
+					{
+						Coordinate t = makeCoordinate(Bitboards.row(to), Bitboards.column(to));
+						if (p.canMoveLegally(f, t, board))
+						{
+							allowed.add(from * Bitboards.SQUARES + to);
+						}
+						if (p.canMoveLegally(f, t, plain))
+						{
+							allowedOnPlain.add(from * Bitboards.SQUARES + to);
+						}
+					}
+				}
+
+				assertEquals(generated, allowed, "position " + position + " " + side);
+				assertEquals(generated, allowedOnPlain, "position " + position + " " + side);
+			}
+		}
+	}
+
+	@Test
+	void pseudoLegalMovesMatchCanMove()
+	{
+		Random random = new Random(4233);
+		ChessPieceDescriptor[] kinds = ChessPieceDescriptor.values();
+
+		for (int position = 0; position < 300; position++)
+		{
+			board.clear();
+			int count = 2 + random.nextInt(20);
+
+			for (int i = 0; i < count; i++)
+			{
+				ChessPiece p = factory.makePiece(kinds[random.nextInt(kinds.length)]);
+				if (random.nextBoolean())
+				{
+					p.setHasMoved();
+				}
+				board.putPieceAt(p, makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8)));
+			}
+
+			for (PlayerColor side : PlayerColor.values())
+			{
+				Set<Integer> generated = new HashSet<>();
+				int n = MoveGenerator.generatePseudoLegal(board, side, moves);
+				for (int i = 0; i < n; i++)
+				{
+					generated.add(Move.from(moves[i]) * Bitboards.SQUARES + Move.to(moves[i]));
+				}
+
+				Set<Integer> allowed = new HashSet<>();
+				for (int from = 0; from < Bitboards.SQUARES; from++)
+				{
+					ChessPiece p = board.getPieceAt(from);
+					if (p == null || p.getColor() != side)
+					{
+						continue;
+					}
+					Coordinate f = makeCoordinate(Bitboards.row(from), Bitboards.column(from));
+					for (int to = 0; to < Bitboards.SQUARES; to++)
+					{
+						if (p.canMove(f, makeCoordinate(Bitboards.row(to), Bitboards.column(to)), board))
+						{
+							allowed.add(from * Bitboards.SQUARES + to);
+						}
+					}
+				}
+
+				assertEquals(allowed, generated, "position " + position + " " + side);
+			}
+		}
+	}
+}
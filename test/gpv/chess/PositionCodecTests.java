@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.chess;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.*;
+import java.util.Random;
+import org.junit.jupiter.api.*;
+import gpv.perft.PerftPosition;
+import gpv.util.Board;
+
+/**
+ * Tests for the binary position encoding.
+ * @version Apr 23, 2020
+ */
+class PositionCodecTests
+{
+	private PositionCodec codec;
+	private BitboardBoard decoded;
+
+	@BeforeEach
+	public void setupTest()
+	{
+		codec = new PositionCodec();
+		decoded = new BitboardBoard();
+	}
+
+	/**
+	 * @return every piece with its hasMoved flag, the side and the en passant square
+	 */
+	private static String state(BitboardBoard b)
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int sq = 0; sq < 64; sq++)
+		{
+			ChessPiece p = b.getPieceAt(sq);
+			sb.append(p == null ? "." : p.getDescriptor().ordinal() + (p.hasMoved() ? "m" : "u"));
+		}
+		return sb + " " + b.getSideToMove() + " " + b.getEnPassantSquare() + " " + b.getKey();
+	}
+
+	@Test
+	void startPositionTakes29Bytes()
+	{
+		BitboardBoard start = PerftPosition.makeBoard(Fen.START);
+		ByteBuffer buffer = ByteBuffer.allocate(PositionCodec.MAX_BYTES);
+		assertEquals(29, PositionCodec.size(start));
+		assertEquals(29, PositionCodec.encode(start, buffer));
+
+		buffer.flip();
+		assertEquals(PlayerColor.WHITE, codec.decode(buffer, decoded));
+		assertFalse(buffer.hasRemaining());
+		assertEquals(state(start), state(decoded));
+	}
+
+	@Test
+	void randomGamesRoundTrip()
+	{
+		Random random = new Random(19);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		ByteBuffer heap = ByteBuffer.allocate(PositionCodec.MAX_BYTES * 2);
+		ByteBuffer direct = ByteBuffer.allocateDirect(PositionCodec.MAX_BYTES * 2);
+
+		for (PerftPosition position : PerftPosition.KNOWN)
+		{
+			BitboardBoard board = position.makeBoard();
+			for (int ply = 0; ply < 100; ply++)
+			{
+				for (ByteBuffer buffer : new ByteBuffer[] { heap, direct })
+				{
+					// behind another position, to check that only its own bytes are used
+					buffer.clear();
+					buffer.put((byte) 42);
+					int size = PositionCodec.encode(board, buffer);
+					assertEquals(PositionCodec.size(board), size);
+					buffer.flip();
+					buffer.get();
+					codec.decode(buffer, decoded);
+					assertFalse(buffer.hasRemaining());
+					assertEquals(state(board), state(decoded));
+				}
+
+				int n = MoveGenerator.generateLegal(board, board.getSideToMove(), moves);
+				if (n == 0)
+				{
+					break;
+				}
+				board.makeMove(moves[random.nextInt(n)]);
+			}
+		}
+	}
+
+	@Test
+	void plainBoards()
+	{
+		Board plain = new Board(8, 8);
+		new Fen().read("4k3/8/8/8/8/8/8/R3K3 b Q e3 0 1", plain);
+		ByteBuffer buffer = ByteBuffer.allocate(PositionCodec.MAX_BYTES);
+		PositionCodec.encode(plain, buffer);
+		buffer.flip();
+
+		// a plain board knows no side to move or en passant square
+		assertEquals(PlayerColor.WHITE, codec.decode(buffer, decoded));
+		assertEquals(BitboardBoard.NO_SQUARE, decoded.getEnPassantSquare());
+		assertEquals("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1", Fen.toFen(decoded));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> PositionCodec.encode(new Board(8, 10), ByteBuffer.allocate(PositionCodec.MAX_BYTES)));
+	}
+
+	@Test
+	void badBytes()
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(PositionCodec.MAX_BYTES);
+		buffer.putLong(1L).put((byte) 0xC0).put((byte) 0).put((byte) 0x7F).flip();
+		assertThrows(IllegalArgumentException.class, () -> codec.decode(buffer, decoded));
+
+		buffer.clear();
+		buffer.putLong(1L).put((byte) 0x00).flip();
+		assertThrows(BufferUnderflowException.class, () -> codec.decode(buffer, decoded));
+	}
+}
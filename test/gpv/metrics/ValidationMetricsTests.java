@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.metrics;
+
+import static gpv.util.Coordinate.makeCoordinate;
+import static org.junit.jupiter.api.Assertions.*;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import javax.management.*;
+import org.junit.jupiter.api.*;
+import gpv.chess.*;
+import gpv.perft.PerftPosition;
+import gpv.util.Coordinate;
+
+/**
+ * Tests for the validation metrics.
+ * @version Apr 24, 2020
+ */
+class ValidationMetricsTests
+{
+	private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+	@AfterEach
+	public void teardownTest()
+	{
+		ValidationMetrics.disable();
+	}
+
+	/**
+	 * Ask every piece of a position about random squares.
+	 *
+	 * @return the number of accepted and rejected calls by PieceName ordinal
+	 */
+	private static long[][] ask(int queries)
+	{
+		Random random = new Random(23);
+		long[][] answers = new long[2][PieceName.values().length];
+		BitboardBoard board = PerftPosition.KNOWN.get(1).makeBoard();
+
+		for (int q = 0; q < queries; q++)
+		{
+			Coordinate from = makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8));
+			ChessPiece piece = (ChessPiece) board.getPieceAt(from);
+			if (piece != null)
+			{
+				Coordinate to = makeCoordinate(1 + random.nextInt(8), 1 + random.nextInt(8));
+				answers[piece.canMove(from, to, board) ? 0 : 1][piece.getName().ordinal()]++;
+			}
+		}
+		return answers;
+	}
+
+	@Test
+	void disabledByDefault() throws JMException
+	{
+		assertNull(ValidationMetrics.active());
+		assertNull(Instruments.current());
+		assertFalse(server.isRegistered(ValidationMetrics.objectName(PieceName.PAWN)));
+	}
+
+	@Test
+	void countsEveryCall() throws JMException
+	{
+		ValidationMetrics metrics = ValidationMetrics.enable(1);
+		assertSame(metrics, ValidationMetrics.active());
+		assertSame(metrics, Instruments.current().getMetrics());
+		assertNull(Instruments.current().getEvents());
+		long[][] answers = ask(20000);
+		MetricsSnapshot snapshot = metrics.snapshot();
+
+		for (PieceName name : PieceName.values())
+		{
+			int i = name.ordinal();
+			assertEquals(answers[0][i], snapshot.getAccepted(name), name.toString());
+			assertEquals(answers[1][i], snapshot.getRejected(name), name.toString());
+			assertEquals(snapshot.getCalls(name), snapshot.getLatencySamples(name));
+			assertTrue(snapshot.getCalls(name) > 0);
+			assertTrue(snapshot.getLatencyPercentile(name, 0.5) <= snapshot.getLatencyPercentile(name, 0.99));
+		}
+
+		ObjectName pawns = ValidationMetrics.objectName(PieceName.PAWN);
+		assertEquals(snapshot.getCalls(PieceName.PAWN), server.getAttribute(pawns, "Calls"));
+		assertEquals(snapshot.getAcceptRatio(PieceName.PAWN), (Double) server.getAttribute(pawns, "AcceptRatio"), 1e-9);
+
+		// the snapshot keeps its numbers
+		ValidationMetrics.disable();
+		assertFalse(server.isRegistered(pawns));
+		assertNull(Instruments.current());
+		ask(1000);
+		assertEquals(answers[0][PieceName.PAWN.ordinal()], snapshot.getAccepted(PieceName.PAWN));
+	}
+
+	@Test
+	void samplesLatencies()
+	{
+		ValidationMetrics metrics = ValidationMetrics.enable(16);
+		ask(100000);
+		MetricsSnapshot snapshot = metrics.snapshot();
+
+		long calls = 0;
+		long samples = 0;
+		for (PieceName name : PieceName.values())
+		{
+			calls += snapshot.getCalls(name);
+			samples += snapshot.getLatencySamples(name);
+		}
+		assertTrue(samples > calls / 32 && samples < calls / 8, samples + " of " + calls);
+
+		// enabling again starts from zero
+		assertEquals(0, ValidationMetrics.enable().snapshot().getCalls(PieceName.KING));
+		assertThrows(IllegalArgumentException.class, () -> ValidationMetrics.enable(3));
+	}
+
+	@Test
+	void histogramBuckets()
+	{
+		Random random = new Random(24);
+		assertEquals(0, LatencyHistogram.bucket(-5));
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+		for (int bucket = 1; bucket < LatencyHistogram.BUCKETS; bucket++)
+		{
+			long lowest = LatencyHistogram.highest(bucket - 1) + 1;
+			assertEquals(bucket, LatencyHistogram.bucket(lowest));
+			assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.highest(bucket)));
+		}
+		for (int i = 0; i < 10000; i++)
+		{
+			long value = random.nextLong() >>> (1 + random.nextInt(63));
+			long highest = LatencyHistogram.highest(LatencyHistogram.bucket(value));
+			assertTrue(highest >= value && highest - value <= value / 16, value + " " + highest);
+		}
+
+		long[] counts = new long[LatencyHistogram.BUCKETS];
+		counts[LatencyHistogram.bucket(100)] = 90;
+		counts[LatencyHistogram.bucket(5000)] = 10;
+		assertEquals(LatencyHistogram.highest(LatencyHistogram.bucket(100)), LatencyHistogram.percentile(counts, 0.9));
+		assertEquals(LatencyHistogram.highest(LatencyHistogram.bucket(5000)), LatencyHistogram.percentile(counts, 0.91));
+	}
+}
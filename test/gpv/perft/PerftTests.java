@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.perft;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import gpv.chess.*;
+
+/**
+ * Regression tests against the published perft node counts. Each position is
+ * run to the depth where it stays under a few hundred thousand nodes, and once
+ * more with canMove() verification at a shallower depth.
+ * @version Apr 15, 2020
+ */
+class PerftTests
+{
+	private static final long NODE_LIMIT = 500000;
+
+	static Stream<PerftPosition> positions()
+	{
+		return PerftPosition.KNOWN.stream();
+	}
+
+	@ParameterizedTest
+	@MethodSource("positions")
+	void publishedCounts(PerftPosition position)
+	{
+		Perft perft = new Perft(position);
+		for (int depth = 1; depth <= position.getMaxDepth()
+				&& position.getCount(depth) <= NODE_LIMIT; depth++)
+		{
+			assertEquals(position.getCount(depth), perft.count(depth), position + " depth " + depth);
+		}
+	}
+
+	@ParameterizedTest
+	@MethodSource("positions")
+	void generatorAgreesWithCanMove(PerftPosition position)
+	{
+		Perft perft = new Perft(position);
+		perft.setVerify(true);
+		assertEquals(position.getCount(2), perft.count(2));
+	}
+
+	@Test
+	void divideSumsRootMoves()
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		long nodes = new Perft(PerftPosition.KNOWN.get(0)).divide(2, new PrintStream(bytes));
+		String out = bytes.toString();
+		assertEquals(400, nodes);
+		assertTrue(out.contains("e2e4: 20"));
+		assertTrue(out.contains("Nodes: 400"));
+	}
+
+	@ParameterizedTest
+	@MethodSource("positions")
+	void parallelMatchesSequential(PerftPosition position)
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ParallelPerft perft = new ParallelPerft(position.makeBoard(), position.getSideToMove(), pool);
+		perft.setSplitDepth(2);
+		assertEquals(position.getCount(3), perft.count(3));
+
+		long counted = 0;
+		for (ParallelPerft.ThreadStats s : perft.getThreadStats().values())
+		{
+			counted += s.getNodes();
+		}
+		assertEquals(position.getCount(3), counted);
+		pool.shutdown();
+	}
+
+	@Test
+	void parallelDivide()
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ParallelPerft perft = new ParallelPerft(PerftPosition.makeBoard(PerftPosition.START),
+				PlayerColor.WHITE);
+		assertEquals(8902, perft.divide(3, new PrintStream(bytes)));
+		assertTrue(bytes.toString().contains("g1f3: 440"));
+	}
+
+	@Test
+	void playLeavesBoardAlone()
+	{
+		BitboardBoard board = PerftPosition.makeBoard(PerftPosition.START);
+		int move = Move.make(Bitboards.square(2, 5), Bitboards.square(4, 5), Move.DOUBLE_PAWN_PUSH);
+		BitboardBoard next = Perft.play(board, move);
+
+		assertNotNull(board.getPieceAt(Bitboards.square(2, 5)));
+		assertFalse(board.getPieceAt(Bitboards.square(2, 5)).hasMoved());
+		assertNull(next.getPieceAt(Bitboards.square(2, 5)));
+		assertTrue(next.getPieceAt(Bitboards.square(4, 5)).hasMoved());
+		assertEquals(Bitboards.square(3, 5), next.getEnPassantSquare());
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.pgn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests for replaying archives on several threads.
+ * @version Apr 24, 2020
+ */
+class ArchiveValidatorTests
+{
+	private static final String[] GAMES = {
+			"[Event \"Paris\"]\r\n[Result \"1-0\"]\r\n\r\n"
+					+ "1.e4 e5 2.Nf3 d6 3.d4 Bg4 {A weak move\n[already]} 4.dxe5 Bxf3 5.Qxf3 dxe5\r\n"
+					+ "6.Bc4 Nf6 7.Qb3 Qe7 8.Nc3 c6 9.Bg5 b5 10.Nxb5 cxb5 11.Bxb5+ Nbd7 12.O-O-O Rd8\r\n"
+					+ "13.Rxd7 Rxd7 14.Rd1 Qe6 15.Bxd7+ Nxd7 16.Qb8+ Nxb8 17.Rd8# 1-0\r\n\r\n",
+			"[Event \"?\"]\n[FEN \"4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1\"]\n\n1. exd6 Kd7 2. Kd2 Kxd6 1/2-1/2\n\n",
+			"[Event \"?\"]\n1. d4 d5 2. Nf3 Nf6 3. Nd2 Nc6 0-1\n",
+			"[Event \"?\"]\n1. e4 e5 2. Ke3 (2. Nf3) Nc6 1-0\n\n",
+			"[Event \"?\"]\n\n1. e4 e5\n\n" };
+
+	/**
+	 * @return an archive of many games in a random order
+	 */
+	private static String archive(int games, long seed)
+	{
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < games; i++)
+		{
+			sb.append(GAMES[random.nextInt(GAMES.length)]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the verdicts of a PgnReader, one per line
+	 */
+	private static String sequential(byte[] archive) throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		try (PgnReader reader = new PgnReader(new ByteArrayInputStream(archive)))
+		{
+			for (GameVerdict v = reader.next(); v != null; v = reader.next())
+			{
+				sb.append(v).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the verdicts of an ArchiveValidator, one per line
+	 */
+	private static String parallel(byte[] archive, int threads, int chunk) throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		try (ArchiveValidator validator = new ArchiveValidator(threads, chunk))
+		{
+			long games = validator.validate(new ByteArrayInputStream(archive), v -> sb.append(v).append('\n'));
+			assertEquals(games, sb.chars().filter(c -> c == '\n').count());
+		}
+		return sb.toString();
+	}
+
+	@Test
+	void sameVerdictsAsOneReader() throws IOException
+	{
+		byte[] archive = archive(2000, 22).getBytes(StandardCharsets.ISO_8859_1);
+		String expected = sequential(archive);
+		assertTrue(expected.contains("game 2000: "));
+
+		for (int chunk : new int[] { 1, 100, 4096, ArchiveValidator.DEFAULT_CHUNK })
+		{
+			assertEquals(expected, parallel(archive, 4, chunk), "chunk " + chunk);
+		}
+	}
+
+	@Test
+	void gamesWithoutTags() throws IOException
+	{
+		// no game starts to cut at, so the chunk grows to the whole archive
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 50; i++)
+		{
+			sb.append("1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 1/2-1/2\n");
+		}
+		byte[] archive = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+		assertEquals(sequential(archive), parallel(archive, 3, 16));
+	}
+
+	@Test
+	void gameStarts()
+	{
+		byte[] b = "[A \"1\"]\n[B \"2\"]\n\n1. e4 *\n\n[A \"3\"]\n[B \"4\"]\n1. d4 *\n".getBytes(StandardCharsets.ISO_8859_1);
+		int second = new String(b, StandardCharsets.ISO_8859_1).indexOf("[A \"3\"]");
+		assertEquals(second, ArchiveValidator.lastGameStart(b, b.length));
+		assertEquals(second, ArchiveValidator.lastGameStart(b, second + 4));
+		assertEquals(-1, ArchiveValidator.lastGameStart(b, second + 3));
+
+		// a bracket starting a line of a comment isn't a tag
+		byte[] comment = "[A \"1\"]\n1. e4 {see\n[1]} *\n".getBytes(StandardCharsets.ISO_8859_1);
+		assertEquals(-1, ArchiveValidator.lastGameStart(comment, comment.length));
+	}
+
+	@Test
+	void givingUpLeavesTheChannelOpen() throws Exception
+	{
+		Pipe pipe = Pipe.open();
+		try (ArchiveValidator validator = new ArchiveValidator(2, 100))
+		{
+			// the reader waits in a read of the pipe while the caller is interrupted
+			Throwable[] thrown = new Throwable[1];
+			Thread caller = new Thread(() -> {
+				try
+				{
+					validator.validate(pipe.source(), v -> {});
+				}
+				catch (Throwable t)
+				{
+					thrown[0] = t;
+				}
+			});
+			caller.start();
+			Thread.sleep(200);
+			caller.interrupt();
+			caller.join(10000);
+			assertTrue(thrown[0] instanceof InterruptedIOException, String.valueOf(thrown[0]));
+			assertTrue(pipe.source().isOpen());
+
+			// the reader stops once its read returns
+			pipe.sink().write(ByteBuffer.wrap(GAMES[0].getBytes(StandardCharsets.ISO_8859_1)));
+			pipe.sink().close();
+
+			// and when the consumer fails
+			byte[] archive = archive(200, 23).getBytes(StandardCharsets.ISO_8859_1);
+			ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(archive));
+			assertThrows(IllegalStateException.class, () -> validator.validate(channel, v -> {
+				throw new IllegalStateException();
+			}));
+			assertTrue(channel.isOpen());
+		}
+		finally
+		{
+			pipe.source().close();
+		}
+	}
+
+	@Test
+	void emptyArchive() throws IOException
+	{
+		assertEquals("", parallel(new byte[0], 2, 10));
+	}
+}
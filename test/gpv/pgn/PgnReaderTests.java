@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.pgn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import gpv.chess.*;
+import gpv.perft.PerftPosition;
+
+/**
+ * Tests for replaying PGN archives.
+ * @version Apr 24, 2020
+ */
+class PgnReaderTests
+{
+	private static final String OPERA_GAME =
+			"[Event \"Paris\"]\n[White \"Morphy, Paul\"]\n[Black \"Duke Karl / Count Isouard\"]\n"
+			+ "[Result \"1-0\"]\n\n"
+			+ "1.e4 e5 2.Nf3 d6 3.d4 Bg4 {This is a weak move already.} 4.dxe5 Bxf3 5.Qxf3 dxe5\n"
+			+ "6.Bc4 Nf6 7.Qb3 Qe7 8.Nc3 c6 9.Bg5 b5 10.Nxb5 cxb5 11.Bxb5+ Nbd7 12.O-O-O Rd8\n"
+			+ "13.Rxd7 Rxd7 14.Rd1 Qe6 15.Bxd7+ Nxd7 16.Qb8+ Nxb8 17.Rd8# 1-0\n\n";
+
+	/**
+	 * @return the verdicts of every game
+	 */
+	private static List<GameVerdict> replay(String pgn, int chunk) throws IOException
+	{
+		byte[] bytes = pgn.getBytes(StandardCharsets.ISO_8859_1);
+		// hands the bytes over a few at a time, to split tokens between reads
+		InputStream in = new ByteArrayInputStream(bytes)
+		{
+			@Override
+			public synchronized int read(byte[] b, int off, int len)
+			{
+				return super.read(b, off, Math.min(len, chunk));
+			}
+		};
+
+		List<GameVerdict> verdicts = new ArrayList<>();
+		try (PgnReader reader = new PgnReader(in))
+		{
+			for (GameVerdict v = reader.next(); v != null; v = reader.next())
+			{
+				verdicts.add(v);
+			}
+		}
+		return verdicts;
+	}
+
+	@Test
+	void operaGame() throws IOException
+	{
+		for (int chunk : new int[] { 1, 7, PgnReader.BUFFER_BYTES })
+		{
+			List<GameVerdict> verdicts = replay(OPERA_GAME, chunk);
+			assertEquals(1, verdicts.size());
+			assertTrue(verdicts.get(0).isValid(), verdicts.get(0).toString());
+			assertEquals(33, verdicts.get(0).getPlies());
+			assertEquals("1-0", verdicts.get(0).getResult());
+		}
+	}
+
+	@Test
+	void skippedMovetext() throws IOException
+	{
+		String pgn = "% an escaped line 1. e4\n"
+				+ "1. e4 $1 e5 (1... c5 {Sicilian (not played)} 2. Nf3 (2. Nc3) d6) 2. Nf3 ; a comment\n"
+				+ "Nc6 3. Bc4 Bc5 *\n"
+				+ "[FEN \"4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1\"]\n[SetUp \"1\"]\n"
+				+ "1. exd6 Kd7 2. Kd2 Kxd6 1/2-1/2";
+		List<GameVerdict> verdicts = replay(pgn, 5);
+		assertEquals(2, verdicts.size());
+		assertTrue(verdicts.get(0).isValid(), verdicts.get(0).toString());
+		assertEquals(6, verdicts.get(0).getPlies());
+		assertEquals("*", verdicts.get(0).getResult());
+		assertTrue(verdicts.get(1).isValid(), verdicts.get(1).toString());
+		assertEquals(4, verdicts.get(1).getPlies());
+		assertEquals(2, verdicts.get(1).getGame());
+	}
+
+	@Test
+	void nonBlockingChannelsAreRefused() throws IOException
+	{
+		Pipe pipe = Pipe.open();
+		try (Pipe.SourceChannel source = pipe.source(); Pipe.SinkChannel sink = pipe.sink())
+		{
+			source.configureBlocking(false);
+			assertThrows(IllegalArgumentException.class, () -> new PgnReader(source));
+		}
+	}
+
+	@Test
+	void badGames() throws IOException
+	{
+		String pgn = "1. d4 d5 2. Nf3 Nf6 3. Nd2 Nc6 0-1\n"
+				+ "1. e4 e5 2. Ke3 Nc6 1-0\n"
+				+ "1. e4 e5 2. Bxb5 1-0\n"
+				+ "1. e4 Nf6 2. e5 Nd5 3. e6 Nb4 4. exf7+ Kxf7 5. d4 a5 6. d5 e6 7. dxe6+ Kg6 8. e7 h6 9. e8 1-0\n"
+				+ "1. e4 e5 2. Qh5 exd4 1-0\n"
+				+ "1. Xy9 *\n"
+				+ "[FEN \"8/8/8 w - - 0 1\"]\n1. e4 *\n"
+				+ "1. e4 e5\n"
+				+ "[Event \"?\"]\n1. e4";
+		List<GameVerdict> verdicts = replay(pgn, 64);
+		assertEquals(9, verdicts.size());
+
+		// a pawn reaching the last row has to say what it becomes, game 4
+		String[][] expected = {
+				{ "Nd2", "ambiguous move" },
+				{ "Ke3", "illegal move" },
+				{ "Bxb5", "illegal move" },
+				{ "e8", "not a move" },
+				{ "exd4", "illegal move" },
+				{ "Xy9", "not a move" },
+				{ null, "bad FEN tag" },
+				{ null, "no termination marker" },
+				{ null, "no termination marker" } };
+		int[] plies = { 4, 2, 2, 16, 3, 0, 0, 2, 1 };
+		for (int i = 0; i < expected.length; i++)
+		{
+			GameVerdict v = verdicts.get(i);
+			assertEquals(i + 1, v.getGame());
+			assertEquals(plies[i], v.getPlies(), v.toString());
+			assertEquals(expected[i][0], v.getMove(), v.toString());
+			assertEquals(expected[i][1], v.getReason(), v.toString());
+		}
+	}
+
+	@Test
+	void randomGamesReplay() throws IOException
+	{
+		Random random = new Random(21);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		StringBuilder pgn = new StringBuilder();
+		List<Integer> lengths = new ArrayList<>();
+
+		for (int game = 0; game < 30; game++)
+		{
+			PerftPosition position = PerftPosition.KNOWN.get(game % PerftPosition.KNOWN.size());
+			BitboardBoard board = position.makeBoard();
+			pgn.append("[FEN \"").append(position.getFen()).append("\"]\n");
+
+			int ply = 0;
+			for (; ply < 150; ply++)
+			{
+				int n = MoveGenerator.generateLegal(board, board.getSideToMove(), moves);
+				if (n == 0)
+				{
+					break;
+				}
+				int move = moves[random.nextInt(n)];
+				if (board.getSideToMove() == PlayerColor.WHITE || ply == 0)
+				{
+					pgn.append(ply / 2 + 1).append(board.getSideToMove() == PlayerColor.WHITE ? ". " : "... ");
+				}
+				pgn.append(san(move, board, moves, n)).append(random.nextInt(4) == 0 ? "+ " : " ");
+				board.makeMove(move);
+			}
+			pgn.append("*\n\n");
+			lengths.add(ply);
+		}
+
+		List<GameVerdict> verdicts = replay(pgn.toString(), 1000);
+		assertEquals(lengths.size(), verdicts.size());
+		for (int i = 0; i < lengths.size(); i++)
+		{
+			assertTrue(verdicts.get(i).isValid(), verdicts.get(i).toString());
+			assertEquals(lengths.get(i).intValue(), verdicts.get(i).getPlies());
+		}
+	}
+
+	/**
+	 * @return a legal move in SAN, without check marks
+	 */
+	private static String san(int move, BitboardBoard b, int[] legal, int n)
+	{
+		int from = Move.from(move);
+		int to = Move.to(move);
+		if (Move.isCastle(move))
+		{
+			return Move.flag(move) == Move.KING_CASTLE ? "O-O" : "O-O-O";
+		}
+
+		PieceName name = b.getPieceAt(from).getName();
+		StringBuilder sb = new StringBuilder();
+		if (name == PieceName.PAWN)
+		{
+			if (Move.isCapture(move))
+			{
+				sb.append(Move.squareName(from).charAt(0));
+			}
+		}
+		else
+		{
+			sb.append(Character.toUpperCase(Fen.letter(b.getPieceAt(from).getDescriptor())));
+			boolean other = false, sameFile = false, sameRank = false;
+			for (int i = 0; i < n; i++)
+			{
+				int f = Move.from(legal[i]);
+				if (f != from && Move.to(legal[i]) == to && b.getPieceAt(f).getName() == name)
+				{
+					other = true;
+					sameFile |= (f & 7) == (from & 7);
+					sameRank |= (f >>> 3) == (from >>> 3);
+				}
+			}
+			if (other && (!sameFile || sameRank))
+			{
+				sb.append(Move.squareName(from).charAt(0));
+			}
+			if (other && sameFile)
+			{
+				sb.append(Move.squareName(from).charAt(1));
+			}
+		}
+
+		if (Move.isCapture(move))
+		{
+			sb.append('x');
+		}
+		sb.append(Move.squareName(to));
+		if (Move.isPromotion(move))
+		{
+			sb.append('=').append("NBRQ".charAt(Move.flag(move) & 3));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import gpv.perft.PerftPosition;
+
+/**
+ * Tests for the NDJSON validation server, over streams and over a loopback
+ * socket.
+ * @version Apr 24, 2020
+ */
+class ValidationServerTests
+{
+	private static final String START = PerftPosition.START;
+
+	// white's bishop on e2 is pinned by the rook on e8
+	private static final String PINNED = "4r2k/8/8/8/8/8/4B3/4K3 w - - 0 1";
+
+	private ValidationServer server;
+
+	@BeforeEach
+	public void setupTest()
+	{
+		server = new ValidationServer(4, 16);
+	}
+
+	@AfterEach
+	public void tearDown()
+	{
+		server.close();
+	}
+
+	private static String request(Object id, String fen, String from, String to)
+	{
+		return "{\"id\": " + id + ", \"fen\": \"" + fen + "\", \"from\": \"" + from
+				+ "\", \"to\": \"" + to + "\"}";
+	}
+
+	private List<String> serve(String input) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		server.serve(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+		return Arrays.asList(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+	}
+
+	@Test
+	void answersInOrder() throws IOException
+	{
+		StringBuilder input = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+		{
+			boolean valid = i % 3 != 0;
+			input.append(request(i, START, "e2", valid ? "e4" : "e5")).append('\n');
+			expected.add("{\"id\":" + i + ",\"valid\":" + valid + "}");
+		}
+
+		assertEquals(expected, serve(input.toString()));
+	}
+
+	@Test
+	void readerStopsWhenTheWriterFails() throws Exception
+	{
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+		{
+			input.append(request(i, START, "e2", "e4")).append('\n');
+		}
+		OutputStream broken = new OutputStream()
+		{
+			@Override
+			public void write(int b) throws IOException
+			{
+				throw new IOException("Client went away");
+			}
+		};
+
+		// the answers outgrow the writer's buffer long before the requests end
+		assertThrows(IOException.class, () -> server.serve(
+				new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)), broken));
+		for (Thread t : Thread.getAllStackTraces().keySet())
+		{
+			if (t.getName().equals("request-reader"))
+			{
+				t.join(10000);
+				assertFalse(t.isAlive());
+			}
+		}
+	}
+
+	@Test
+	void legalRequests() throws IOException
+	{
+		String input = request("\"a\"", PINNED, "e2", "d3") + "\r\n"
+				+ request("\"b\"", PINNED, "e2", "d3").replace("}", ", \"legal\": true}") + "\n"
+				+ "\n"
+				+ request(null, START, "e3", "e4");
+
+		assertEquals(Arrays.asList("{\"id\":\"a\",\"valid\":true}", "{\"id\":\"b\",\"valid\":false}",
+				"{\"id\":null,\"valid\":false}"), serve(input));
+	}
+
+	@Test
+	void badRequestsGetErrors() throws IOException
+	{
+		char[] longLine = new char[ValidationServer.MAX_LINE + 10];
+		Arrays.fill(longLine, 'x');
+		String input = "not json\n"
+				+ "{\"id\": 1, \"fen\": \"" + START + "\"}\n"
+				+ new String(longLine) + "\n"
+				+ request(2, START, "e2", "e4") + "\n";
+
+		List<String> answers = serve(input);
+		assertEquals(4, answers.size());
+		assertTrue(answers.get(0).startsWith("{\"id\":null,\"error\":"), answers.get(0));
+		assertEquals("{\"id\":1,\"error\":\"Missing \\\"from\\\"\"}", answers.get(1));
+		assertTrue(answers.get(2).contains("longer than"), answers.get(2));
+		assertEquals("{\"id\":2,\"valid\":true}", answers.get(3));
+	}
+
+	@Test
+	void malformedIds() throws IOException
+	{
+		String[] ids = { "abc", "x]", "01", "1.", "\"a\\qb\"", "\"\\u12\"", "tru" };
+		StringBuilder input = new StringBuilder();
+		for (String id : ids)
+		{
+			input.append(request(id, START, "e2", "e4")).append('\n');
+		}
+		input.append(request("-1.5e3", START, "e2", "e4")).append('\n');
+		input.append(request("\"a\\\"b\\u00e9\"", START, "e2", "e4")).append('\n');
+
+		List<String> answers = serve(input.toString());
+		assertEquals(ids.length + 2, answers.size());
+		for (int i = 0; i < ids.length; i++)
+		{
+			assertEquals("{\"id\":null,\"error\":\"The id must be a number, string, true, false or null\"}",
+					answers.get(i), ids[i]);
+		}
+		assertEquals("{\"id\":-1.5e3,\"valid\":true}", answers.get(ids.length));
+		assertEquals("{\"id\":\"a\\\"b\\u00e9\",\"valid\":true}", answers.get(ids.length + 1));
+	}
+
+	@Test
+	void servesLoopbackClients() throws Exception
+	{
+		try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress()))
+		{
+			Thread listener = new Thread(() -> server.listen(socket));
+			listener.start();
+
+			for (int client = 0; client < 2; client++)
+			{
+				try (Socket s = new Socket(InetAddress.getLoopbackAddress(), socket.getLocalPort()))
+				{
+					Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8);
+					BufferedReader in = new BufferedReader(
+							new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+
+					// one at a time, as an interactive client would
+					out.write(request(client, START, "g1", "f3") + "\n");
+					out.flush();
+					assertEquals("{\"id\":" + client + ",\"valid\":true}", in.readLine());
+					out.write(request(client, START, "g1", "g3") + "\n");
+					out.flush();
+					assertEquals("{\"id\":" + client + ",\"valid\":false}", in.readLine());
+				}
+			}
+
+			socket.close();
+			listener.join(10000);
+			assertFalse(listener.isAlive());
+		}
+	}
+
+	@Test
+	void clientsBeyondTheLimitWait() throws Exception
+	{
+		try (ValidationServer one = new ValidationServer(2, 16, 1);
+				ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress()))
+		{
+			Thread listener = new Thread(() -> one.listen(socket));
+			listener.start();
+
+			Socket first = new Socket(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+			try (Socket second = new Socket(InetAddress.getLoopbackAddress(), socket.getLocalPort()))
+			{
+				Writer out = new OutputStreamWriter(second.getOutputStream(), StandardCharsets.UTF_8);
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(second.getInputStream(), StandardCharsets.UTF_8));
+				out.write(request(2, START, "g1", "f3") + "\n");
+				out.flush();
+
+				// not served while the first client is
+				second.setSoTimeout(300);
+				assertThrows(SocketTimeoutException.class, in::readLine);
+
+				first.close();
+				second.setSoTimeout(10000);
+				assertEquals("{\"id\":2,\"valid\":true}", in.readLine());
+			}
+
+			socket.close();
+			listener.join(10000);
+			assertFalse(listener.isAlive());
+		}
+	}
+}
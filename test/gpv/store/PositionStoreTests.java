@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * This files was developed for CS4233: Object-Oriented Analysis & Design.
+ * The course was taken at Worcester Polytechnic Institute.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Copyright ©2020 Gary F. Pollice
+ *******************************************************************************/
+
+package gpv.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import gpv.chess.*;
+import gpv.perft.PerftPosition;
+
+/**
+ * Tests for the memory-mapped position store.
+ * @version Apr 24, 2020
+ */
+class PositionStoreTests
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	void randomKeysAcrossSegments() throws IOException
+	{
+		Random random = new Random(20);
+		int n = 10000;
+		long[] keys = new long[n];
+		long[] values = new long[n];
+		Set<Long> seen = new HashSet<>();
+		for (int i = 0; i < n; i++)
+		{
+			do
+			{
+				keys[i] = random.nextLong();
+			} while (!seen.add(keys[i]));
+			values[i] = random.nextLong();
+		}
+		Path file = directory.resolve("random.store");
+		long[] pairs = new long[n];
+		for (int i = 0; i < n; i++)
+		{
+			pairs[i] = keys[i] ^ values[i];
+		}
+		PositionStoreWriter.write(file, keys, values);
+		assertEquals(PositionStore.HEADER_BYTES + n * PositionStore.RECORD_BYTES, Files.size(file));
+
+		// sorted in place, each value with its key
+		for (int i = 1; i < n; i++)
+		{
+			assertTrue(keys[i - 1] < keys[i]);
+		}
+		long[] sortedPairs = new long[n];
+		for (int i = 0; i < n; i++)
+		{
+			sortedPairs[i] = keys[i] ^ values[i];
+		}
+		Arrays.sort(pairs);
+		Arrays.sort(sortedPairs);
+		assertArrayEquals(pairs, sortedPairs);
+
+		// small segments, so lookups cross between mappings as they would past 2 GB
+		try (PositionStore store = PositionStore.open(file, 999))
+		{
+			assertEquals(n, store.size());
+			long[] value = new long[1];
+			for (int i = 0; i < n; i++)
+			{
+				assertTrue(store.probe(keys[i], value));
+				assertEquals(values[i], value[0]);
+			}
+			for (int i = 0; i < n; i++)
+			{
+				long key = random.nextLong();
+				assertEquals(seen.contains(key), store.probe(key, value));
+			}
+			assertFalse(store.probe(Long.MIN_VALUE, value));
+			assertFalse(store.probe(Long.MAX_VALUE, value));
+		}
+	}
+
+	@Test
+	void positionsAndTheirMovablePieces() throws IOException
+	{
+		Random random = new Random(21);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		Map<Long, Long> expected = new HashMap<>();
+
+		for (PerftPosition position : PerftPosition.KNOWN)
+		{
+			BitboardBoard board = position.makeBoard();
+			for (int ply = 0; ply < 60; ply++)
+			{
+				int n = MoveGenerator.generateLegal(board, board.getSideToMove(), moves);
+				long movable = 0L;
+				for (int i = 0; i < n; i++)
+				{
+					movable |= 1L << Move.from(moves[i]);
+				}
+				expected.put(board.getKey(), movable);
+				if (n == 0)
+				{
+					break;
+				}
+				board.makeMove(moves[random.nextInt(n)]);
+			}
+		}
+
+		long[] keys = new long[expected.size()];
+		long[] values = new long[expected.size()];
+		int i = 0;
+		for (Map.Entry<Long, Long> entry : expected.entrySet())
+		{
+			keys[i] = entry.getKey();
+			values[i++] = entry.getValue();
+		}
+		Path file = directory.resolve("positions.store");
+		PositionStoreWriter.write(file, keys, values);
+
+		try (PositionStore store = PositionStore.open(file))
+		{
+			long[] value = new long[1];
+			for (Map.Entry<Long, Long> entry : expected.entrySet())
+			{
+				assertTrue(store.probe(entry.getKey(), value));
+				assertEquals(entry.getValue().longValue(), value[0]);
+			}
+		}
+	}
+
+	@Test
+	void emptyStore() throws IOException
+	{
+		Path file = directory.resolve("empty.store");
+		new PositionStoreWriter(file).close();
+		try (PositionStore store = PositionStore.open(file))
+		{
+			assertEquals(0, store.size());
+			assertFalse(store.probe(0L, new long[1]));
+		}
+	}
+
+	@Test
+	void keysMustAscend() throws IOException
+	{
+		Path order = directory.resolve("order.store");
+		try (PositionStoreWriter writer = new PositionStoreWriter(order))
+		{
+			writer.add(5L, 1L);
+			assertThrows(IllegalArgumentException.class, () -> writer.add(5L, 2L));
+			assertThrows(IllegalArgumentException.class, () -> writer.add(-3L, 2L));
+		}
+		// what was written before the bad key isn't taken for a store
+		assertThrows(IOException.class, () -> PositionStore.open(order));
+
+		Path repeat = directory.resolve("repeat.store");
+		PositionStoreWriter.write(repeat, new long[] { 7L }, new long[1]);
+		assertThrows(IllegalArgumentException.class, () -> PositionStoreWriter.write(
+				repeat, new long[] { 1L, 2L, 1L }, new long[3]));
+		// rejected before the old store was replaced
+		try (PositionStore store = PositionStore.open(repeat))
+		{
+			assertEquals(1, store.size());
+		}
+		assertThrows(IllegalArgumentException.class, () -> PositionStoreWriter.write(
+				directory.resolve("short.store"), new long[] { 1L, 2L, 3L }, new long[2]));
+		assertFalse(Files.exists(directory.resolve("short.store")));
+	}
+
+	@Test
+	void notAStore() throws IOException
+	{
+		Path file = directory.resolve("junk.store");
+		Files.write(file, new byte[] { 1, 2, 3 });
+		assertThrows(IOException.class, () -> PositionStore.open(file));
+
+		Path truncated = directory.resolve("truncated.store");
+		PositionStoreWriter.write(truncated, new long[] { 1L, 2L }, new long[2]);
+		byte[] bytes = Files.readAllBytes(truncated);
+		Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+		assertThrows(IOException.class, () -> PositionStore.open(truncated));
+	}
+}
@@ -61,6 +61,45 @@ class BoardTests
 		assertNotNull(theBoard.getPieceAt(makeCoordinate(6, 0)));
 	}
 
+	@Test
+	void intAccessorMatchesCoordinateAccessor()
+	{
+		theBoard.reset(makeInitializers(WHITEKING, 1, 5, BLACKQUEEN, 8, 4));
+		assertSame(theBoard.getPieceAt(makeCoordinate(1, 5)), theBoard.getPieceAt(1, 5));
+		assertSame(theBoard.getPieceAt(makeCoordinate(8, 4)), theBoard.getPieceAt(8, 4));
+		assertNull(theBoard.getPieceAt(4, 4));
+	}
+	
+	@Test
+	void resetRemovesPreviousPieces()
+	{
+		theBoard.reset(makeInitializers(WHITEKING, 1, 5, WHITEPAWN, 1, 0));
+		theBoard.reset(makeInitializers(BLACKKING, 8, 5));
+		assertNull(theBoard.getPieceAt(1, 5));
+		assertNull(theBoard.getPieceAt(1, 0));
+		assertNotNull(theBoard.getPieceAt(8, 5));
+	}
+	
+	@Test
+	void putPieceAtReturnsPreviousPiece()
+	{
+		ChessPiece wk = factory.makePiece(WHITEKING);
+		ChessPiece bq = factory.makePiece(BLACKQUEEN);
+		assertNull(theBoard.putPieceAt(wk, makeCoordinate(3, 3)));
+		assertSame(wk, theBoard.putPieceAt(bq, makeCoordinate(3, 3)));
+		assertSame(bq, theBoard.getPieceAt(3, 3));
+	}
+	
+	@Test
+	void changingRowsKeepsPieces()
+	{
+		theBoard.reset(makeInitializers(WHITEKING, 1, 5, BLACKKING, 8, 5));
+		theBoard.setnRows(10);
+		assertNotNull(theBoard.getPieceAt(1, 5));
+		assertNotNull(theBoard.getPieceAt(8, 5));
+		assertTrue(theBoard.insideBoard(makeCoordinate(10, 1)));
+	}
+
 	// Helper methods
 	private List<SquareInitializer> makeInitializers(Object... params)
 	{
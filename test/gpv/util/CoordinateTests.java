@@ -75,5 +75,37 @@ class CoordinateTests
 		
 		assertFalse(coord1.equals(coord2));
 	}
+	
+	@Test
+	void sameCoordinateIsInterned()
+	{
+		assertSame(Coordinate.makeCoordinate(3, 7), Coordinate.makeCoordinate(3, 7));
+	}
+	
+	@Test
+	void offBoardCoordinateIsInterned()
+	{
+		assertSame(Coordinate.makeCoordinate(0, 9), Coordinate.makeCoordinate(0, 9));
+	}
+	
+	@Test
+	void coordinateOutsideTableStillEqual()
+	{
+		Coordinate coord1 = Coordinate.makeCoordinate(100, -40);
+		Coordinate coord2 = Coordinate.makeCoordinate(100, -40);
+		
+		assertEquals(coord1, coord2);
+		assertEquals(100, coord1.getRow());
+		assertEquals(-40, coord1.getColumn());
+	}
+	
+	@Test
+	void internedCoordinateCannotBeMoved()
+	{
+		Coordinate coord = Coordinate.makeCoordinate(2, 2);
+		
+		assertThrows(UnsupportedOperationException.class, () -> coord.translate(1, 1));
+		assertEquals(Coordinate.makeCoordinate(2, 2), coord);
+	}
 
 }